@@ -1,21 +1,41 @@
 package ru.fazlyev.hibernateexample.domain;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.NamedQuery;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import java.util.Objects;
 
 @Entity
 @Table(name = "authors")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "authors")
+@NamedQuery(name = Author.BY_NAME, query = "select a from Author a where a.name = :name")
+@NamedQuery(name = Author.BY_NAMES, query = "select a from Author a where a.name in :names")
+@NamedQuery(name = Author.ALL, query = "select a from Author a")
 public class Author {
+    public static final String BY_NAME = "Author.byName";
+    public static final String BY_NAMES = "Author.byNames";
+    public static final String ALL = "Author.all";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "author_seq")
+    @SequenceGenerator(name = "author_seq", sequenceName = "authors_seq", allocationSize = 50)
     private long id;
-    @Column(name = "name")
+    @Column(name = "name", unique = true)
     private String name;
+    @Version
+    @Column(name = "version")
+    private long version;
 
     public Author() {
     }
@@ -25,6 +45,11 @@ public class Author {
         this.name = name;
     }
 
+    public Author(long id, String name, long version) {
+        this(id, name);
+        this.version = version;
+    }
+
     public long getId() {
         return id;
     }
@@ -33,12 +58,16 @@ public class Author {
         return name;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
+        if (!(o instanceof Author)) return false;
         Author author = (Author) o;
-        return id == author.id && name.equals(author.name);
+        return id == author.getId() && name.equals(author.getName());
     }
 
     @Override
@@ -9,23 +9,114 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.NamedQuery;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import java.util.Objects;
 
 @Entity
 @Table(name = "books")
+@NamedEntityGraph(name = Book.FULL_GRAPH, attributeNodes = {@NamedAttributeNode("author"),
+        @NamedAttributeNode("genre")})
+@NamedQuery(name = Book.BY_TITLE, query = Book.SELECT_FULL + "where b.title = :title")
+@NamedQuery(name = Book.BY_AUTHOR_NAME, query = "select b from Book b join fetch b.genre g join fetch b.author a " +
+        "where a.name = :author order by b.id")
+@NamedQuery(name = Book.BY_GENRE_NAME, query = "select b from Book b join fetch b.genre g join fetch b.author a " +
+        "where g.name = :genre order by b.id")
+@NamedQuery(name = Book.BY_COMMENT, query = "select b from Book b join fetch b.genre g join fetch b.author a " +
+        "left join fetch Comment c on c.book = b where c.content = :content")
+@NamedQuery(name = Book.ALL, query = Book.SELECT_FULL)
+@NamedQuery(name = Book.ALL_ORDERED, query = Book.SELECT_FULL + "order by b.id")
+@NamedQuery(name = Book.PAGE, query = Book.SELECT_FULL + "where b.id > :afterId order by b.id")
+@NamedQuery(name = Book.VIEW_BY_TITLE, query = Book.SELECT_VIEW + "where b.title = :title")
+@NamedQuery(name = Book.VIEW_BY_AUTHOR, query = Book.SELECT_VIEW + "where a.name = :author order by b.id")
+@NamedQuery(name = Book.VIEW_BY_GENRE, query = Book.SELECT_VIEW + "where g.name = :genre order by b.id")
+@NamedQuery(name = Book.ALL_VIEWS, query = Book.SELECT_VIEW + "order by b.id")
+@NamedQuery(name = Book.VIEW_PAGE, query = Book.SELECT_VIEW + "where b.id > :afterId order by b.id")
+@NamedQuery(name = Book.VIEWS_BY_IDS, query = Book.SELECT_VIEW + "where b.id in :ids")
+@NamedQuery(name = Book.VIEWS_BY_AUTHOR_IDS, query = Book.SELECT_VIEW + "where a.id in :ids order by b.id")
+@NamedQuery(name = Book.VIEWS_BY_GENRE_IDS, query = Book.SELECT_VIEW + "where g.id in :ids order by b.id")
+@NamedQuery(name = Book.VIEWS_IN_RANGE, query = Book.SELECT_VIEW + "where b.id >= :fromId and b.id < :toId")
+@NamedQuery(name = Book.MAX_ID, query = "select coalesce(max(b.id), 0) from Book b")
+@NamedQuery(name = Book.VIEWS_OF_AUTHOR_BY_TITLE, query = Book.SELECT_VIEW + "where " + Book.WHERE_AUTHOR +
+        " order by b.author.id, b.title, b.id")
+@NamedQuery(name = Book.VIEWS_OF_AUTHOR_BY_TITLE_AFTER, query = Book.SELECT_VIEW + "where " + Book.WHERE_AUTHOR +
+        " and " + Book.AFTER_TITLE + " order by b.author.id, b.title, b.id")
+@NamedQuery(name = Book.VIEWS_OF_AUTHOR_BY_ID, query = Book.SELECT_VIEW + "where " + Book.WHERE_AUTHOR +
+        " order by b.author.id, b.id")
+@NamedQuery(name = Book.VIEWS_OF_AUTHOR_BY_ID_AFTER, query = Book.SELECT_VIEW + "where " + Book.WHERE_AUTHOR +
+        " and " + Book.AFTER_ID + " order by b.author.id, b.id")
+@NamedQuery(name = Book.VIEWS_OF_GENRE_BY_TITLE, query = Book.SELECT_VIEW + "where " + Book.WHERE_GENRE +
+        " order by b.genre.id, b.title, b.id")
+@NamedQuery(name = Book.VIEWS_OF_GENRE_BY_TITLE_AFTER, query = Book.SELECT_VIEW + "where " + Book.WHERE_GENRE +
+        " and " + Book.AFTER_TITLE + " order by b.genre.id, b.title, b.id")
+@NamedQuery(name = Book.VIEWS_OF_GENRE_BY_ID, query = Book.SELECT_VIEW + "where " + Book.WHERE_GENRE +
+        " order by b.genre.id, b.id")
+@NamedQuery(name = Book.VIEWS_OF_GENRE_BY_ID_AFTER, query = Book.SELECT_VIEW + "where " + Book.WHERE_GENRE +
+        " and " + Book.AFTER_ID + " order by b.genre.id, b.id")
+@NamedQuery(name = Book.CAPPED_IDS_BY_AUTHOR, query = "select b.id from Book b where " + Book.WHERE_AUTHOR)
+@NamedQuery(name = Book.CAPPED_IDS_BY_GENRE, query = "select b.id from Book b where " + Book.WHERE_GENRE)
+@NamedQuery(name = Book.COUNT_BY_AUTHOR, query = "select count(b.id) from Book b where " + Book.WHERE_AUTHOR)
+@NamedQuery(name = Book.COUNT_BY_GENRE, query = "select count(b.id) from Book b where " + Book.WHERE_GENRE)
 public class Book {
+    public static final String FULL_GRAPH = "book-full";
+    public static final String BY_TITLE = "Book.byTitle";
+    public static final String BY_AUTHOR_NAME = "Book.byAuthorName";
+    public static final String BY_GENRE_NAME = "Book.byGenreName";
+    public static final String BY_COMMENT = "Book.byComment";
+    public static final String ALL = "Book.all";
+    public static final String ALL_ORDERED = "Book.allOrdered";
+    public static final String PAGE = "Book.page";
+    public static final String VIEW_BY_TITLE = "Book.viewByTitle";
+    public static final String VIEW_BY_AUTHOR = "Book.viewByAuthor";
+    public static final String VIEW_BY_GENRE = "Book.viewByGenre";
+    public static final String ALL_VIEWS = "Book.allViews";
+    public static final String VIEW_PAGE = "Book.viewPage";
+    public static final String VIEWS_BY_IDS = "Book.viewsByIds";
+    public static final String VIEWS_BY_AUTHOR_IDS = "Book.viewsByAuthorIds";
+    public static final String VIEWS_BY_GENRE_IDS = "Book.viewsByGenreIds";
+    public static final String VIEWS_IN_RANGE = "Book.viewsInRange";
+    public static final String MAX_ID = "Book.maxId";
+    public static final String VIEWS_OF_AUTHOR_BY_TITLE = "Book.viewsOfAuthorByTitle";
+    public static final String VIEWS_OF_AUTHOR_BY_TITLE_AFTER = "Book.viewsOfAuthorByTitleAfter";
+    public static final String VIEWS_OF_AUTHOR_BY_ID = "Book.viewsOfAuthorById";
+    public static final String VIEWS_OF_AUTHOR_BY_ID_AFTER = "Book.viewsOfAuthorByIdAfter";
+    public static final String VIEWS_OF_GENRE_BY_TITLE = "Book.viewsOfGenreByTitle";
+    public static final String VIEWS_OF_GENRE_BY_TITLE_AFTER = "Book.viewsOfGenreByTitleAfter";
+    public static final String VIEWS_OF_GENRE_BY_ID = "Book.viewsOfGenreById";
+    public static final String VIEWS_OF_GENRE_BY_ID_AFTER = "Book.viewsOfGenreByIdAfter";
+    public static final String CAPPED_IDS_BY_AUTHOR = "Book.cappedIdsByAuthor";
+    public static final String CAPPED_IDS_BY_GENRE = "Book.cappedIdsByGenre";
+    public static final String COUNT_BY_AUTHOR = "Book.countByAuthor";
+    public static final String COUNT_BY_GENRE = "Book.countByGenre";
+    static final String SELECT_FULL = "select b from Book b left join fetch b.author left join fetch b.genre ";
+    static final String SELECT_VIEW = "select new ru.fazlyev.hibernateexample.view.BookView" +
+            "(b.id, b.title, a.id, a.name, g.id, g.name) from Book b join b.author a join b.genre g ";
+    static final String WHERE_AUTHOR = "b.author.id = (select n.id from Author n where n.name = :name)";
+    static final String WHERE_GENRE = "b.genre.id = (select n.id from Genre n where n.name = :name)";
+    static final String AFTER_TITLE = "b.title >= (select p.title from Book p where p.id = :afterId) and " +
+            "(b.title > (select p.title from Book p where p.id = :afterId) or b.id > :afterId)";
+    static final String AFTER_ID = "b.id > :afterId";
+
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+    @SequenceGenerator(name = "book_seq", sequenceName = "books_seq", allocationSize = 50)
     private long id;
     @Column(name = "title")
     private String title;
-    @ManyToOne(targetEntity = Author.class, cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @ManyToOne(targetEntity = Author.class, cascade = {CascadeType.PERSIST, CascadeType.MERGE}, fetch = FetchType.LAZY)
     @JoinColumn(name = "author_id")
     private Author author;
-    @ManyToOne(targetEntity = Genre.class, cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @ManyToOne(targetEntity = Genre.class, cascade = {CascadeType.PERSIST, CascadeType.MERGE}, fetch = FetchType.LAZY)
     @JoinColumn(name = "genre_id")
     private Genre genre;
+    @Version
+    @Column(name = "version")
+    private long version;
 
     public Book() {
     }
@@ -53,12 +144,17 @@ public class Book {
         return genre;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
+        if (!(o instanceof Book)) return false;
         Book book = (Book) o;
-        return id == book.id && title.equals(book.title) && Objects.equals(author, book.author) && Objects.equals(genre, book.genre);
+        return id == book.getId() && title.equals(book.getTitle()) && Objects.equals(author, book.getAuthor())
+                && Objects.equals(genre, book.getGenre());
     }
 
     @Override
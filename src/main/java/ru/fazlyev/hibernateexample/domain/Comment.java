@@ -1,6 +1,5 @@
 package ru.fazlyev.hibernateexample.domain;
 
-import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
@@ -9,20 +8,63 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.NamedQuery;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import java.util.Objects;
 
 @Entity
 @Table(name = "comments")
+@NamedEntityGraph(name = Comment.WITH_BOOK_GRAPH, attributeNodes = @NamedAttributeNode("book"))
+@NamedQuery(name = Comment.BY_CONTENT, query = "select c from Comment c left join fetch c.book " +
+        "where c.content = :content")
+@NamedQuery(name = Comment.BY_BOOK, query = "select c from Comment c where c.book = :book")
+@NamedQuery(name = Comment.ALL, query = "select c from Comment c left join fetch c.book")
+@NamedQuery(name = Comment.ALL_ORDERED, query = "select c from Comment c left join fetch c.book order by c.id")
+@NamedQuery(name = Comment.PAGE, query = "select c from Comment c left join fetch c.book " +
+        "where c.id > :afterId order by c.id")
+@NamedQuery(name = Comment.VIEWS_BY_BOOK_TITLE, query = Comment.SELECT_VIEW + "where b.title = :title order by c.id")
+@NamedQuery(name = Comment.VIEW_PAGE, query = Comment.SELECT_VIEW + "where c.id > :afterId order by c.id")
+@NamedQuery(name = Comment.VIEWS_BY_IDS, query = Comment.SELECT_VIEW + "where c.id in :ids")
+@NamedQuery(name = Comment.VIEWS_IN_RANGE, query = Comment.SELECT_VIEW + "where c.id >= :fromId and c.id < :toId")
+@NamedQuery(name = Comment.IDS_BY_BOOK_IDS, query = "select c.id from Comment c where c.book.id in :ids")
+@NamedQuery(name = Comment.IDS_BY_AUTHOR_IDS, query = "select c.id from Comment c where c.book.author.id in :ids")
+@NamedQuery(name = Comment.IDS_BY_GENRE_IDS, query = "select c.id from Comment c where c.book.genre.id in :ids")
+@NamedQuery(name = Comment.MAX_ID, query = "select coalesce(max(c.id), 0) from Comment c")
 public class Comment {
+    public static final String WITH_BOOK_GRAPH = "comment-with-book";
+    public static final String BY_CONTENT = "Comment.byContent";
+    public static final String BY_BOOK = "Comment.byBook";
+    public static final String ALL = "Comment.all";
+    public static final String ALL_ORDERED = "Comment.allOrdered";
+    public static final String PAGE = "Comment.page";
+    public static final String VIEWS_BY_BOOK_TITLE = "Comment.viewsByBookTitle";
+    public static final String VIEW_PAGE = "Comment.viewPage";
+    public static final String VIEWS_BY_IDS = "Comment.viewsByIds";
+    public static final String VIEWS_IN_RANGE = "Comment.viewsInRange";
+    public static final String IDS_BY_BOOK_IDS = "Comment.idsByBookIds";
+    public static final String IDS_BY_AUTHOR_IDS = "Comment.idsByAuthorIds";
+    public static final String IDS_BY_GENRE_IDS = "Comment.idsByGenreIds";
+    public static final String MAX_ID = "Comment.maxId";
+    static final String SELECT_VIEW = "select new ru.fazlyev.hibernateexample.view.CommentView" +
+            "(c.id, c.content, b.id, b.title) from Comment c join c.book b ";
+
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "comment_seq")
+    @SequenceGenerator(name = "comment_seq", sequenceName = "comments_seq", allocationSize = 50)
     private long id;
     @Column(name = "content")
     private String content;
-    @ManyToOne(targetEntity = Book.class, cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @ManyToOne(targetEntity = Book.class, fetch = FetchType.LAZY)
     @JoinColumn(name = "book_id")
     private Book book;
+    @Version
+    @Column(name = "version")
+    private long version;
 
     public Comment() {
     }
@@ -45,12 +87,16 @@ public class Comment {
         return book;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
+        if (!(o instanceof Comment)) return false;
         Comment comment = (Comment) o;
-        return id == comment.id && content.equals(comment.content);
+        return id == comment.getId() && content.equals(comment.getContent());
     }
 
     @Override
@@ -1,21 +1,41 @@
 package ru.fazlyev.hibernateexample.domain;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.NamedQuery;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import java.util.Objects;
 
 @Entity
 @Table(name = "genres")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "genres")
+@NamedQuery(name = Genre.BY_NAME, query = "select g from Genre g where g.name = :name")
+@NamedQuery(name = Genre.BY_NAMES, query = "select g from Genre g where g.name in :names")
+@NamedQuery(name = Genre.ALL, query = "select g from Genre g")
 public class Genre {
+    public static final String BY_NAME = "Genre.byName";
+    public static final String BY_NAMES = "Genre.byNames";
+    public static final String ALL = "Genre.all";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "genre_seq")
+    @SequenceGenerator(name = "genre_seq", sequenceName = "genres_seq", allocationSize = 50)
     private long id;
-    @Column(name = "name", nullable = false)
+    @Column(name = "name", nullable = false, unique = true)
     private String name;
+    @Version
+    @Column(name = "version")
+    private long version;
 
     public Genre() {
     }
@@ -25,6 +45,11 @@ public class Genre {
         this.name = name;
     }
 
+    public Genre(long id, String name, long version) {
+        this(id, name);
+        this.version = version;
+    }
+
     public long getId() {
         return id;
     }
@@ -33,12 +58,16 @@ public class Genre {
         return name;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
+        if (!(o instanceof Genre)) return false;
         Genre genre = (Genre) o;
-        return id == genre.id && name.equals(genre.name);
+        return id == genre.getId() && name.equals(genre.getName());
     }
 
     @Override
@@ -0,0 +1,18 @@
+package ru.fazlyev.hibernateexample.importer;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+public enum CatalogFormat {
+    CSV, JSONL;
+
+    public static CatalogFormat of(Path file) {
+        final String fileName = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (fileName.endsWith(".csv")) {
+            return CSV;
+        } else if (fileName.endsWith(".jsonl") || fileName.endsWith(".ndjson")) {
+            return JSONL;
+        }
+        throw new IllegalArgumentException("Unsupported catalog file " + file + ", expected .csv or .jsonl");
+    }
+}
@@ -0,0 +1,11 @@
+package ru.fazlyev.hibernateexample.importer;
+
+public class CatalogImportException extends RuntimeException {
+    public CatalogImportException(String message) {
+        super(message);
+    }
+
+    public CatalogImportException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
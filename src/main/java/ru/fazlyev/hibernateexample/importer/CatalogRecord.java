@@ -0,0 +1,53 @@
+package ru.fazlyev.hibernateexample.importer;
+
+import java.util.List;
+import java.util.Objects;
+
+public class CatalogRecord {
+    private final String title;
+    private final String author;
+    private final String genre;
+    private final List<String> comments;
+
+    public CatalogRecord(String title, String author, String genre, List<String> comments) {
+        this.title = title;
+        this.author = author;
+        this.genre = genre;
+        this.comments = List.copyOf(comments);
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public String getGenre() {
+        return genre;
+    }
+
+    public List<String> getComments() {
+        return comments;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CatalogRecord record = (CatalogRecord) o;
+        return title.equals(record.title) && author.equals(record.author) && genre.equals(record.genre) &&
+                comments.equals(record.comments);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(title, author, genre, comments);
+    }
+
+    @Override
+    public String toString() {
+        return "Title: " + title + ", author: " + author + ", genre: " + genre + ", comments: " + comments;
+    }
+}
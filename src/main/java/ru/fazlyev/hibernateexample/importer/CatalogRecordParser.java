@@ -0,0 +1,100 @@
+package ru.fazlyev.hibernateexample.importer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public class CatalogRecordParser {
+    private static final String CSV_HEADER = "title,author,genre";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CatalogFormat format;
+
+    public CatalogRecordParser(CatalogFormat format) {
+        this.format = format;
+    }
+
+    public boolean isHeader(String line) {
+        return format == CatalogFormat.CSV && line.trim().toLowerCase(Locale.ROOT).startsWith(CSV_HEADER);
+    }
+
+    public CatalogRecord parse(String line) {
+        return format == CatalogFormat.CSV ? parseCsv(line) : parseJson(line);
+    }
+
+    private CatalogRecord parseCsv(String line) {
+        final List<String> fields = splitCsv(line);
+        if (fields.size() < 3) {
+            throw new IllegalArgumentException("Expected at least title, author and genre but got " + fields.size() +
+                    " field(s)");
+        }
+        final List<String> comments = new ArrayList<>();
+        for (String comment : fields.subList(3, fields.size())) {
+            if (!comment.isBlank()) {
+                comments.add(comment.trim());
+            }
+        }
+        return new CatalogRecord(required(fields.get(0), "title"), required(fields.get(1), "author"),
+                required(fields.get(2), "genre"), comments);
+    }
+
+    private CatalogRecord parseJson(String line) {
+        final JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON: " + e.getOriginalMessage(), e);
+        }
+        final List<String> comments = new ArrayList<>();
+        for (JsonNode comment : node.path("comments")) {
+            if (!comment.asText().isBlank()) {
+                comments.add(comment.asText().trim());
+            }
+        }
+        return new CatalogRecord(required(node.path("title").asText(), "title"),
+                required(node.path("author").asText(), "author"),
+                required(node.path("genre").asText(), "genre"), comments);
+    }
+
+    private static List<String> splitCsv(String line) {
+        final List<String> fields = new ArrayList<>();
+        final StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            final char ch = line.charAt(i);
+            if (quoted) {
+                if (ch == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (ch == '"') {
+                    quoted = false;
+                } else {
+                    field.append(ch);
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(ch);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String required(String value, String field) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing " + field);
+        }
+        return value.trim();
+    }
+}
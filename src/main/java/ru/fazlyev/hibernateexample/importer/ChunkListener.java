@@ -0,0 +1,9 @@
+package ru.fazlyev.hibernateexample.importer;
+
+import ru.fazlyev.hibernateexample.view.BookView;
+
+public interface ChunkListener {
+    void bookLoaded(BookView book);
+
+    void commentLoaded(long id, long bookId, String content);
+}
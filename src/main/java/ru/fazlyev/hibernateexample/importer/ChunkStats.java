@@ -0,0 +1,31 @@
+package ru.fazlyev.hibernateexample.importer;
+
+public class ChunkStats {
+    private final long records;
+    private final long comments;
+    private final long authorsCreated;
+    private final long genresCreated;
+
+    public ChunkStats(long records, long comments, long authorsCreated, long genresCreated) {
+        this.records = records;
+        this.comments = comments;
+        this.authorsCreated = authorsCreated;
+        this.genresCreated = genresCreated;
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    public long getComments() {
+        return comments;
+    }
+
+    public long getAuthorsCreated() {
+        return authorsCreated;
+    }
+
+    public long getGenresCreated() {
+        return genresCreated;
+    }
+}
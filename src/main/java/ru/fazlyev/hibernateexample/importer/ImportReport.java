@@ -0,0 +1,58 @@
+package ru.fazlyev.hibernateexample.importer;
+
+import java.time.Duration;
+
+public class ImportReport {
+    private final long resumedFrom;
+    private final long records;
+    private final long comments;
+    private final long authorsCreated;
+    private final long genresCreated;
+    private final Duration elapsed;
+
+    public ImportReport(long resumedFrom, long records, long comments, long authorsCreated, long genresCreated,
+                        Duration elapsed) {
+        this.resumedFrom = resumedFrom;
+        this.records = records;
+        this.comments = comments;
+        this.authorsCreated = authorsCreated;
+        this.genresCreated = genresCreated;
+        this.elapsed = elapsed;
+    }
+
+    public long getResumedFrom() {
+        return resumedFrom;
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    public long getComments() {
+        return comments;
+    }
+
+    public long getAuthorsCreated() {
+        return authorsCreated;
+    }
+
+    public long getGenresCreated() {
+        return genresCreated;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    public double getRowsPerSecond() {
+        final long millis = Math.max(1L, elapsed.toMillis());
+        return (records + comments) * 1000.0 / millis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Imported %d books with %d comments (%d new authors, %d new genres) in %d ms, " +
+                        "%.0f rows/sec%s", records, comments, authorsCreated, genresCreated, elapsed.toMillis(),
+                getRowsPerSecond(), resumedFrom > 0 ? ", resumed after record " + resumedFrom : "");
+    }
+}
@@ -0,0 +1,203 @@
+package ru.fazlyev.hibernateexample.importer;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import ru.fazlyev.hibernateexample.view.BookView;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class PostgresCopyLoader {
+    private final DataSource dataSource;
+    private final boolean enabled;
+    private final Map<String, Long> sequenceIncrements = new ConcurrentHashMap<>();
+    private volatile Boolean available;
+
+    public PostgresCopyLoader(DataSource dataSource, @Value("${app.import.copy-enabled:true}") boolean enabled) {
+        this.dataSource = dataSource;
+        this.enabled = enabled;
+    }
+
+    public boolean isAvailable() {
+        if (!enabled) {
+            return false;
+        }
+        if (available == null) {
+            final Connection connection = DataSourceUtils.getConnection(dataSource);
+            try {
+                available = connection.isWrapperFor(PGConnection.class);
+            } catch (SQLException e) {
+                available = false;
+            } finally {
+                DataSourceUtils.releaseConnection(connection, dataSource);
+            }
+        }
+        return available;
+    }
+
+    public ChunkStats load(List<CatalogRecord> records, ChunkListener listener) {
+        final Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            final CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            createStagingTable(connection);
+
+            final long commentCount = records.stream().mapToLong(r -> r.getComments().size()).sum();
+            final IdBlocks bookIds = reserveIds(connection, "books_seq", records.size());
+            final IdBlocks commentIds = reserveIds(connection, "comments_seq", commentCount);
+            final StringBuilder books = new StringBuilder();
+            final StringBuilder comments = new StringBuilder();
+            final Map<Long, CatalogRecord> recordsById = new HashMap<>();
+            for (CatalogRecord record : records) {
+                final long bookId = bookIds.next();
+                recordsById.put(bookId, record);
+                appendCsvRow(books, Long.toString(bookId), record.getTitle(), record.getAuthor(), record.getGenre());
+                for (String content : record.getComments()) {
+                    final long commentId = commentIds.next();
+                    appendCsvRow(comments, Long.toString(commentId), Long.toString(bookId), content);
+                    listener.commentLoaded(commentId, bookId, content);
+                }
+            }
+
+            copyManager.copyIn("COPY staging_books (id, title, author, genre) FROM STDIN WITH (FORMAT csv)",
+                    new StringReader(books.toString()));
+            final long authorsCreated = insertMissingNames(connection, "authors", "author");
+            final long genresCreated = insertMissingNames(connection, "genres", "genre");
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("INSERT INTO books (id, title, author_id, genre_id) " +
+                         "SELECT s.id, s.title, (SELECT min(a.id) FROM authors a WHERE a.name = s.author), " +
+                         "(SELECT min(g.id) FROM genres g WHERE g.name = s.genre) FROM staging_books s " +
+                         "RETURNING id, author_id, genre_id")) {
+                while (resultSet.next()) {
+                    final CatalogRecord record = recordsById.get(resultSet.getLong(1));
+                    listener.bookLoaded(new BookView(resultSet.getLong(1), record.getTitle(), resultSet.getLong(2),
+                            record.getAuthor(), resultSet.getLong(3), record.getGenre()));
+                }
+            }
+            if (commentCount > 0) {
+                copyManager.copyIn("COPY comments (id, book_id, content) FROM STDIN WITH (FORMAT csv)",
+                        new StringReader(comments.toString()));
+            }
+
+            return new ChunkStats(records.size(), commentCount, authorsCreated, genresCreated);
+        } catch (SQLException e) {
+            throw new CatalogImportException("COPY load failed: " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private static void createStagingTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TEMPORARY TABLE IF NOT EXISTS staging_books (id BIGINT, title TEXT, " +
+                    "author TEXT, genre TEXT) ON COMMIT DELETE ROWS");
+        }
+    }
+
+    private long insertMissingNames(Connection connection, String table, String column) throws SQLException {
+        final List<String> missing = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(String.format("SELECT DISTINCT s.%2$s FROM staging_books s " +
+                     "WHERE NOT EXISTS (SELECT 1 FROM %1$s t WHERE t.name = s.%2$s)", table, column))) {
+            while (resultSet.next()) {
+                missing.add(resultSet.getString(1));
+            }
+        }
+        if (missing.isEmpty()) {
+            return 0L;
+        }
+
+        final IdBlocks ids = reserveIds(connection, table + "_seq", missing.size());
+        final Long[] reserved = new Long[missing.size()];
+        for (int i = 0; i < reserved.length; i++) {
+            reserved[i] = ids.next();
+        }
+        try (PreparedStatement statement = connection.prepareStatement(String.format("INSERT INTO %s (id, name) " +
+                "SELECT * FROM unnest(?, ?) ON CONFLICT (name) DO NOTHING", table))) {
+            statement.setArray(1, connection.createArrayOf("bigint", reserved));
+            statement.setArray(2, connection.createArrayOf("text", missing.toArray()));
+            return statement.executeUpdate();
+        }
+    }
+
+    private IdBlocks reserveIds(Connection connection, String sequence, long count) throws SQLException {
+        final long increment = getIncrement(connection, sequence);
+        final int blocks = (int) ((count + increment - 1) / increment);
+        final long[] lows = new long[blocks];
+        try (PreparedStatement statement = connection.prepareStatement
+                ("SELECT nextval('" + sequence + "') FROM generate_series(1, ?)")) {
+            statement.setInt(1, blocks);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                for (int i = 0; resultSet.next(); i++) {
+                    lows[i] = resultSet.getLong(1);
+                }
+            }
+        }
+        return new IdBlocks(lows, increment);
+    }
+
+    private long getIncrement(Connection connection, String sequence) throws SQLException {
+        final Long cached = sequenceIncrements.get(sequence);
+        if (cached != null) {
+            return cached;
+        }
+        try (PreparedStatement statement = connection.prepareStatement("SELECT increment_by FROM pg_sequences " +
+                "WHERE schemaname = current_schema() AND sequencename = ?")) {
+            statement.setString(1, sequence);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next() || resultSet.getLong(1) < 1) {
+                    throw new CatalogImportException("Sequence " + sequence + " must exist and count upwards");
+                }
+                sequenceIncrements.put(sequence, resultSet.getLong(1));
+                return resultSet.getLong(1);
+            }
+        }
+    }
+
+    static void appendCsvRow(StringBuilder csv, String... fields) {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                csv.append(',');
+            }
+            csv.append('"').append(fields[i].replace("\"", "\"\"")).append('"');
+        }
+        csv.append('\n');
+    }
+
+    private static class IdBlocks {
+        private final long[] lows;
+        private final long increment;
+        private int block;
+        private long offset;
+
+        private IdBlocks(long[] lows, long increment) {
+            this.lows = lows;
+            this.increment = increment;
+        }
+
+        private long next() {
+            if (offset == increment) {
+                block++;
+                offset = 0;
+            }
+            return lows[block] + offset++;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package ru.fazlyev.hibernateexample.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+import ru.fazlyev.hibernateexample.repository.AuthorRepository;
+import ru.fazlyev.hibernateexample.repository.BookRepository;
+import ru.fazlyev.hibernateexample.repository.CommentRepository;
+import ru.fazlyev.hibernateexample.repository.GenreRepository;
+import ru.fazlyev.hibernateexample.repository.KeysetPage;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@Aspect
+@Component
+public class RepositoryMetrics {
+    public static final String CALLS = "repository.calls";
+    public static final String STATEMENTS = "repository.statements";
+    public static final String ROWS = "repository.rows";
+    public static final String REPOSITORY_TAG = "repository";
+    public static final String METHOD_TAG = "method";
+
+    private static final List<Class<?>> REPOSITORIES = List.of(AuthorRepository.class, BookRepository.class,
+            GenreRepository.class, CommentRepository.class);
+
+    private final MeterRegistry registry;
+    private final Map<Method, Meters> meters = new ConcurrentHashMap<>();
+
+    public RepositoryMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(public * ru.fazlyev.hibernateexample.repository.AuthorRepository+.*(..)) || " +
+            "execution(public * ru.fazlyev.hibernateexample.repository.BookRepository+.*(..)) || " +
+            "execution(public * ru.fazlyev.hibernateexample.repository.GenreRepository+.*(..)) || " +
+            "execution(public * ru.fazlyev.hibernateexample.repository.CommentRepository+.*(..))")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        return record(((MethodSignature) joinPoint.getSignature()).getMethod(), joinPoint::proceed);
+    }
+
+    Object record(Method method, Invocation invocation) throws Throwable {
+        final Meters methodMeters = meters.computeIfAbsent(method, this::register);
+        final long statements = StatementCounter.current();
+        final long start = System.nanoTime();
+        Object result = null;
+        try {
+            result = invocation.proceed();
+            return result;
+        } finally {
+            methodMeters.calls.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            methodMeters.statements.record(StatementCounter.current() - statements);
+            final long rows = rows(result);
+            if (rows >= 0) {
+                methodMeters.rows.record(rows);
+            }
+        }
+    }
+
+    private Meters register(Method method) {
+        final Tags tags = Tags.of(REPOSITORY_TAG, repositoryName(method.getDeclaringClass()),
+                METHOD_TAG, method.getName());
+        return new Meters(
+                Timer.builder(CALLS).tags(tags).publishPercentiles(0.5, 0.95, 0.99).publishPercentileHistogram()
+                        .register(registry),
+                DistributionSummary.builder(STATEMENTS).tags(tags).register(registry),
+                DistributionSummary.builder(ROWS).tags(tags).register(registry));
+    }
+
+    private static String repositoryName(Class<?> type) {
+        return REPOSITORIES.stream().filter(repository -> repository.isAssignableFrom(type)).findFirst()
+                .orElse(type).getSimpleName();
+    }
+
+    private static long rows(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        if (result instanceof KeysetPage) {
+            return ((KeysetPage<?>) result).getContent().size();
+        }
+        if (result instanceof Integer) {
+            return (Integer) result;
+        }
+        return result instanceof Stream ? -1 : 1;
+    }
+
+    interface Invocation {
+        Object proceed() throws Throwable;
+    }
+
+    private static class Meters {
+        private final Timer calls;
+        private final DistributionSummary statements;
+        private final DistributionSummary rows;
+
+        private Meters(Timer calls, DistributionSummary statements, DistributionSummary rows) {
+            this.calls = calls;
+            this.statements = statements;
+            this.rows = rows;
+        }
+    }
+}
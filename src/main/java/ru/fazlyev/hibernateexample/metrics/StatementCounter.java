@@ -0,0 +1,19 @@
+package ru.fazlyev.hibernateexample.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+// Counts statements as Hibernate prepares them. Inserts and updates queued by save or update are prepared at flush
+// time, so they are charged to the repository call that triggers the flush, or to none when the flush runs at commit.
+public class StatementCounter implements StatementInspector {
+    private static final ThreadLocal<long[]> STATEMENTS = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.get()[0]++;
+        return sql;
+    }
+
+    static long current() {
+        return STATEMENTS.get()[0];
+    }
+}
@@ -2,11 +2,12 @@ package ru.fazlyev.hibernateexample.repository;
 
 import ru.fazlyev.hibernateexample.domain.Author;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface AuthorRepository {
-    long count();
+    long count(RowCountMode mode);
 
     Author save(Author author);
 
@@ -14,9 +15,17 @@ public interface AuthorRepository {
 
     Author getAuthorByName(String name);
 
+    List<Author> getAuthorsByNames(Collection<String> names);
+
+    long getOrCreateIdByName(String name);
+
+    Author getReferenceById(long id);
+
     List<Author> getAll();
 
-    void update(Author author);
+    int update(Author author, Long expectedVersion);
 
     void deleteById(long id);
+
+    int deleteByIds(Collection<Long> ids);
 }
@@ -1,12 +1,13 @@
 package ru.fazlyev.hibernateexample.repository;
 
+import org.hibernate.jpa.QueryHints;
 import org.springframework.stereotype.Repository;
 import ru.fazlyev.hibernateexample.domain.Author;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
-import javax.persistence.Query;
 import javax.persistence.TypedQuery;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,8 +17,8 @@ public class AuthorRepositoryImpl implements AuthorRepository {
     private EntityManager em;
 
     @Override
-    public long count() {
-        return (long) em.createQuery("select count(a) from Author a").getSingleResult();
+    public long count(RowCountMode mode) {
+        return RowCounts.count(em, "authors", mode);
     }
 
     @Override
@@ -37,30 +38,57 @@ public class AuthorRepositoryImpl implements AuthorRepository {
 
     @Override
     public Author getAuthorByName(String name) {
-        final TypedQuery<Author> query = em.createQuery
-                ("select a from Author a where a.name = :name", Author.class);
+        final TypedQuery<Author> query = em.createNamedQuery(Author.BY_NAME, Author.class);
         query.setParameter("name", name);
+        query.setHint(QueryHints.HINT_READONLY, true);
 
         return query.getSingleResult();
     }
 
+    @Override
+    public List<Author> getAuthorsByNames(Collection<String> names) {
+        final TypedQuery<Author> query = em.createNamedQuery(Author.BY_NAMES, Author.class);
+        query.setParameter("names", names);
+
+        return query.getResultList();
+    }
+
+    @Override
+    public long getOrCreateIdByName(String name) {
+        return NameUpserts.getOrCreateId(em, Author.class, "authors", "authors_seq", name);
+    }
+
+    @Override
+    public Author getReferenceById(long id) {
+        return em.getReference(Author.class, id);
+    }
+
     @Override
     public List<Author> getAll() {
-        return em.createQuery("select a from Author a", Author.class).getResultList();
+        return em.createNamedQuery(Author.ALL, Author.class).setHint(QueryHints.HINT_READONLY, true).getResultList();
     }
 
     @Override
-    public void update(Author author) {
-        final Query query = em.createQuery("update Author a set a.name = :name where a.id = :id");
-        query.setParameter("id", author.getId());
-        query.setParameter("name", author.getName());
-        query.executeUpdate();
+    public int update(Author author, Long expectedVersion) {
+        final Author current = em.find(Author.class, author.getId());
+        if (current == null || expectedVersion != null && current.getVersion() != expectedVersion) {
+            return 0;
+        }
+        em.merge(new Author(author.getId(), author.getName(), current.getVersion()));
+        return 1;
     }
 
     @Override
     public void deleteById(long id) {
-        final Query query = em.createQuery("delete from Author a where a.id = :id");
-        query.setParameter("id", id);
-        query.executeUpdate();
+        final Author author = em.find(Author.class, id);
+        if (author != null) {
+            em.remove(author);
+            em.flush();
+        }
+    }
+
+    @Override
+    public int deleteByIds(Collection<Long> ids) {
+        return BulkDeletes.deleteByIds(em, Author.class, "authors", ids, "books", "comments");
     }
 }
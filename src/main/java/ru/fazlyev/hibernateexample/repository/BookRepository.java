@@ -1,15 +1,23 @@
 package ru.fazlyev.hibernateexample.repository;
 
 import ru.fazlyev.hibernateexample.domain.Book;
+import ru.fazlyev.hibernateexample.domain.Genre;
+import ru.fazlyev.hibernateexample.view.BookView;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface BookRepository {
+    long count(RowCountMode mode);
+
     Book save(Book book);
 
     Optional<Book> getBookById(long id);
 
+    Book getReferenceById(long id);
+
     Book getBookByTitle(String title);
 
     Book getBookByAuthor(String author);
@@ -18,7 +26,43 @@ public interface BookRepository {
 
     Book getBookByComment(String comment);
 
+    BookView getViewByTitle(String title);
+
+    BookView getViewByAuthor(String author);
+
+    BookView getViewByGenre(String genre);
+
     List<Book> getAll();
 
-    void deleteById(long id);
+    List<BookView> getAllViews();
+
+    KeysetPage<Book> getPage(long afterId, int pageSize);
+
+    KeysetPage<BookView> getViewPage(long afterId, int pageSize);
+
+    List<BookView> getViewsByIds(Collection<Long> ids);
+
+    List<BookView> getViewsInRange(long fromId, long toId);
+
+    List<BookView> getViewsByAuthorIds(Collection<Long> authorIds);
+
+    List<BookView> getViewsByGenreIds(Collection<Long> genreIds);
+
+    long getMaxId();
+
+    CountedPage<BookView> getViewsByAuthor(String author, BookSort sort, long afterId, int pageSize,
+                                           PageTotalMode totalMode);
+
+    CountedPage<BookView> getViewsByGenre(String genre, BookSort sort, long afterId, int pageSize,
+                                          PageTotalMode totalMode);
+
+    Stream<Book> streamAll();
+
+    Optional<BookView> update(Book book, Long expectedVersion);
+
+    List<BookView> updateGenreByIds(Collection<Long> ids, Genre genre);
+
+    Optional<BookView> deleteById(long id);
+
+    List<BookView> deleteByIds(Collection<Long> ids);
 }
@@ -1,19 +1,55 @@
 package ru.fazlyev.hibernateexample.repository;
 
+import org.hibernate.jpa.QueryHints;
+import org.hibernate.query.NativeQuery;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 import ru.fazlyev.hibernateexample.domain.Book;
+import ru.fazlyev.hibernateexample.domain.Genre;
+import ru.fazlyev.hibernateexample.view.BookView;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
-import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Repository
 public class BookRepositoryImpl implements BookRepository{
+    private static final String PREVIOUS_VIEWS = "SELECT d.id AS book_id, d.title, a.id AS author_id, " +
+            "a.name AS author_name, g.id AS genre_id, g.name AS genre_name FROM %s d " +
+            "LEFT JOIN authors a ON a.id = d.author_id LEFT JOIN genres g ON g.id = d.genre_id";
+    private static final String POSTGRES_UPDATE_RETURNING = "WITH p AS (SELECT d.id, d.title, d.author_id, " +
+            "d.genre_id FROM books d WHERE d.id IN (:ids)%2$s FOR UPDATE), d AS (UPDATE books b SET %1$s, " +
+            "version = b.version + 1 FROM p WHERE b.id = p.id RETURNING p.id, p.title, p.author_id, p.genre_id) " +
+            String.format(PREVIOUS_VIEWS, "d") + " ORDER BY d.id";
+    private static final String H2_LOCK_PREVIOUS = String.format(PREVIOUS_VIEWS, "books") +
+            " WHERE d.id IN (:ids)%2$s ORDER BY d.id FOR UPDATE";
+    private static final String H2_UPDATE = "UPDATE books SET %s, version = version + 1 WHERE id IN (:ids)";
+    private static final String POSTGRES_DELETE_RETURNING = "WITH d AS (DELETE FROM books WHERE id IN (:ids) " +
+            "RETURNING id, title, author_id, genre_id) " + String.format(PREVIOUS_VIEWS, "d") + " ORDER BY d.id";
+    private static final String H2_DELETE_RETURNING = String.format(PREVIOUS_VIEWS,
+            "OLD TABLE (DELETE FROM books WHERE id IN (:ids))") + " ORDER BY d.id";
+    private static final String SET_BOOK = "title = :title, author_id = :authorId, genre_id = :genreId";
+    private static final String SET_GENRE = "genre_id = :genreId";
+    private static final String IF_VERSION = " AND d.version = :version";
+
     @PersistenceContext
     private EntityManager em;
+    @Value("${app.stream.fetch-size:500}")
+    private int streamFetchSize;
+    @Value("${app.paging.count-cap:1000}")
+    private int countCap;
+
+    @Override
+    public long count(RowCountMode mode) {
+        return RowCounts.count(em, "books", mode);
+    }
 
     @Override
     public Book save(Book book) {
@@ -27,61 +63,292 @@ public class BookRepositoryImpl implements BookRepository{
 
     @Override
     public Optional<Book> getBookById(long id) {
-        return Optional.ofNullable(em.find(Book.class, id));
+        return Optional.ofNullable(em.find(Book.class, id, FetchGraphs.hints(em, Book.FULL_GRAPH)));
+    }
+
+    @Override
+    public Book getReferenceById(long id) {
+        return em.getReference(Book.class, id);
     }
 
     @Override
     public Book getBookByTitle(String title) {
-        final TypedQuery<Book> query = em.createQuery
-                ("select b from Book b join fetch b.genre g join fetch b.author a " +
-                        "where b.title = :title", Book.class);
+        final TypedQuery<Book> query = em.createNamedQuery(Book.BY_TITLE, Book.class);
         query.setParameter("title", title);
+        query.setHint(QueryHints.HINT_READONLY, true);
 
         return query.getSingleResult();
     }
 
     @Override
     public Book getBookByAuthor(String author) {
-        final TypedQuery<Book> query = em.createQuery
-                ("select b from Book b join fetch b.genre g join fetch b.author a " +
-                        "where b.author.name = :author", Book.class);
+        final TypedQuery<Book> query = em.createNamedQuery(Book.BY_AUTHOR_NAME, Book.class);
         query.setParameter("author", author);
+        query.setMaxResults(1);
+        query.setHint(QueryHints.HINT_READONLY, true);
 
         return query.getSingleResult();
     }
 
     @Override
     public Book getBookByGenre(String genre) {
-        final TypedQuery<Book> query = em.createQuery
-                ("select b from Book b join fetch b.genre g join fetch b.author a " +
-                        "where b.genre.name = :genre", Book.class);
+        final TypedQuery<Book> query = em.createNamedQuery(Book.BY_GENRE_NAME, Book.class);
         query.setParameter("genre", genre);
+        query.setMaxResults(1);
+        query.setHint(QueryHints.HINT_READONLY, true);
 
         return query.getSingleResult();
     }
 
     @Override
     public Book getBookByComment(String comment) {
-        final TypedQuery<Book> query = em.createQuery(
-                "select b from Book b join fetch b.genre g join fetch b.author a " +
-                        "left join fetch Comment c on c.book = b " +
-                        "where c.content = :content", Book.class
-        );
+        final TypedQuery<Book> query = em.createNamedQuery(Book.BY_COMMENT, Book.class);
         query.setParameter("content", comment);
+        query.setHint(QueryHints.HINT_READONLY, true);
+
+        return query.getSingleResult();
+    }
+
+    @Override
+    public BookView getViewByTitle(String title) {
+        final TypedQuery<BookView> query = em.createNamedQuery(Book.VIEW_BY_TITLE, BookView.class);
+        query.setParameter("title", title);
+        query.setHint(QueryHints.HINT_READONLY, true);
+
+        return query.getSingleResult();
+    }
+
+    @Override
+    public BookView getViewByAuthor(String author) {
+        final TypedQuery<BookView> query = em.createNamedQuery(Book.VIEW_BY_AUTHOR, BookView.class);
+        query.setParameter("author", author);
+        query.setMaxResults(1);
+        query.setHint(QueryHints.HINT_READONLY, true);
+
+        return query.getSingleResult();
+    }
+
+    @Override
+    public BookView getViewByGenre(String genre) {
+        final TypedQuery<BookView> query = em.createNamedQuery(Book.VIEW_BY_GENRE, BookView.class);
+        query.setParameter("genre", genre);
+        query.setMaxResults(1);
+        query.setHint(QueryHints.HINT_READONLY, true);
 
         return query.getSingleResult();
     }
 
     @Override
     public List<Book> getAll() {
-        return em.createQuery("select b from Book b join fetch b.genre g join fetch b.author a",
-                Book.class).getResultList();
+        return em.createNamedQuery(Book.ALL, Book.class)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .getResultList();
+    }
+
+    @Override
+    public KeysetPage<Book> getPage(long afterId, int pageSize) {
+        final TypedQuery<Book> query = em.createNamedQuery(Book.PAGE, Book.class);
+        query.setParameter("afterId", afterId);
+        query.setMaxResults(pageSize + 1);
+        query.setHint(QueryHints.HINT_READONLY, true);
+
+        return KeysetPage.of(query.getResultList(), pageSize, Book::getId);
+    }
+
+    @Override
+    public List<BookView> getAllViews() {
+        return em.createNamedQuery(Book.ALL_VIEWS, BookView.class).getResultList();
+    }
+
+    @Override
+    public KeysetPage<BookView> getViewPage(long afterId, int pageSize) {
+        final TypedQuery<BookView> query = em.createNamedQuery(Book.VIEW_PAGE, BookView.class);
+        query.setParameter("afterId", afterId);
+        query.setMaxResults(pageSize + 1);
+
+        return KeysetPage.of(query.getResultList(), pageSize, BookView::getId);
+    }
+
+    @Override
+    public List<BookView> getViewsByIds(Collection<Long> ids) {
+        final TypedQuery<BookView> query = em.createNamedQuery(Book.VIEWS_BY_IDS, BookView.class);
+        query.setParameter("ids", ids);
+
+        return query.getResultList();
+    }
+
+    @Override
+    public List<BookView> getViewsInRange(long fromId, long toId) {
+        final TypedQuery<BookView> query = em.createNamedQuery(Book.VIEWS_IN_RANGE, BookView.class);
+        query.setParameter("fromId", fromId);
+        query.setParameter("toId", toId);
+
+        return query.getResultList();
+    }
+
+    @Override
+    public List<BookView> getViewsByAuthorIds(Collection<Long> authorIds) {
+        return getViews(Book.VIEWS_BY_AUTHOR_IDS, authorIds);
+    }
+
+    @Override
+    public List<BookView> getViewsByGenreIds(Collection<Long> genreIds) {
+        return getViews(Book.VIEWS_BY_GENRE_IDS, genreIds);
+    }
+
+    @Override
+    public long getMaxId() {
+        return em.createNamedQuery(Book.MAX_ID, Long.class).getSingleResult();
     }
 
     @Override
-    public void deleteById(long id) {
-        final Query query = em.createQuery("delete from Book b where b.id = :id");
-        query.setParameter("id", id);
-        query.executeUpdate();
+    public CountedPage<BookView> getViewsByAuthor(String author, BookSort sort, long afterId, int pageSize,
+                                                  PageTotalMode totalMode) {
+        return getViewPageWhere(sort.getByAuthorQuery(afterId), Book.CAPPED_IDS_BY_AUTHOR, Book.COUNT_BY_AUTHOR,
+                author, afterId, pageSize, totalMode);
+    }
+
+    @Override
+    public CountedPage<BookView> getViewsByGenre(String genre, BookSort sort, long afterId, int pageSize,
+                                                 PageTotalMode totalMode) {
+        return getViewPageWhere(sort.getByGenreQuery(afterId), Book.CAPPED_IDS_BY_GENRE, Book.COUNT_BY_GENRE,
+                genre, afterId, pageSize, totalMode);
+    }
+
+    @Override
+    public Stream<Book> streamAll() {
+        final TypedQuery<Book> query = em.createNamedQuery(Book.ALL_ORDERED, Book.class);
+
+        return ScrollableStreams.stream(query, streamFetchSize, this::detach);
+    }
+
+    @Override
+    public Optional<BookView> update(Book book, Long expectedVersion) {
+        final Map<String, Object> parameters = Map.of("title", book.getTitle(), "authorId",
+                book.getAuthor().getId(), "genreId", book.getGenre().getId());
+
+        return updateReturningPrevious(List.of(book.getId()), SET_BOOK, parameters, expectedVersion).stream()
+                .findFirst();
+    }
+
+    @Override
+    public List<BookView> updateGenreByIds(Collection<Long> ids, Genre genre) {
+        return updateReturningPrevious(ids, SET_GENRE, Map.of("genreId", genre.getId()), null);
+    }
+
+    @Override
+    public Optional<BookView> deleteById(long id) {
+        return deleteByIds(List.of(id)).stream().findFirst();
+    }
+
+    @Override
+    public List<BookView> deleteByIds(Collection<Long> ids) {
+        final NativeQuery<Object[]> query = nativeQuery(NameUpserts.isPostgres(em) ? POSTGRES_DELETE_RETURNING
+                : H2_DELETE_RETURNING);
+        query.addSynchronizedQuerySpace("comments");
+
+        return previousViews(query, ids);
+    }
+
+    private List<BookView> updateReturningPrevious(Collection<Long> ids, String assignments,
+                                                   Map<String, Object> parameters, Long expectedVersion) {
+        final String version = expectedVersion == null ? "" : IF_VERSION;
+        if (NameUpserts.isPostgres(em)) {
+            final NativeQuery<Object[]> query = nativeQuery(String.format(POSTGRES_UPDATE_RETURNING, assignments,
+                    version));
+            parameters.forEach(query::setParameter);
+            setVersion(query, expectedVersion);
+            return previousViews(query, ids);
+        }
+
+        final NativeQuery<Object[]> lock = nativeQuery(String.format(H2_LOCK_PREVIOUS, assignments, version));
+        setVersion(lock, expectedVersion);
+        final List<BookView> previous = previousViews(lock, ids);
+        final NativeQuery<Object[]> update = nativeQuery(String.format(H2_UPDATE, assignments));
+        parameters.forEach(update::setParameter);
+        for (List<Long> chunk : IdChunks.of(previous.stream().map(BookView::getId).collect(Collectors.toList()))) {
+            update.setParameterList("ids", chunk).executeUpdate();
+        }
+        return previous;
+    }
+
+    @SuppressWarnings("unchecked")
+    private NativeQuery<Object[]> nativeQuery(String sql) {
+        final NativeQuery<Object[]> query = em.createNativeQuery(sql).unwrap(NativeQuery.class);
+        query.addSynchronizedEntityClass(Book.class);
+        return query;
+    }
+
+    private static void setVersion(NativeQuery<Object[]> query, Long expectedVersion) {
+        if (expectedVersion != null) {
+            query.setParameter("version", expectedVersion);
+        }
+    }
+
+    private static List<BookView> previousViews(NativeQuery<Object[]> query, Collection<Long> ids) {
+        final List<BookView> previous = new ArrayList<>();
+        for (List<Long> chunk : IdChunks.of(ids)) {
+            query.setParameterList("ids", chunk).getResultList().stream()
+                    .map(row -> new BookView(((Number) row[0]).longValue(), (String) row[1], longOrZero(row[2]),
+                            (String) row[3], longOrZero(row[4]), (String) row[5]))
+                    .forEach(previous::add);
+        }
+        return previous;
+    }
+
+    private static long longOrZero(Object value) {
+        return value == null ? 0L : ((Number) value).longValue();
+    }
+
+    private List<BookView> getViews(String queryName, Collection<Long> ids) {
+        final TypedQuery<BookView> query = em.createNamedQuery(queryName, BookView.class);
+        final List<BookView> views = new ArrayList<>();
+        for (List<Long> chunk : IdChunks.of(ids)) {
+            views.addAll(query.setParameter("ids", chunk).getResultList());
+        }
+        return views;
+    }
+
+    private void detach(Book book) {
+        em.detach(book);
+        if (book.getAuthor() != null) {
+            em.detach(book.getAuthor());
+        }
+        if (book.getGenre() != null) {
+            em.detach(book.getGenre());
+        }
+    }
+
+    private CountedPage<BookView> getViewPageWhere(String pageQueryName, String cappedQueryName,
+                                                   String countQueryName, String name, long afterId, int pageSize,
+                                                   PageTotalMode totalMode) {
+        final TypedQuery<BookView> pageQuery = em.createNamedQuery(pageQueryName, BookView.class);
+        pageQuery.setParameter("name", name);
+        if (afterId != 0) {
+            pageQuery.setParameter("afterId", afterId);
+        }
+        pageQuery.setMaxResults(pageSize + 1);
+        final KeysetPage<BookView> page = KeysetPage.of(pageQuery.getResultList(), pageSize, BookView::getId);
+
+        if (totalMode == PageTotalMode.NONE) {
+            return counted(page, CountedPage.UNKNOWN_TOTAL, false);
+        }
+        if (!page.hasNext() && afterId == 0) {
+            return counted(page, page.getContent().size(), false);
+        }
+        if (totalMode == PageTotalMode.CAPPED) {
+            final TypedQuery<Long> cappedQuery = em.createNamedQuery(cappedQueryName, Long.class);
+            cappedQuery.setParameter("name", name);
+            cappedQuery.setMaxResults(countCap + 1);
+            final int counted = cappedQuery.getResultList().size();
+            return counted(page, Math.min(counted, countCap), counted > countCap);
+        }
+        final TypedQuery<Long> countQuery = em.createNamedQuery(countQueryName, Long.class);
+        countQuery.setParameter("name", name);
+        return counted(page, countQuery.getSingleResult(), false);
+    }
+
+    private static CountedPage<BookView> counted(KeysetPage<BookView> page, long total, boolean totalCapped) {
+        return new CountedPage<>(page.getContent(), page.getNextCursor(), page.hasNext(), total, totalCapped);
     }
 }
@@ -0,0 +1,30 @@
+package ru.fazlyev.hibernateexample.repository;
+
+import ru.fazlyev.hibernateexample.domain.Book;
+
+public enum BookSort {
+    TITLE(Book.VIEWS_OF_AUTHOR_BY_TITLE, Book.VIEWS_OF_AUTHOR_BY_TITLE_AFTER, Book.VIEWS_OF_GENRE_BY_TITLE,
+            Book.VIEWS_OF_GENRE_BY_TITLE_AFTER),
+    ID(Book.VIEWS_OF_AUTHOR_BY_ID, Book.VIEWS_OF_AUTHOR_BY_ID_AFTER, Book.VIEWS_OF_GENRE_BY_ID,
+            Book.VIEWS_OF_GENRE_BY_ID_AFTER);
+
+    private final String byAuthorQuery;
+    private final String byAuthorAfterQuery;
+    private final String byGenreQuery;
+    private final String byGenreAfterQuery;
+
+    BookSort(String byAuthorQuery, String byAuthorAfterQuery, String byGenreQuery, String byGenreAfterQuery) {
+        this.byAuthorQuery = byAuthorQuery;
+        this.byAuthorAfterQuery = byAuthorAfterQuery;
+        this.byGenreQuery = byGenreQuery;
+        this.byGenreAfterQuery = byGenreAfterQuery;
+    }
+
+    String getByAuthorQuery(long afterId) {
+        return afterId == 0 ? byAuthorQuery : byAuthorAfterQuery;
+    }
+
+    String getByGenreQuery(long afterId) {
+        return afterId == 0 ? byGenreQuery : byGenreAfterQuery;
+    }
+}
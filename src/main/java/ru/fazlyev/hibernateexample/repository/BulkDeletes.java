@@ -0,0 +1,44 @@
+package ru.fazlyev.hibernateexample.repository;
+
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+final class BulkDeletes {
+    private BulkDeletes() {
+    }
+
+    static int deleteByIds(EntityManager em, Class<?> entityClass, String table, Collection<Long> ids,
+                           String... cascadedTables) {
+        em.flush();
+        final NativeQuery<?> query = em.createNativeQuery(String.format("DELETE FROM %s WHERE id IN (:ids)", table))
+                .unwrap(NativeQuery.class);
+        for (String cascadedTable : cascadedTables) {
+            query.addSynchronizedQuerySpace(cascadedTable);
+        }
+        int deleted = 0;
+        for (List<Long> chunk : IdChunks.of(ids)) {
+            deleted += query.setParameterList("ids", chunk).executeUpdate();
+        }
+        evictAfterCommit(em.getEntityManagerFactory().getCache(), entityClass, Set.copyOf(ids));
+        return deleted;
+    }
+
+    private static void evictAfterCommit(Cache cache, Class<?> entityClass, Set<Long> ids) {
+        ids.forEach(id -> cache.evict(entityClass, id));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ids.forEach(id -> cache.evict(entityClass, id));
+                }
+            });
+        }
+    }
+}
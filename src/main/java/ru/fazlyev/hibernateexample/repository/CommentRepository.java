@@ -2,12 +2,15 @@ package ru.fazlyev.hibernateexample.repository;
 
 import ru.fazlyev.hibernateexample.domain.Book;
 import ru.fazlyev.hibernateexample.domain.Comment;
+import ru.fazlyev.hibernateexample.view.CommentView;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface CommentRepository {
-    long count();
+    long count(RowCountMode mode);
 
     Comment save(Comment comment);
 
@@ -17,9 +20,31 @@ public interface CommentRepository {
 
     List<Comment> getCommentsByBook(Book book);
 
+    List<CommentView> getViewsByBookTitle(String title);
+
     List<Comment> getAll();
 
-    void update(Comment comment);
+    KeysetPage<Comment> getPage(long afterId, int pageSize);
+
+    KeysetPage<CommentView> getViewPage(long afterId, int pageSize);
+
+    List<CommentView> getViewsByIds(Collection<Long> ids);
+
+    List<CommentView> getViewsInRange(long fromId, long toId);
+
+    List<Long> getIdsByBookIds(Collection<Long> bookIds);
+
+    List<Long> getIdsByAuthorIds(Collection<Long> authorIds);
+
+    List<Long> getIdsByGenreIds(Collection<Long> genreIds);
+
+    long getMaxId();
+
+    Stream<Comment> streamAll();
+
+    Optional<CommentView> update(Comment comment, Long expectedVersion);
+
+    Optional<CommentView> deleteById(long id);
 
-    void deleteById(long id);
+    List<CommentView> deleteByIds(Collection<Long> ids);
 }
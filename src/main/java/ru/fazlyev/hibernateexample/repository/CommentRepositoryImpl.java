@@ -1,24 +1,50 @@
 package ru.fazlyev.hibernateexample.repository;
 
+import org.hibernate.jpa.QueryHints;
+import org.hibernate.query.NativeQuery;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 import ru.fazlyev.hibernateexample.domain.Book;
 import ru.fazlyev.hibernateexample.domain.Comment;
+import ru.fazlyev.hibernateexample.view.CommentView;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
-import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public class CommentRepositoryImpl implements CommentRepository {
+    private static final String POSTGRES_DELETE_RETURNING = "WITH d AS (DELETE FROM comments WHERE id IN (:ids) " +
+            "RETURNING id, content, book_id) " +
+            "SELECT d.id AS comment_id, d.content, b.id AS book_id, b.title " +
+            "FROM d LEFT JOIN books b ON b.id = d.book_id ORDER BY d.id";
+    private static final String POSTGRES_UPDATE_RETURNING = "WITH p AS (SELECT d.id, d.content, d.book_id " +
+            "FROM comments d WHERE d.id = :id%s FOR UPDATE), d AS (UPDATE comments c SET content = :content, " +
+            "book_id = :bookId, version = c.version + 1 FROM p WHERE c.id = p.id RETURNING p.id, p.content, " +
+            "p.book_id) SELECT d.id AS comment_id, d.content, b.id AS book_id, b.title FROM d " +
+            "LEFT JOIN books b ON b.id = d.book_id";
+    private static final String H2_LOCK_PREVIOUS = "SELECT d.id AS comment_id, d.content, b.id AS book_id, b.title " +
+            "FROM comments d LEFT JOIN books b ON b.id = d.book_id WHERE d.id = :id%s FOR UPDATE";
+    private static final String H2_UPDATE = "UPDATE comments SET content = :content, book_id = :bookId, " +
+            "version = version + 1 WHERE id = :id";
+    private static final String IF_VERSION = " AND d.version = :version";
+    private static final String H2_DELETE_RETURNING = "SELECT d.id AS comment_id, d.content, b.id AS book_id, " +
+            "b.title FROM OLD TABLE (DELETE FROM comments WHERE id IN (:ids)) d LEFT JOIN books b ON b.id = d.book_id " +
+            "ORDER BY d.id";
+
     @PersistenceContext
     private EntityManager em;
+    @Value("${app.stream.fetch-size:500}")
+    private int streamFetchSize;
 
     @Override
-    public long count() {
-        return (long) em.createQuery("select count(c) from Comment c").getSingleResult();
+    public long count(RowCountMode mode) {
+        return RowCounts.count(em, "comments", mode);
     }
 
     @Override
@@ -33,49 +59,179 @@ public class CommentRepositoryImpl implements CommentRepository {
 
     @Override
     public Optional<Comment> getCommentById(long id) {
-        return Optional.ofNullable(em.find(Comment.class, id));
+        return Optional.ofNullable(em.find(Comment.class, id, FetchGraphs.hints(em, Comment.WITH_BOOK_GRAPH)));
     }
 
     @Override
     public Comment getCommentByContent(String content) {
-        final TypedQuery<Comment> query = em.createQuery
-                ("select c from Comment c join fetch c.book b join fetch b.genre g join fetch " +
-                        "b.author a where c.content = :content", Comment.class);
+        final TypedQuery<Comment> query = em.createNamedQuery(Comment.BY_CONTENT, Comment.class);
         query.setParameter("content", content);
+        query.setHint(QueryHints.HINT_READONLY, true);
 
         return query.getSingleResult();
     }
 
     @Override
     public List<Comment> getCommentsByBook(Book book) {
-        final Query query = em.createQuery("select c from Comment c join fetch c.book b " +
-                "join fetch b.genre g join fetch b.author a where c.book = :book");
+        final TypedQuery<Comment> query = em.createNamedQuery(Comment.BY_BOOK, Comment.class);
         query.setParameter("book", book);
+        query.setHint(QueryHints.HINT_READONLY, true);
+
+        return query.getResultList();
+    }
+
+    @Override
+    public List<CommentView> getViewsByBookTitle(String title) {
+        final TypedQuery<CommentView> query = em.createNamedQuery(Comment.VIEWS_BY_BOOK_TITLE, CommentView.class);
+        query.setParameter("title", title);
 
         return query.getResultList();
     }
 
     @Override
     public List<Comment> getAll() {
-        return em.createQuery("select c from Comment c join fetch c.book b join fetch b.genre g " +
-                "join fetch b.author a", Comment.class).getResultList();
+        return em.createNamedQuery(Comment.ALL, Comment.class).setHint(QueryHints.HINT_READONLY, true)
+                .getResultList();
+    }
+
+    @Override
+    public KeysetPage<Comment> getPage(long afterId, int pageSize) {
+        final TypedQuery<Comment> query = em.createNamedQuery(Comment.PAGE, Comment.class);
+        query.setParameter("afterId", afterId);
+        query.setMaxResults(pageSize + 1);
+        query.setHint(QueryHints.HINT_READONLY, true);
+
+        return KeysetPage.of(query.getResultList(), pageSize, Comment::getId);
+    }
+
+    @Override
+    public KeysetPage<CommentView> getViewPage(long afterId, int pageSize) {
+        final TypedQuery<CommentView> query = em.createNamedQuery(Comment.VIEW_PAGE, CommentView.class);
+        query.setParameter("afterId", afterId);
+        query.setMaxResults(pageSize + 1);
+
+        return KeysetPage.of(query.getResultList(), pageSize, CommentView::getId);
+    }
+
+    @Override
+    public List<CommentView> getViewsByIds(Collection<Long> ids) {
+        final TypedQuery<CommentView> query = em.createNamedQuery(Comment.VIEWS_BY_IDS, CommentView.class);
+        query.setParameter("ids", ids);
+
+        return query.getResultList();
+    }
+
+    @Override
+    public List<CommentView> getViewsInRange(long fromId, long toId) {
+        final TypedQuery<CommentView> query = em.createNamedQuery(Comment.VIEWS_IN_RANGE, CommentView.class);
+        query.setParameter("fromId", fromId);
+        query.setParameter("toId", toId);
+
+        return query.getResultList();
+    }
+
+    @Override
+    public List<Long> getIdsByBookIds(Collection<Long> bookIds) {
+        return getIds(Comment.IDS_BY_BOOK_IDS, bookIds);
+    }
+
+    @Override
+    public List<Long> getIdsByAuthorIds(Collection<Long> authorIds) {
+        return getIds(Comment.IDS_BY_AUTHOR_IDS, authorIds);
+    }
+
+    @Override
+    public List<Long> getIdsByGenreIds(Collection<Long> genreIds) {
+        return getIds(Comment.IDS_BY_GENRE_IDS, genreIds);
+    }
+
+    @Override
+    public long getMaxId() {
+        return em.createNamedQuery(Comment.MAX_ID, Long.class).getSingleResult();
     }
 
     @Override
-    public void update(Comment comment) {
-        final Query query = em.createQuery("update Comment c set c.content = :content, c.book = :book " +
-                "where c.id = :id");
+    public Stream<Comment> streamAll() {
+        final TypedQuery<Comment> query = em.createNamedQuery(Comment.ALL_ORDERED, Comment.class);
+
+        return ScrollableStreams.stream(query, streamFetchSize, this::detach);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Optional<CommentView> update(Comment comment, Long expectedVersion) {
+        final boolean postgres = NameUpserts.isPostgres(em);
+        final NativeQuery<Object[]> query = em.createNativeQuery(String.format(postgres ? POSTGRES_UPDATE_RETURNING
+                : H2_LOCK_PREVIOUS, expectedVersion == null ? "" : IF_VERSION)).unwrap(NativeQuery.class);
+        query.addSynchronizedEntityClass(Comment.class);
         query.setParameter("id", comment.getId());
-        query.setParameter("content", comment.getContent());
-        query.setParameter("book", comment.getBook());
+        if (postgres) {
+            query.setParameter("content", comment.getContent());
+            query.setParameter("bookId", comment.getBook().getId());
+        }
+        if (expectedVersion != null) {
+            query.setParameter("version", expectedVersion);
+        }
 
-        query.executeUpdate();
+        final Optional<CommentView> previous = query.getResultList().stream().map(CommentRepositoryImpl::view)
+                .findFirst();
+        if (!postgres && previous.isPresent()) {
+            em.createNativeQuery(H2_UPDATE).unwrap(NativeQuery.class)
+                    .addSynchronizedEntityClass(Comment.class)
+                    .setParameter("id", comment.getId())
+                    .setParameter("content", comment.getContent())
+                    .setParameter("bookId", comment.getBook().getId())
+                    .executeUpdate();
+        }
+        return previous;
+    }
+
+    @Override
+    public Optional<CommentView> deleteById(long id) {
+        return deleteByIds(List.of(id)).stream().findFirst();
     }
 
     @Override
-    public void deleteById(long id) {
-        final Query query = em.createQuery("delete from Comment c where c.id = :id");
-        query.setParameter("id", id);
-        query.executeUpdate();
+    @SuppressWarnings("unchecked")
+    public List<CommentView> deleteByIds(Collection<Long> ids) {
+        final NativeQuery<Object[]> query = em.createNativeQuery(NameUpserts.isPostgres(em) ?
+                POSTGRES_DELETE_RETURNING : H2_DELETE_RETURNING).unwrap(NativeQuery.class);
+        query.addSynchronizedEntityClass(Comment.class);
+
+        final List<CommentView> deleted = new ArrayList<>();
+        for (List<Long> chunk : IdChunks.of(ids)) {
+            query.setParameterList("ids", chunk).getResultList().stream()
+                    .map(CommentRepositoryImpl::view)
+                    .forEach(deleted::add);
+        }
+        return deleted;
+    }
+
+    private List<Long> getIds(String queryName, Collection<Long> ids) {
+        final TypedQuery<Long> query = em.createNamedQuery(queryName, Long.class);
+        final List<Long> commentIds = new ArrayList<>();
+        for (List<Long> chunk : IdChunks.of(ids)) {
+            commentIds.addAll(query.setParameter("ids", chunk).getResultList());
+        }
+        return commentIds;
+    }
+
+    private static CommentView view(Object[] row) {
+        return new CommentView(((Number) row[0]).longValue(), (String) row[1],
+                row[2] == null ? 0L : ((Number) row[2]).longValue(), (String) row[3]);
+    }
+
+    private void detach(Comment comment) {
+        em.detach(comment);
+        final Book book = comment.getBook();
+        if (book != null) {
+            em.detach(book);
+            if (book.getAuthor() != null) {
+                em.detach(book.getAuthor());
+            }
+            if (book.getGenre() != null) {
+                em.detach(book.getGenre());
+            }
+        }
     }
 }
@@ -0,0 +1,47 @@
+package ru.fazlyev.hibernateexample.repository;
+
+import java.util.List;
+import java.util.Objects;
+
+public class CountedPage<T> extends KeysetPage<T> {
+    public static final long UNKNOWN_TOTAL = -1L;
+
+    private final long total;
+    private final boolean totalCapped;
+
+    public CountedPage(List<T> content, long nextCursor, boolean hasNext, long total, boolean totalCapped) {
+        super(content, nextCursor, hasNext);
+        this.total = total;
+        this.totalCapped = totalCapped;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public boolean isTotalCapped() {
+        return totalCapped;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!super.equals(o)) return false;
+        CountedPage<?> that = (CountedPage<?>) o;
+        return total == that.total && totalCapped == that.totalCapped;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), total, totalCapped);
+    }
+
+    @Override
+    public String toString() {
+        if (total == UNKNOWN_TOTAL) {
+            return super.toString();
+        }
+        final String results = totalCapped ? "more than " + total + " results" : total + " results";
+        return hasNext() ? getContent() + "\nNext page after id " + getNextCursor() + ", " + results
+                : getContent() + "\n" + results;
+    }
+}
@@ -0,0 +1,15 @@
+package ru.fazlyev.hibernateexample.repository;
+
+import org.hibernate.graph.GraphSemantic;
+
+import javax.persistence.EntityManager;
+import java.util.Map;
+
+final class FetchGraphs {
+    private FetchGraphs() {
+    }
+
+    static Map<String, Object> hints(EntityManager em, String graph) {
+        return Map.of(GraphSemantic.FETCH.getJpaHintName(), em.getEntityGraph(graph));
+    }
+}
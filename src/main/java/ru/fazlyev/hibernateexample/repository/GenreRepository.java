@@ -2,11 +2,12 @@ package ru.fazlyev.hibernateexample.repository;
 
 import ru.fazlyev.hibernateexample.domain.Genre;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface GenreRepository {
-    long count();
+    long count(RowCountMode mode);
 
     Genre save(Genre genre);
 
@@ -14,9 +15,17 @@ public interface GenreRepository {
 
     Genre getGenreByName(String name);
 
+    List<Genre> getGenresByNames(Collection<String> names);
+
+    long getOrCreateIdByName(String name);
+
+    Genre getReferenceById(long id);
+
     List<Genre> getAll();
 
-    void update(Genre genre);
+    int update(Genre genre, Long expectedVersion);
 
     void deleteById(long id);
+
+    int deleteByIds(Collection<Long> ids);
 }
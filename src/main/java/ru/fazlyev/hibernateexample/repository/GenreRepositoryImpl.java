@@ -1,12 +1,13 @@
 package ru.fazlyev.hibernateexample.repository;
 
+import org.hibernate.jpa.QueryHints;
 import org.springframework.stereotype.Repository;
 import ru.fazlyev.hibernateexample.domain.Genre;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
-import javax.persistence.Query;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,8 +17,8 @@ public class GenreRepositoryImpl implements GenreRepository{
     private EntityManager em;
 
     @Override
-    public long count() {
-        return (long) em.createQuery("select count(g) from Genre g").getSingleResult();
+    public long count(RowCountMode mode) {
+        return RowCounts.count(em, "genres", mode);
     }
 
     @Override
@@ -37,30 +38,57 @@ public class GenreRepositoryImpl implements GenreRepository{
 
     @Override
     public Genre getGenreByName(String name) {
-        final TypedQuery<Genre> query = em.createQuery
-                ("select g from Genre g where g.name = :name", Genre.class);
+        final TypedQuery<Genre> query = em.createNamedQuery(Genre.BY_NAME, Genre.class);
         query.setParameter("name", name);
+        query.setHint(QueryHints.HINT_READONLY, true);
 
         return query.getSingleResult();
     }
 
+    @Override
+    public List<Genre> getGenresByNames(Collection<String> names) {
+        final TypedQuery<Genre> query = em.createNamedQuery(Genre.BY_NAMES, Genre.class);
+        query.setParameter("names", names);
+
+        return query.getResultList();
+    }
+
+    @Override
+    public long getOrCreateIdByName(String name) {
+        return NameUpserts.getOrCreateId(em, Genre.class, "genres", "genres_seq", name);
+    }
+
+    @Override
+    public Genre getReferenceById(long id) {
+        return em.getReference(Genre.class, id);
+    }
+
     @Override
     public List<Genre> getAll() {
-        return em.createQuery("select g from Genre g", Genre.class).getResultList();
+        return em.createNamedQuery(Genre.ALL, Genre.class).setHint(QueryHints.HINT_READONLY, true).getResultList();
     }
 
     @Override
-    public void update(Genre genre) {
-        final Query query = em.createQuery("update Genre g set g.name = :name where g.id = :id");
-        query.setParameter("id", genre.getId());
-        query.setParameter("name", genre.getName());
-        query.executeUpdate();
+    public int update(Genre genre, Long expectedVersion) {
+        final Genre current = em.find(Genre.class, genre.getId());
+        if (current == null || expectedVersion != null && current.getVersion() != expectedVersion) {
+            return 0;
+        }
+        em.merge(new Genre(genre.getId(), genre.getName(), current.getVersion()));
+        return 1;
     }
 
     @Override
     public void deleteById(long id) {
-        final Query query = em.createQuery("delete from Genre g where g.id = :id");
-        query.setParameter("id", id);
-        query.executeUpdate();
+        final Genre genre = em.find(Genre.class, id);
+        if (genre != null) {
+            em.remove(genre);
+            em.flush();
+        }
+    }
+
+    @Override
+    public int deleteByIds(Collection<Long> ids) {
+        return BulkDeletes.deleteByIds(em, Genre.class, "genres", ids, "books", "comments");
     }
 }
@@ -0,0 +1,28 @@
+package ru.fazlyev.hibernateexample.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+final class IdChunks {
+    static final int MAX_CHUNK_SIZE = 1024;
+
+    private IdChunks() {
+    }
+
+    static List<List<Long>> of(Collection<Long> ids) {
+        final List<Long> distinct = ids.stream().distinct().sorted().collect(Collectors.toList());
+        final List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += MAX_CHUNK_SIZE) {
+            final List<Long> chunk = new ArrayList<>(distinct.subList(from,
+                    Math.min(distinct.size(), from + MAX_CHUNK_SIZE)));
+            final long last = chunk.get(chunk.size() - 1);
+            while (Integer.bitCount(chunk.size()) != 1) {
+                chunk.add(last);
+            }
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+}
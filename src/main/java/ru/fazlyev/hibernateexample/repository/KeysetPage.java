@@ -0,0 +1,56 @@
+package ru.fazlyev.hibernateexample.repository;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.ToLongFunction;
+
+public class KeysetPage<T> {
+    private final List<T> content;
+    private final long nextCursor;
+    private final boolean hasNext;
+
+    public KeysetPage(List<T> content, long nextCursor, boolean hasNext) {
+        this.content = List.copyOf(content);
+        this.nextCursor = nextCursor;
+        this.hasNext = hasNext;
+    }
+
+    static <T> KeysetPage<T> of(List<T> rows, int pageSize, ToLongFunction<T> idExtractor) {
+        if (rows.size() > pageSize) {
+            final List<T> content = rows.subList(0, pageSize);
+            return new KeysetPage<>(content, idExtractor.applyAsLong(content.get(pageSize - 1)), true);
+        }
+        final long lastId = rows.isEmpty() ? 0L : idExtractor.applyAsLong(rows.get(rows.size() - 1));
+        return new KeysetPage<>(rows, lastId, false);
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public long getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        KeysetPage<?> page = (KeysetPage<?>) o;
+        return nextCursor == page.nextCursor && hasNext == page.hasNext && content.equals(page.content);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(content, nextCursor, hasNext);
+    }
+
+    @Override
+    public String toString() {
+        return hasNext ? content + "\nNext page after id " + nextCursor : content.toString();
+    }
+}
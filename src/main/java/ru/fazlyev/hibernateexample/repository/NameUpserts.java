@@ -0,0 +1,45 @@
+package ru.fazlyev.hibernateexample.repository;
+
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.NativeQuery;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+final class NameUpserts {
+    private NameUpserts() {
+    }
+
+    static long getOrCreateId(EntityManager em, Class<?> entityClass, String table, String sequence, String name) {
+        final String upsert = isPostgres(em) ?
+                "WITH inserted AS (INSERT INTO %1$s (id, name) SELECT nextval('%2$s'), :name " +
+                        "WHERE NOT EXISTS (SELECT 1 FROM %1$s WHERE name = :name) " +
+                        "ON CONFLICT (name) DO NOTHING RETURNING id) " +
+                        "SELECT id FROM inserted UNION ALL SELECT id FROM %1$s WHERE name = :name" :
+                "SELECT id FROM FINAL TABLE (MERGE INTO %1$s t USING (SELECT CAST(:name AS VARCHAR(255)) AS name) s " +
+                        "ON t.name = s.name WHEN NOT MATCHED THEN INSERT (id, name) " +
+                        "VALUES (NEXT VALUE FOR %2$s, s.name))";
+        List<Number> ids = selectIds(em, entityClass, String.format(upsert, table, sequence), name);
+        if (ids.isEmpty()) {
+            ids = selectIds(em, entityClass, String.format("SELECT id FROM %s WHERE name = :name", table), name);
+        }
+        if (ids.isEmpty()) {
+            throw new IllegalStateException(String.format("Couldn't insert or find %s with name %s", table, name));
+        }
+        return ids.get(0).longValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Number> selectIds(EntityManager em, Class<?> entityClass, String sql, String name) {
+        final NativeQuery<Number> query = em.createNativeQuery(sql).unwrap(NativeQuery.class);
+        query.addSynchronizedEntityClass(entityClass);
+        query.setParameter("name", name);
+        return query.getResultList();
+    }
+
+    static boolean isPostgres(EntityManager em) {
+        return em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class).getJdbcServices()
+                .getDialect() instanceof PostgreSQL81Dialect;
+    }
+}
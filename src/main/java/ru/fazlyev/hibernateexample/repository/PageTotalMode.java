@@ -0,0 +1,7 @@
+package ru.fazlyev.hibernateexample.repository;
+
+public enum PageTotalMode {
+    EXACT,
+    CAPPED,
+    NONE
+}
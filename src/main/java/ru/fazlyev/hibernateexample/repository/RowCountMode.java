@@ -0,0 +1,6 @@
+package ru.fazlyev.hibernateexample.repository;
+
+public enum RowCountMode {
+    EXACT,
+    ESTIMATE
+}
@@ -0,0 +1,36 @@
+package ru.fazlyev.hibernateexample.repository;
+
+import org.hibernate.query.NativeQuery;
+
+import javax.persistence.EntityManager;
+
+final class RowCounts {
+    private static final String EXACT = "SELECT COALESCE(SUM(row_count), 0) FROM row_counts WHERE table_name = :table";
+    private static final String POSTGRES_ESTIMATE = "SELECT CAST(CASE WHEN c.reltuples < 0 THEN -1 " +
+            "WHEN c.relpages = 0 THEN c.reltuples " +
+            "ELSE c.reltuples / c.relpages * (pg_relation_size(c.oid) / CAST(current_setting('block_size') AS INT)) " +
+            "END AS BIGINT) FROM pg_class c WHERE c.oid = to_regclass(:table)";
+    private static final String H2_ESTIMATE = "SELECT row_count_estimate FROM information_schema.tables " +
+            "WHERE table_schema = SCHEMA() AND table_name = UPPER(:table)";
+
+    private RowCounts() {
+    }
+
+    static long count(EntityManager em, String table, RowCountMode mode) {
+        if (mode == RowCountMode.ESTIMATE) {
+            final Number estimate = select(em, NameUpserts.isPostgres(em) ? POSTGRES_ESTIMATE : H2_ESTIMATE, table);
+            if (estimate != null && estimate.longValue() >= 0) {
+                return estimate.longValue();
+            }
+        }
+        return select(em, EXACT, table).longValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Number select(EntityManager em, String sql, String table) {
+        final NativeQuery<Number> query = em.createNativeQuery(sql).unwrap(NativeQuery.class);
+        query.addSynchronizedQuerySpace(table);
+        query.setParameter("table", table);
+        return query.uniqueResult();
+    }
+}
@@ -0,0 +1,43 @@
+package ru.fazlyev.hibernateexample.repository;
+
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.query.Query;
+
+import javax.persistence.TypedQuery;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+final class ScrollableStreams {
+    private ScrollableStreams() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> Stream<T> stream(TypedQuery<T> typedQuery, int fetchSize, Consumer<T> evictor) {
+        final Query<T> query = typedQuery.unwrap(Query.class);
+        query.setFetchSize(fetchSize);
+        query.setReadOnly(true);
+        query.setCacheMode(CacheMode.IGNORE);
+        final ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY);
+
+        final Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                if (!results.next()) {
+                    return false;
+                }
+                final T entity = (T) results.get(0);
+                action.accept(entity);
+                evictor.accept(entity);
+                return true;
+            }
+        };
+
+        return StreamSupport.stream(spliterator, false).onClose(results::close);
+    }
+}
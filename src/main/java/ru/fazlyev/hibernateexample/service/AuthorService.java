@@ -2,6 +2,7 @@ package ru.fazlyev.hibernateexample.service;
 
 import ru.fazlyev.hibernateexample.domain.Author;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface AuthorService {
@@ -15,5 +16,9 @@ public interface AuthorService {
 
     String updateAuthor(long id, String name);
 
+    String updateAuthor(long id, String name, Long expectedVersion);
+
     String deleteAuthorById(long id);
+
+    int deleteAuthorsByIds(Collection<Long> ids);
 }
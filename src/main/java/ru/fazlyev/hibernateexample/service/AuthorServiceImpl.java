@@ -4,15 +4,36 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.fazlyev.hibernateexample.domain.Author;
 import ru.fazlyev.hibernateexample.repository.AuthorRepository;
+import ru.fazlyev.hibernateexample.repository.BookRepository;
+import ru.fazlyev.hibernateexample.repository.CommentRepository;
+import ru.fazlyev.hibernateexample.view.BookView;
 
+import java.util.Collection;
 import java.util.List;
 
 @Service
 public class AuthorServiceImpl implements AuthorService{
     private final AuthorRepository authorRepository;
+    private final BookRepository bookRepository;
+    private final CommentRepository commentRepository;
+    private final NameIdCache nameIdCache;
+    private final BookLookupCache bookLookupCache;
+    private final BookSearchIndex bookSearchIndex;
+    private final CommentSearchIndex commentSearchIndex;
+    private final CatalogStatistics catalogStatistics;
 
-    public AuthorServiceImpl(AuthorRepository authorRepository) {
+    public AuthorServiceImpl(AuthorRepository authorRepository, BookRepository bookRepository,
+                             CommentRepository commentRepository, NameIdCache nameIdCache,
+                             BookLookupCache bookLookupCache, BookSearchIndex bookSearchIndex,
+                             CommentSearchIndex commentSearchIndex, CatalogStatistics catalogStatistics) {
         this.authorRepository = authorRepository;
+        this.bookRepository = bookRepository;
+        this.commentRepository = commentRepository;
+        this.nameIdCache = nameIdCache;
+        this.bookLookupCache = bookLookupCache;
+        this.bookSearchIndex = bookSearchIndex;
+        this.commentSearchIndex = commentSearchIndex;
+        this.catalogStatistics = catalogStatistics;
     }
 
     @Transactional
@@ -45,8 +66,20 @@ public class AuthorServiceImpl implements AuthorService{
     @Transactional
     @Override
     public String updateAuthor(long id, String name) {
+        return updateAuthor(id, name, null);
+    }
+
+    @Transactional
+    @Override
+    public String updateAuthor(long id, String name, Long expectedVersion) {
         final Author author = new Author(id, String.join(" ", name.split(",")));
-        authorRepository.update(author);
+        if (authorRepository.update(author, expectedVersion) == 0) {
+            throw UpdateConflicts.notUpdated("Author", id, expectedVersion,
+                    authorRepository.getAuthorById(id).isPresent());
+        }
+        nameIdCache.evictAuthor(id);
+        bookLookupCache.evictAuthor(id, author.getName());
+        bookSearchIndex.renameAuthor(id, author.getName());
 
         return String.format("%s was updated", author.getName());
     }
@@ -56,8 +89,30 @@ public class AuthorServiceImpl implements AuthorService{
     public String deleteAuthorById(long id) {
         final Author author = authorRepository.getAuthorById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Incorrect id"));
+        final List<Long> commentIds = commentRepository.getIdsByAuthorIds(List.of(id));
+        final List<BookView> books = bookRepository.getViewsByAuthorIds(List.of(id));
         authorRepository.deleteById(id);
+        nameIdCache.evictAuthor(id);
+        bookLookupCache.evictAuthor(id, author.getName());
+        bookSearchIndex.removeAuthor(id);
+        commentSearchIndex.removeAll(commentIds);
+        catalogStatistics.removeAuthors(List.of(id), books);
 
         return String.format("%s was deleted", author.getName());
     }
+
+    @Transactional
+    @Override
+    public int deleteAuthorsByIds(Collection<Long> ids) {
+        final List<Long> commentIds = commentRepository.getIdsByAuthorIds(ids);
+        final List<BookView> books = bookRepository.getViewsByAuthorIds(ids);
+        final int deleted = authorRepository.deleteByIds(ids);
+        nameIdCache.evictAuthors(ids);
+        bookLookupCache.evictAuthors(ids);
+        bookSearchIndex.removeAuthors(ids);
+        commentSearchIndex.removeAll(commentIds);
+        catalogStatistics.removeAuthors(ids, books);
+
+        return deleted;
+    }
 }
@@ -0,0 +1,121 @@
+package ru.fazlyev.hibernateexample.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.fazlyev.hibernateexample.view.BookView;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+@Component
+public class BookLookupCache {
+    private final Cache<LookupKey, BookView> books;
+
+    public BookLookupCache(@Value("${app.cache.book-lookups.maximum-size:10000}") long maximumSize,
+                           @Value("${app.cache.book-lookups.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.books = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(expireAfterWrite)
+                .recordStats().build();
+    }
+
+    public BookView get(Lookup lookup, String value, Function<String, BookView> loader) {
+        return books.get(new LookupKey(lookup, value), key -> loader.apply(key.value));
+    }
+
+    public void evictSaved(String title, String author, String genre) {
+        evict(books -> {
+            books.invalidate(new LookupKey(Lookup.TITLE, title));
+            books.invalidate(new LookupKey(Lookup.AUTHOR, author));
+            books.invalidate(new LookupKey(Lookup.GENRE, genre));
+        });
+    }
+
+    public void evictBook(long id) {
+        evictMatching(book -> book.getId() == id);
+    }
+
+    public void evictBooks(Collection<Long> ids) {
+        final Set<Long> evicted = Set.copyOf(ids);
+        evictMatching(book -> evicted.contains(book.getId()));
+    }
+
+    public void evictAuthors(Collection<Long> ids) {
+        final Set<Long> evicted = Set.copyOf(ids);
+        evictMatching(book -> evicted.contains(book.getAuthorId()));
+    }
+
+    public void evictGenres(Collection<Long> ids) {
+        final Set<Long> evicted = Set.copyOf(ids);
+        evictMatching(book -> evicted.contains(book.getGenreId()));
+    }
+
+    public void evictAuthor(long id, String name) {
+        evictMatching(book -> book.getAuthorId() == id);
+        evict(books -> books.invalidate(new LookupKey(Lookup.AUTHOR, name)));
+    }
+
+    public void evictGenre(long id, String name) {
+        evictMatching(book -> book.getGenreId() == id);
+        evict(books -> books.invalidate(new LookupKey(Lookup.GENRE, name)));
+    }
+
+    public CacheStats getStats() {
+        return books.stats();
+    }
+
+    public long getSize() {
+        return books.estimatedSize();
+    }
+
+    private void evictMatching(Predicate<BookView> predicate) {
+        evict(books -> books.asMap().values().removeIf(predicate));
+    }
+
+    private void evict(Consumer<Cache<LookupKey, BookView>> eviction) {
+        eviction.accept(books);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.accept(books);
+                }
+            });
+        }
+    }
+
+    public enum Lookup {
+        TITLE, AUTHOR, GENRE
+    }
+
+    private static class LookupKey {
+        private final Lookup lookup;
+        private final String value;
+
+        private LookupKey(Lookup lookup, String value) {
+            this.lookup = lookup;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            LookupKey key = (LookupKey) o;
+            return lookup == key.lookup && value.equals(key.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(lookup, value);
+        }
+    }
+}
@@ -0,0 +1,475 @@
+package ru.fazlyev.hibernateexample.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.fazlyev.hibernateexample.view.BookView;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+@Component
+public class BookSearchIndex {
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final int FREQUENT_TRIGRAM_DIVISOR = 64;
+    private static final Comparator<Match> RANKING = Comparator.comparingDouble(Match::getSimilarity).reversed()
+            .thenComparingLong(Match::getBookId);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final double minSimilarity;
+    private Snapshot live = new Snapshot();
+    private Snapshot rebuilding;
+
+    public BookSearchIndex(@Value("${app.search.books.min-similarity:0.3}") double minSimilarity) {
+        this.minSimilarity = minSimilarity;
+    }
+
+    public void index(long id, String title, long authorId, String author, long genreId) {
+        final Entry entry = new Entry(id, authorId, genreId, trigrams(title), trigrams(author));
+        afterCommit(snapshot -> snapshot.put(entry));
+    }
+
+    public void indexAll(Collection<BookView> books) {
+        final List<Entry> entries = books.stream().map(BookSearchIndex::entry).collect(Collectors.toList());
+        afterCommit(snapshot -> entries.forEach(snapshot::put));
+    }
+
+    public void remove(long id) {
+        afterCommit(snapshot -> snapshot.remove(id));
+    }
+
+    public void removeAll(Collection<Long> ids) {
+        final Set<Long> removed = Set.copyOf(ids);
+        afterCommit(snapshot -> removed.forEach(snapshot::remove));
+    }
+
+    public void changeGenre(Collection<Long> ids, long genreId) {
+        final Set<Long> changed = Set.copyOf(ids);
+        afterCommit(snapshot -> changed.forEach(id -> snapshot.changeGenre(id, genreId)));
+    }
+
+    public void renameAuthor(long authorId, String author) {
+        final long[] authorTrigrams = trigrams(author);
+        afterCommit(snapshot -> snapshot.renameAuthor(authorId, authorTrigrams));
+    }
+
+    public void removeAuthor(long authorId) {
+        afterCommit(snapshot -> snapshot.removeBooksOf(snapshot.authorBooks, authorId));
+    }
+
+    public void removeGenre(long genreId) {
+        afterCommit(snapshot -> snapshot.removeBooksOf(snapshot.genreBooks, genreId));
+    }
+
+    public void removeAuthors(Collection<Long> authorIds) {
+        final Set<Long> removed = Set.copyOf(authorIds);
+        afterCommit(snapshot -> removed.forEach(authorId -> snapshot.removeBooksOf(snapshot.authorBooks, authorId)));
+    }
+
+    public void removeGenres(Collection<Long> genreIds) {
+        final Set<Long> removed = Set.copyOf(genreIds);
+        afterCommit(snapshot -> removed.forEach(genreId -> snapshot.removeBooksOf(snapshot.genreBooks, genreId)));
+    }
+
+    public List<Match> search(String query, int limit) {
+        final long[] queryTrigrams = trigrams(query);
+        if (queryTrigrams.length == 0) {
+            return List.of();
+        }
+
+        final int minShared = Math.max(1, (int) Math.ceil(minSimilarity * queryTrigrams.length - 1e-9));
+        final PriorityQueue<Match> top = new PriorityQueue<>(limit + 1, RANKING.reversed());
+        lock.readLock().lock();
+        try {
+            final long frequent = Math.max(1, live.entries.size() / FREQUENT_TRIGRAM_DIVISOR);
+            final Candidates candidates = new Candidates();
+            live.titles.collectCandidates(queryTrigrams, minShared, frequent, candidates);
+            live.authors.collectCandidates(queryTrigrams, minShared, frequent, candidates);
+            for (long id : candidates.distinct()) {
+                final Entry entry = live.entries.get(id);
+                final double similarity = Math.max(
+                        similarity(queryTrigrams, entry.titleTrigrams),
+                        similarity(queryTrigrams, entry.authorTrigrams));
+                if (similarity >= minSimilarity) {
+                    top.add(new Match(id, similarity));
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        final List<Match> matches = new ArrayList<>(top);
+        matches.sort(RANKING);
+        return matches;
+    }
+
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return live.entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Rebuild startRebuild() {
+        final Snapshot next = new Snapshot();
+        lock.writeLock().lock();
+        try {
+            rebuilding = next;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return new Rebuild(next);
+    }
+
+    private void afterCommit(Consumer<Snapshot> change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(change);
+                }
+            });
+        } else {
+            apply(change);
+        }
+    }
+
+    private void apply(Consumer<Snapshot> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(live);
+            if (rebuilding != null) {
+                change.accept(rebuilding);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static double similarity(long[] queryTrigrams, long[] fieldTrigrams) {
+        int shared = 0;
+        for (int i = 0, j = 0; i < queryTrigrams.length && j < fieldTrigrams.length; ) {
+            if (queryTrigrams[i] < fieldTrigrams[j]) {
+                i++;
+            } else if (queryTrigrams[i] > fieldTrigrams[j]) {
+                j++;
+            } else {
+                shared++;
+                i++;
+                j++;
+            }
+        }
+        return shared == 0 ? 0.0 : (double) shared / (queryTrigrams.length + fieldTrigrams.length - shared);
+    }
+
+    private static Entry entry(BookView book) {
+        return new Entry(book.getId(), book.getAuthorId(), book.getGenreId(), trigrams(book.getTitle()),
+                trigrams(book.getAuthor()));
+    }
+
+    static long[] trigrams(String text) {
+        if (text == null) {
+            return new long[0];
+        }
+        final List<Long> trigrams = new ArrayList<>();
+        for (String word : SEPARATORS.split(text.toLowerCase(Locale.ROOT))) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            final String padded = "  " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                trigrams.add(((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16)
+                        | padded.charAt(i + 2));
+            }
+        }
+        return trigrams.stream().mapToLong(Long::longValue).sorted().distinct().toArray();
+    }
+
+    public class Rebuild {
+        private final Snapshot next;
+
+        private Rebuild(Snapshot next) {
+            this.next = next;
+        }
+
+        public void add(BookView book) {
+            final Entry entry = entry(book);
+            lock.writeLock().lock();
+            try {
+                next.put(entry);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        public void publish() {
+            lock.writeLock().lock();
+            try {
+                live = next;
+                rebuilding = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        public void abandon() {
+            lock.writeLock().lock();
+            try {
+                rebuilding = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public static class Match {
+        private final long bookId;
+        private final double similarity;
+
+        private Match(long bookId, double similarity) {
+            this.bookId = bookId;
+            this.similarity = similarity;
+        }
+
+        public long getBookId() {
+            return bookId;
+        }
+
+        public double getSimilarity() {
+            return similarity;
+        }
+    }
+
+    private static class Entry {
+        private final long id;
+        private final long authorId;
+        private long genreId;
+        private final long[] titleTrigrams;
+        private long[] authorTrigrams;
+
+        private Entry(long id, long authorId, long genreId, long[] titleTrigrams, long[] authorTrigrams) {
+            this.id = id;
+            this.authorId = authorId;
+            this.genreId = genreId;
+            this.titleTrigrams = titleTrigrams;
+            this.authorTrigrams = authorTrigrams;
+        }
+    }
+
+    private static class Snapshot {
+        private final LongHashMap<Entry> entries = new LongHashMap<>();
+        private final LongHashMap<PostingList> authorBooks = new LongHashMap<>();
+        private final LongHashMap<PostingList> genreBooks = new LongHashMap<>();
+        private final Field titles = new Field();
+        private final Field authors = new Field();
+
+        private void put(Entry entry) {
+            remove(entry.id);
+            entries.put(entry.id, entry);
+            titles.add(entry.id, entry.titleTrigrams);
+            authors.add(entry.id, entry.authorTrigrams);
+            PostingList.add(authorBooks, entry.authorId, entry.id);
+            PostingList.add(genreBooks, entry.genreId, entry.id);
+        }
+
+        private void remove(long id) {
+            final Entry entry = entries.remove(id);
+            if (entry != null) {
+                titles.remove(id, entry.titleTrigrams);
+                authors.remove(id, entry.authorTrigrams);
+                PostingList.remove(authorBooks, entry.authorId, id);
+                PostingList.remove(genreBooks, entry.genreId, id);
+            }
+        }
+
+        private void removeBooksOf(LongHashMap<PostingList> books, long key) {
+            final PostingList ids = books.get(key);
+            if (ids != null) {
+                for (long id : ids.toArray()) {
+                    remove(id);
+                }
+            }
+        }
+
+        private void changeGenre(long id, long genreId) {
+            final Entry entry = entries.get(id);
+            if (entry != null) {
+                PostingList.remove(genreBooks, entry.genreId, id);
+                entry.genreId = genreId;
+                PostingList.add(genreBooks, genreId, id);
+            }
+        }
+
+        private void renameAuthor(long authorId, long[] authorTrigrams) {
+            final PostingList ids = authorBooks.get(authorId);
+            if (ids == null) {
+                return;
+            }
+            for (long id : ids.toArray()) {
+                final Entry entry = entries.get(id);
+                authors.remove(id, entry.authorTrigrams);
+                entry.authorTrigrams = authorTrigrams;
+                authors.add(id, authorTrigrams);
+            }
+        }
+    }
+
+    private static class Field {
+        private final LongHashMap<PostingList> postings = new LongHashMap<>();
+
+        private void add(long id, long[] trigrams) {
+            for (long trigram : trigrams) {
+                PostingList.add(postings, trigram, id);
+            }
+        }
+
+        private void remove(long id, long[] trigrams) {
+            for (long trigram : trigrams) {
+                PostingList.remove(postings, trigram, id);
+            }
+        }
+
+        private void collectCandidates(long[] trigrams, int minShared, long frequent, Candidates candidates) {
+            final PostingList[] lists = new PostingList[trigrams.length];
+            int present = 0;
+            for (long trigram : trigrams) {
+                final PostingList ids = postings.get(trigram);
+                if (ids != null) {
+                    lists[present++] = ids;
+                }
+            }
+            if (present < minShared) {
+                return;
+            }
+            Arrays.sort(lists, 0, present, Comparator.comparingInt(ids -> ids.size));
+            int skipped = 0;
+            while (skipped < minShared - 1 && lists[present - skipped - 1].size > frequent) {
+                skipped++;
+            }
+            final int required = minShared - skipped;
+            final ShareCounter counter = new ShareCounter(Arrays.stream(lists, 0, present - skipped)
+                    .mapToInt(ids -> ids.size).sum());
+            for (int i = 0; i < present - skipped; i++) {
+                counter.addAll(lists[i]);
+            }
+            counter.forEachAtLeast(required, candidates::add);
+        }
+    }
+
+    private static class ShareCounter {
+        private final long[] ids;
+        private final int[] counts;
+
+        private ShareCounter(int postings) {
+            final int capacity = Integer.highestOneBit(Math.max(postings, 8)) * 4;
+            ids = new long[capacity];
+            counts = new int[capacity];
+        }
+
+        private void addAll(PostingList list) {
+            final int mask = ids.length - 1;
+            for (int p = 0; p < list.size; p++) {
+                final long id = list.ids[p];
+                final long hash = id * 0x9E3779B97F4A7C15L;
+                int i = (int) (hash ^ (hash >>> 32)) & mask;
+                while (counts[i] != 0 && ids[i] != id) {
+                    i = (i + 1) & mask;
+                }
+                ids[i] = id;
+                counts[i]++;
+            }
+        }
+
+        private void forEachAtLeast(int required, LongConsumer action) {
+            for (int i = 0; i < ids.length; i++) {
+                if (counts[i] >= required) {
+                    action.accept(ids[i]);
+                }
+            }
+        }
+    }
+
+    private static class Candidates {
+        private long[] ids = new long[16];
+        private int size;
+
+        private void add(long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        private long[] distinct() {
+            Arrays.sort(ids, 0, size);
+            int distinct = 0;
+            for (int i = 0; i < size; i++) {
+                if (distinct == 0 || ids[distinct - 1] != ids[i]) {
+                    ids[distinct++] = ids[i];
+                }
+            }
+            return Arrays.copyOf(ids, distinct);
+        }
+    }
+
+    private static class PostingList {
+        private long[] ids = new long[4];
+        private int size;
+
+        private static void add(LongHashMap<PostingList> lists, long key, long id) {
+            lists.computeIfAbsent(key, k -> new PostingList()).add(id);
+        }
+
+        private static void remove(LongHashMap<PostingList> lists, long key, long id) {
+            final PostingList ids = lists.get(key);
+            if (ids != null && ids.remove(id) && ids.size == 0) {
+                lists.remove(key);
+            }
+        }
+
+        private void add(long id) {
+            final int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                return;
+            }
+            final int insertion = -position - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, insertion, ids, insertion + 1, size - insertion);
+            ids[insertion] = id;
+            size++;
+        }
+
+        private boolean remove(long id) {
+            final int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+            return true;
+        }
+
+        private long[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package ru.fazlyev.hibernateexample.service;
+
+import ru.fazlyev.hibernateexample.view.BookView;
+
+import java.util.List;
+
+public interface BookSearchService {
+    List<BookView> search(String query, int limit);
+
+    long rebuildIndex();
+}
@@ -0,0 +1,83 @@
+package ru.fazlyev.hibernateexample.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.fazlyev.hibernateexample.repository.BookRepository;
+import ru.fazlyev.hibernateexample.repository.KeysetPage;
+import ru.fazlyev.hibernateexample.view.BookView;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class BookSearchServiceImpl implements BookSearchService {
+    private final BookRepository bookRepository;
+    private final BookSearchIndex searchIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final int rebuildPageSize;
+    private final boolean rebuildOnStartup;
+
+    public BookSearchServiceImpl(BookRepository bookRepository, BookSearchIndex searchIndex,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${app.search.books.rebuild-page-size:10000}") int rebuildPageSize,
+                                 @Value("${app.search.rebuild-on-startup:true}") boolean rebuildOnStartup) {
+        this.bookRepository = bookRepository;
+        this.searchIndex = searchIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.rebuildPageSize = rebuildPageSize;
+        this.rebuildOnStartup = rebuildOnStartup;
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<BookView> search(String query, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        final List<Long> ids = searchIndex.search(query, limit).stream().map(BookSearchIndex.Match::getBookId)
+                .collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        final Map<Long, BookView> books = bookRepository.getViewsByIds(ids).stream()
+                .collect(Collectors.toMap(BookView::getId, Function.identity()));
+        return ids.stream().map(books::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    @Override
+    public long rebuildIndex() {
+        final BookSearchIndex.Rebuild rebuild = searchIndex.startRebuild();
+        try {
+            long indexed = 0;
+            KeysetPage<BookView> page = new KeysetPage<>(List.of(), 0L, true);
+            while (page.hasNext()) {
+                final long afterId = page.getNextCursor();
+                page = transactionTemplate.execute(status -> bookRepository.getViewPage(afterId, rebuildPageSize));
+                page.getContent().forEach(rebuild::add);
+                indexed += page.getContent().size();
+            }
+            rebuild.publish();
+            return indexed;
+        } catch (RuntimeException e) {
+            rebuild.abandon();
+            throw e;
+        }
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void rebuildIndexOnStartup() {
+        if (rebuildOnStartup) {
+            rebuildIndex();
+        }
+    }
+}
@@ -1,7 +1,13 @@
 package ru.fazlyev.hibernateexample.service;
 
 import ru.fazlyev.hibernateexample.domain.Book;
+import ru.fazlyev.hibernateexample.repository.BookSort;
+import ru.fazlyev.hibernateexample.repository.CountedPage;
+import ru.fazlyev.hibernateexample.repository.KeysetPage;
+import ru.fazlyev.hibernateexample.repository.PageTotalMode;
+import ru.fazlyev.hibernateexample.view.BookView;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface BookService {
@@ -9,17 +15,32 @@ public interface BookService {
 
     Book getBookById(long id);
 
-    Book getBookByTitle(String title);
+    BookView getBookByTitle(String title);
 
-    Book getBookByAuthor(String author);
+    BookView getBookByAuthor(String author);
 
-    Book getBookByGenre(String genre);
+    BookView getBookByGenre(String genre);
+
+    CountedPage<BookView> getBooksByAuthor(String author, BookSort sort, long afterId, int pageSize,
+                                           PageTotalMode totalMode);
+
+    CountedPage<BookView> getBooksByGenre(String genre, BookSort sort, long afterId, int pageSize,
+                                          PageTotalMode totalMode);
 
     Book getBookByComment(String comment);
 
-    List<Book> getAll();
+    List<BookView> getAll();
+
+    KeysetPage<BookView> getPage(long afterId, int pageSize);
 
     void updateBook(long id, String title, String authorNamePArameter, String genreNameParameter);
 
+    void updateBook(long id, String title, String authorNameParameter, String genreNameParameter,
+                    Long expectedVersion);
+
+    int moveBooksToGenre(Collection<Long> ids, String genreNameParameter);
+
     void deleteBookById(long id);
+
+    int deleteBooksByIds(Collection<Long> ids);
 }
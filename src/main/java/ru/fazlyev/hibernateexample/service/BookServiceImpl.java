@@ -1,39 +1,62 @@
 package ru.fazlyev.hibernateexample.service;
 
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import ru.fazlyev.hibernateexample.domain.Author;
 import ru.fazlyev.hibernateexample.domain.Book;
-import ru.fazlyev.hibernateexample.domain.Genre;
 import ru.fazlyev.hibernateexample.repository.AuthorRepository;
 import ru.fazlyev.hibernateexample.repository.BookRepository;
+import ru.fazlyev.hibernateexample.repository.BookSort;
+import ru.fazlyev.hibernateexample.repository.CommentRepository;
+import ru.fazlyev.hibernateexample.repository.CountedPage;
 import ru.fazlyev.hibernateexample.repository.GenreRepository;
+import ru.fazlyev.hibernateexample.repository.KeysetPage;
+import ru.fazlyev.hibernateexample.repository.PageTotalMode;
+import ru.fazlyev.hibernateexample.view.BookView;
 
-import javax.persistence.NoResultException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Service
 public class BookServiceImpl implements BookService {
     private final BookRepository bookRepository;
     private final AuthorRepository authorRepository;
     private final GenreRepository genreRepository;
-
-    public BookServiceImpl(BookRepository bookRepository,
-                           AuthorRepository authorRepository, GenreRepository genreRepository) {
+    private final CommentRepository commentRepository;
+    private final NameIdCache nameIdCache;
+    private final BookLookupCache bookLookupCache;
+    private final BookSearchIndex bookSearchIndex;
+    private final CommentSearchIndex commentSearchIndex;
+    private final CatalogStatistics catalogStatistics;
+
+    public BookServiceImpl(BookRepository bookRepository, AuthorRepository authorRepository,
+                           GenreRepository genreRepository, CommentRepository commentRepository,
+                           NameIdCache nameIdCache, BookLookupCache bookLookupCache,
+                           BookSearchIndex bookSearchIndex, CommentSearchIndex commentSearchIndex,
+                           CatalogStatistics catalogStatistics) {
         this.bookRepository = bookRepository;
         this.authorRepository = authorRepository;
         this.genreRepository = genreRepository;
+        this.commentRepository = commentRepository;
+        this.nameIdCache = nameIdCache;
+        this.bookLookupCache = bookLookupCache;
+        this.bookSearchIndex = bookSearchIndex;
+        this.commentSearchIndex = commentSearchIndex;
+        this.catalogStatistics = catalogStatistics;
     }
 
     @Transactional
     @Override
     public void saveBook(String title, String authorNameParameter, String genreNameParameter) {
-        Author author = getAuthor(authorNameParameter);
-        Genre genre = getGenre(genreNameParameter);
-        final Book book = new Book(0L, title, author, genre);
+        final long authorId = getAuthorId(authorNameParameter);
+        final long genreId = getGenreId(genreNameParameter);
+        final Book book = new Book(0L, title, authorRepository.getReferenceById(authorId),
+                genreRepository.getReferenceById(genreId));
 
         bookRepository.save(book);
+        bookLookupCache.evictSaved(title, authorNameParameter, genreNameParameter);
+        bookSearchIndex.index(book.getId(), title, authorId, authorNameParameter, genreId);
+        catalogStatistics.addBook(authorId, genreId);
     }
 
     @Transactional(readOnly = true)
@@ -45,20 +68,36 @@ public class BookServiceImpl implements BookService {
 
     @Transactional(readOnly = true)
     @Override
-    public Book getBookByTitle(String title) {
-        return bookRepository.getBookByTitle(title);
+    public BookView getBookByTitle(String title) {
+        return bookLookupCache.get(BookLookupCache.Lookup.TITLE, title, bookRepository::getViewByTitle);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public BookView getBookByAuthor(String author) {
+        return bookLookupCache.get(BookLookupCache.Lookup.AUTHOR, author, bookRepository::getViewByAuthor);
     }
 
     @Transactional(readOnly = true)
     @Override
-    public Book getBookByAuthor(String author) {
-        return bookRepository.getBookByAuthor(author);
+    public BookView getBookByGenre(String genre) {
+        return bookLookupCache.get(BookLookupCache.Lookup.GENRE, genre, bookRepository::getViewByGenre);
     }
 
     @Transactional(readOnly = true)
     @Override
-    public Book getBookByGenre(String genre) {
-        return bookRepository.getBookByGenre(genre);
+    public CountedPage<BookView> getBooksByAuthor(String author, BookSort sort, long afterId, int pageSize,
+                                                  PageTotalMode totalMode) {
+        checkPage(afterId, pageSize);
+        return bookRepository.getViewsByAuthor(author, sort, afterId, pageSize, totalMode);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public CountedPage<BookView> getBooksByGenre(String genre, BookSort sort, long afterId, int pageSize,
+                                                 PageTotalMode totalMode) {
+        checkPage(afterId, pageSize);
+        return bookRepository.getViewsByGenre(genre, sort, afterId, pageSize, totalMode);
     }
 
     @Transactional(readOnly = true)
@@ -69,43 +108,90 @@ public class BookServiceImpl implements BookService {
 
     @Transactional(readOnly = true)
     @Override
-    public List<Book> getAll() {
-        return bookRepository.getAll();
+    public List<BookView> getAll() {
+        return bookRepository.getAllViews();
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public KeysetPage<BookView> getPage(long afterId, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return bookRepository.getViewPage(afterId, pageSize);
     }
 
     @Transactional
     @Override
     public void updateBook(long id, String title, String authorNameParameter, String genreNameParameter) {
-        Author author = getAuthor(authorNameParameter);
-        Genre genre = getGenre(genreNameParameter);
-        final Book book = new Book(id, title, author, genre);
+        updateBook(id, title, authorNameParameter, genreNameParameter, null);
+    }
 
-        bookRepository.save(book);
+    @Transactional
+    @Override
+    public void updateBook(long id, String title, String authorNameParameter, String genreNameParameter,
+                           Long expectedVersion) {
+        final long authorId = getAuthorId(authorNameParameter);
+        final long genreId = getGenreId(genreNameParameter);
+        final Book book = new Book(id, title, authorRepository.getReferenceById(authorId),
+                genreRepository.getReferenceById(genreId));
+
+        final BookView previous = bookRepository.update(book, expectedVersion).orElseThrow(() ->
+                UpdateConflicts.notUpdated("Book", id, expectedVersion, bookRepository.getBookById(id).isPresent()));
+        bookLookupCache.evictBook(id);
+        bookLookupCache.evictSaved(title, authorNameParameter, genreNameParameter);
+        bookSearchIndex.index(id, title, authorId, authorNameParameter, genreId);
+        catalogStatistics.moveBook(previous, authorId, genreId);
+    }
+
+    @Transactional
+    @Override
+    public int moveBooksToGenre(Collection<Long> ids, String genreNameParameter) {
+        final long genreId = getGenreId(genreNameParameter);
+        final List<BookView> previous = bookRepository.updateGenreByIds(ids, genreRepository.getReferenceById(genreId));
+        bookLookupCache.evictBooks(ids);
+        bookLookupCache.evictGenres(List.of(genreId));
+        bookSearchIndex.changeGenre(ids, genreId);
+        catalogStatistics.changeGenre(previous, genreId);
+
+        return previous.size();
     }
 
     @Transactional
     @Override
     public void deleteBookById(long id) {
-        bookRepository.deleteById(id);
+        final List<Long> commentIds = commentRepository.getIdsByBookIds(List.of(id));
+        final Optional<BookView> deleted = bookRepository.deleteById(id);
+        commentSearchIndex.removeAll(commentIds);
+        bookLookupCache.evictBook(id);
+        bookSearchIndex.remove(id);
+        deleted.ifPresent(book -> catalogStatistics.removeBooks(List.of(book)));
     }
 
-    private Author getAuthor(String authorName) {
-        try {
-            return authorRepository.getAuthorByName(authorName);
-        } catch (EmptyResultDataAccessException | NoResultException e) {
-            Author author = new Author(0L, authorName);
-            authorRepository.save(author);
-            return author;
-        }
+    @Transactional
+    @Override
+    public int deleteBooksByIds(Collection<Long> ids) {
+        final List<Long> commentIds = commentRepository.getIdsByBookIds(ids);
+        final List<BookView> deleted = bookRepository.deleteByIds(ids);
+        commentSearchIndex.removeAll(commentIds);
+        bookLookupCache.evictBooks(ids);
+        bookSearchIndex.removeAll(ids);
+        catalogStatistics.removeBooks(deleted);
+
+        return deleted.size();
     }
 
-    private Genre getGenre(String genreName) {
-        try {
-            return genreRepository.getGenreByName(genreName);
-        } catch (EmptyResultDataAccessException | NoResultException e) {
-            Genre genre = new Genre(0L, genreName);
-            genreRepository.save(genre);
-            return genre;
+    private void checkPage(long afterId, int pageSize) {
+        if (afterId < 0 || pageSize < 1) {
+            throw new IllegalArgumentException("Cursor must not be negative and page size must be positive");
         }
     }
+
+    private long getAuthorId(String authorName) {
+        return nameIdCache.getAuthorId(authorName, authorRepository::getOrCreateIdByName);
+    }
+
+    private long getGenreId(String genreName) {
+        return nameIdCache.getGenreId(genreName, genreRepository::getOrCreateIdByName);
+    }
 }
@@ -0,0 +1,43 @@
+package ru.fazlyev.hibernateexample.service;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.EntityManagerFactory;
+
+@Service
+public class CacheStatisticsServiceImpl implements CacheStatisticsService {
+    private static final String[] ENTITY_REGIONS = {"authors", "genres"};
+
+    private final BookLookupCache bookLookupCache;
+    private final EntityManagerFactory entityManagerFactory;
+
+    public CacheStatisticsServiceImpl(BookLookupCache bookLookupCache, EntityManagerFactory entityManagerFactory) {
+        this.bookLookupCache = bookLookupCache;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public String getStatistics() {
+        final CacheStats lookups = bookLookupCache.getStats();
+        final StringBuilder report = new StringBuilder(String.format(
+                "Book lookups: %d entries, %d hits, %d misses, %d evictions, hit rate %.2f",
+                bookLookupCache.getSize(), lookups.hitCount(), lookups.missCount(), lookups.evictionCount(),
+                lookups.hitRate()));
+
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        for (String region : ENTITY_REGIONS) {
+            if (!statistics.isStatisticsEnabled()) {
+                report.append("\nRegion ").append(region).append(": statistics are disabled");
+                continue;
+            }
+            final CacheRegionStatistics regionStatistics = statistics.getDomainDataRegionStatistics(region);
+            report.append(String.format("\nRegion %s: %d hits, %d misses, %d puts", region,
+                    regionStatistics.getHitCount(), regionStatistics.getMissCount(), regionStatistics.getPutCount()));
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,9 @@
+package ru.fazlyev.hibernateexample.service;
+
+import ru.fazlyev.hibernateexample.importer.ImportReport;
+
+import java.nio.file.Path;
+
+public interface CatalogImportService {
+    ImportReport importCatalog(Path file);
+}
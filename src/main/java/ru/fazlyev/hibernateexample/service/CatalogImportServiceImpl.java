@@ -0,0 +1,340 @@
+package ru.fazlyev.hibernateexample.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.fazlyev.hibernateexample.domain.Author;
+import ru.fazlyev.hibernateexample.domain.Book;
+import ru.fazlyev.hibernateexample.domain.Comment;
+import ru.fazlyev.hibernateexample.domain.Genre;
+import ru.fazlyev.hibernateexample.importer.CatalogFormat;
+import ru.fazlyev.hibernateexample.importer.CatalogImportException;
+import ru.fazlyev.hibernateexample.importer.CatalogRecord;
+import ru.fazlyev.hibernateexample.importer.CatalogRecordParser;
+import ru.fazlyev.hibernateexample.importer.ChunkListener;
+import ru.fazlyev.hibernateexample.importer.ChunkStats;
+import ru.fazlyev.hibernateexample.importer.ImportReport;
+import ru.fazlyev.hibernateexample.importer.PostgresCopyLoader;
+import ru.fazlyev.hibernateexample.repository.AuthorRepository;
+import ru.fazlyev.hibernateexample.repository.BookRepository;
+import ru.fazlyev.hibernateexample.repository.CommentRepository;
+import ru.fazlyev.hibernateexample.repository.GenreRepository;
+import ru.fazlyev.hibernateexample.view.BookView;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Service
+public class CatalogImportServiceImpl implements CatalogImportService {
+    private final AuthorRepository authorRepository;
+    private final GenreRepository genreRepository;
+    private final BookRepository bookRepository;
+    private final CommentRepository commentRepository;
+    private final PostgresCopyLoader copyLoader;
+    private final BookSearchIndex bookSearchIndex;
+    private final CommentSearchIndex commentSearchIndex;
+    private final CatalogStatistics catalogStatistics;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int parserThreads;
+
+    public CatalogImportServiceImpl(AuthorRepository authorRepository, GenreRepository genreRepository,
+                                    BookRepository bookRepository, CommentRepository commentRepository,
+                                    PostgresCopyLoader copyLoader, BookSearchIndex bookSearchIndex,
+                                    CommentSearchIndex commentSearchIndex,
+                                    CatalogStatistics catalogStatistics,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${app.import.chunk-size:1000}") int chunkSize,
+                                    @Value("${app.import.parser-threads:4}") int parserThreads) {
+        this.authorRepository = authorRepository;
+        this.genreRepository = genreRepository;
+        this.bookRepository = bookRepository;
+        this.commentRepository = commentRepository;
+        this.copyLoader = copyLoader;
+        this.bookSearchIndex = bookSearchIndex;
+        this.commentSearchIndex = commentSearchIndex;
+        this.catalogStatistics = catalogStatistics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.parserThreads = parserThreads;
+    }
+
+    @Override
+    public ImportReport importCatalog(Path file) {
+        final CatalogRecordParser parser = new CatalogRecordParser(CatalogFormat.of(file));
+        final Path checkpoint = checkpointOf(file);
+        final long resumeFrom = readCheckpoint(checkpoint);
+        final ImportProgress progress = new ImportProgress(resumeFrom);
+        final boolean useCopy = copyLoader.isAvailable();
+        final long start = System.nanoTime();
+        final ExecutorService executor = Executors.newFixedThreadPool(parserThreads);
+
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            final LineSource source = new LineSource(reader, parser, resumeFrom);
+            List<NumberedLine> lines = source.nextChunk(chunkSize);
+            CompletableFuture<List<CatalogRecord>> parsed = parseAsync(parser, lines, executor);
+            while (!lines.isEmpty()) {
+                final List<NumberedLine> nextLines = source.nextChunk(chunkSize);
+                final CompletableFuture<List<CatalogRecord>> nextParsed = parseAsync(parser, nextLines, executor);
+
+                writeChunk(await(parsed), progress, file, useCopy);
+                writeCheckpoint(checkpoint, progress.committedRecords);
+
+                lines = nextLines;
+                parsed = nextParsed;
+            }
+        } catch (IOException e) {
+            throw new CatalogImportException(String.format("Couldn't read %s after %d records, run the import again " +
+                    "to resume", file, progress.committedRecords), e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        deleteCheckpoint(checkpoint);
+        return new ImportReport(resumeFrom, progress.committedRecords - resumeFrom, progress.comments,
+                progress.authorsCreated, progress.genresCreated, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private CompletableFuture<List<CatalogRecord>> parseAsync(CatalogRecordParser parser, List<NumberedLine> lines,
+                                                              ExecutorService executor) {
+        final int sliceSize = Math.max(1, (lines.size() + parserThreads - 1) / parserThreads);
+        final List<CompletableFuture<List<CatalogRecord>>> slices = new ArrayList<>();
+        for (int from = 0; from < lines.size(); from += sliceSize) {
+            final List<NumberedLine> slice = lines.subList(from, Math.min(lines.size(), from + sliceSize));
+            slices.add(CompletableFuture.supplyAsync(() -> parseSlice(parser, slice), executor));
+        }
+
+        return CompletableFuture.allOf(slices.toArray(CompletableFuture[]::new)).thenApply(ignored -> {
+            final List<CatalogRecord> records = new ArrayList<>(lines.size());
+            slices.forEach(slice -> records.addAll(slice.join()));
+            return records;
+        });
+    }
+
+    private static List<CatalogRecord> parseSlice(CatalogRecordParser parser, List<NumberedLine> slice) {
+        final List<CatalogRecord> records = new ArrayList<>(slice.size());
+        for (NumberedLine line : slice) {
+            try {
+                records.add(parser.parse(line.text));
+            } catch (IllegalArgumentException e) {
+                throw new CatalogImportException("Line " + line.number + ": " + e.getMessage(), e);
+            }
+        }
+        return records;
+    }
+
+    private void writeChunk(List<CatalogRecord> records, ImportProgress progress, Path file, boolean useCopy) {
+        final ChunkStats stats;
+        try {
+            stats = transactionTemplate.execute(status -> {
+                final LoadedRows loaded = new LoadedRows();
+                final ChunkStats chunk = useCopy ? copyLoader.load(records, loaded) :
+                        persistChunk(records, progress, loaded);
+                bookSearchIndex.indexAll(loaded.books);
+                commentSearchIndex.indexAll(loaded.commentContents);
+                catalogStatistics.putAll(loaded.statistics);
+                return chunk;
+            });
+        } catch (RuntimeException e) {
+            throw new CatalogImportException(String.format("Import of %s failed after %d records, run it again " +
+                    "to resume", file, progress.committedRecords), e);
+        }
+        progress.add(stats);
+    }
+
+    private ChunkStats persistChunk(List<CatalogRecord> records, ImportProgress progress, ChunkListener listener) {
+        final long authorsCreated = resolveAuthors(records, progress.authorIds);
+        final long genresCreated = resolveGenres(records, progress.genreIds);
+        long comments = 0;
+        for (CatalogRecord record : records) {
+            final Book book = new Book(0L, record.getTitle(),
+                    authorRepository.getReferenceById(progress.authorIds.get(record.getAuthor())),
+                    genreRepository.getReferenceById(progress.genreIds.get(record.getGenre())));
+            bookRepository.save(book);
+            listener.bookLoaded(new BookView(book.getId(), record.getTitle(), book.getAuthor().getId(),
+                    record.getAuthor(), book.getGenre().getId(), record.getGenre()));
+            for (String content : record.getComments()) {
+                final Comment comment = commentRepository.save(new Comment(0L, content, book));
+                listener.commentLoaded(comment.getId(), book.getId(), content);
+                comments++;
+            }
+        }
+        return new ChunkStats(records.size(), comments, authorsCreated, genresCreated);
+    }
+
+    private long resolveAuthors(List<CatalogRecord> records, Map<String, Long> authorIds) {
+        final Set<String> missing = new HashSet<>();
+        records.forEach(record -> {
+            if (!authorIds.containsKey(record.getAuthor())) {
+                missing.add(record.getAuthor());
+            }
+        });
+        if (missing.isEmpty()) {
+            return 0L;
+        }
+        for (Author author : authorRepository.getAuthorsByNames(missing)) {
+            authorIds.put(author.getName(), author.getId());
+            missing.remove(author.getName());
+        }
+        for (String name : missing) {
+            final Author author = authorRepository.save(new Author(0L, name));
+            authorIds.put(name, author.getId());
+        }
+        return missing.size();
+    }
+
+    private long resolveGenres(List<CatalogRecord> records, Map<String, Long> genreIds) {
+        final Set<String> missing = new HashSet<>();
+        records.forEach(record -> {
+            if (!genreIds.containsKey(record.getGenre())) {
+                missing.add(record.getGenre());
+            }
+        });
+        if (missing.isEmpty()) {
+            return 0L;
+        }
+        for (Genre genre : genreRepository.getGenresByNames(missing)) {
+            genreIds.put(genre.getName(), genre.getId());
+            missing.remove(genre.getName());
+        }
+        for (String name : missing) {
+            final Genre genre = genreRepository.save(new Genre(0L, name));
+            genreIds.put(name, genre.getId());
+        }
+        return missing.size();
+    }
+
+    private static List<CatalogRecord> await(CompletableFuture<List<CatalogRecord>> parsed) {
+        try {
+            return parsed.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static Path checkpointOf(Path file) {
+        return file.resolveSibling(file.getFileName() + ".checkpoint");
+    }
+
+    private static long readCheckpoint(Path checkpoint) {
+        try {
+            return Files.exists(checkpoint) ? Long.parseLong(Files.readString(checkpoint).trim()) : 0L;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NumberFormatException e) {
+            throw new CatalogImportException("Corrupted checkpoint " + checkpoint + ", delete it to start over", e);
+        }
+    }
+
+    private static void writeCheckpoint(Path checkpoint, long committedRecords) {
+        try {
+            Files.writeString(checkpoint, Long.toString(committedRecords));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void deleteCheckpoint(Path checkpoint) {
+        try {
+            Files.deleteIfExists(checkpoint);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static class NumberedLine {
+        private final long number;
+        private final String text;
+
+        private NumberedLine(long number, String text) {
+            this.number = number;
+            this.text = text;
+        }
+    }
+
+    private static class LineSource {
+        private final BufferedReader reader;
+        private final CatalogRecordParser parser;
+        private long recordsToSkip;
+        private long lineNumber;
+
+        private LineSource(BufferedReader reader, CatalogRecordParser parser, long recordsToSkip) {
+            this.reader = reader;
+            this.parser = parser;
+            this.recordsToSkip = recordsToSkip;
+        }
+
+        private List<NumberedLine> nextChunk(int chunkSize) throws IOException {
+            final List<NumberedLine> chunk = new ArrayList<>(chunkSize);
+            String line;
+            while (chunk.size() < chunkSize && (line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || (lineNumber == 1 && parser.isHeader(line))) {
+                    continue;
+                }
+                if (recordsToSkip > 0) {
+                    recordsToSkip--;
+                    continue;
+                }
+                chunk.add(new NumberedLine(lineNumber, line));
+            }
+            return chunk;
+        }
+    }
+
+    private static class LoadedRows implements ChunkListener {
+        private final List<BookView> books = new ArrayList<>();
+        private final Map<Long, String> commentContents = new HashMap<>();
+        private final CatalogStatistics.Batch statistics = new CatalogStatistics.Batch();
+
+        @Override
+        public void bookLoaded(BookView book) {
+            books.add(book);
+            statistics.addBook(book.getAuthorId(), book.getGenreId());
+        }
+
+        @Override
+        public void commentLoaded(long id, long bookId, String content) {
+            commentContents.put(id, content);
+            statistics.addComment(bookId);
+        }
+    }
+
+    private static class ImportProgress {
+        private final Map<String, Long> authorIds = new HashMap<>();
+        private final Map<String, Long> genreIds = new HashMap<>();
+        private long committedRecords;
+        private long comments;
+        private long authorsCreated;
+        private long genresCreated;
+
+        private ImportProgress(long committedRecords) {
+            this.committedRecords = committedRecords;
+        }
+
+        private void add(ChunkStats chunk) {
+            committedRecords += chunk.getRecords();
+            comments += chunk.getComments();
+            authorsCreated += chunk.getAuthorsCreated();
+            genresCreated += chunk.getGenresCreated();
+        }
+    }
+}
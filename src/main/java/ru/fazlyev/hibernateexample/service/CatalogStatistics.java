@@ -0,0 +1,328 @@
+package ru.fazlyev.hibernateexample.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.fazlyev.hibernateexample.view.BookView;
+import ru.fazlyev.hibernateexample.view.CommentView;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+@Component
+public class CatalogStatistics {
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Snapshot live = new Snapshot();
+    private Snapshot rebuilding;
+
+    public void addBook(long authorId, long genreId) {
+        final Batch batch = new Batch();
+        batch.addBook(authorId, genreId);
+        putAll(batch);
+    }
+
+    public void moveBook(BookView previous, long authorId, long genreId) {
+        final Batch batch = new Batch();
+        batch.removeBook(previous.getAuthorId(), previous.getGenreId());
+        batch.addBook(authorId, genreId);
+        putAll(batch);
+    }
+
+    public void changeGenre(Collection<BookView> previous, long genreId) {
+        final Batch batch = new Batch();
+        previous.forEach(book -> {
+            batch.removeBook(book.getAuthorId(), book.getGenreId());
+            batch.addBook(book.getAuthorId(), genreId);
+        });
+        putAll(batch);
+    }
+
+    public void removeBooks(Collection<BookView> removed) {
+        removeBooks(new Batch(), removed);
+    }
+
+    public void removeAuthors(Collection<Long> authorIds, Collection<BookView> books) {
+        final Batch batch = new Batch();
+        authorIds.forEach(batch::dropAuthor);
+        removeBooks(batch, books);
+    }
+
+    public void removeGenres(Collection<Long> genreIds, Collection<BookView> books) {
+        final Batch batch = new Batch();
+        genreIds.forEach(batch::dropGenre);
+        removeBooks(batch, books);
+    }
+
+    public void addComment(long bookId) {
+        final Batch batch = new Batch();
+        batch.addComment(bookId);
+        putAll(batch);
+    }
+
+    public void moveComment(long previousBookId, long bookId) {
+        final Batch batch = new Batch();
+        batch.removeComment(previousBookId);
+        batch.addComment(bookId);
+        putAll(batch);
+    }
+
+    public void removeComments(Collection<CommentView> removed) {
+        final Batch batch = new Batch();
+        removed.forEach(comment -> batch.removeComment(comment.getBookId()));
+        putAll(batch);
+    }
+
+    public void putAll(Batch batch) {
+        final Batch copy = new Batch(batch);
+        afterCommit(copy::applyTo);
+    }
+
+    public List<Count> getTopAuthors(int limit) {
+        return top(snapshot -> snapshot.booksPerAuthor, limit);
+    }
+
+    public List<Count> getTopGenres(int limit) {
+        return top(snapshot -> snapshot.booksPerGenre, limit);
+    }
+
+    public List<Count> getTopBooks(int limit) {
+        return top(snapshot -> snapshot.commentsPerBook, limit);
+    }
+
+    public Rebuild startRebuild() {
+        final Snapshot next = new Snapshot();
+        lock.writeLock().lock();
+        try {
+            rebuilding = next;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return new Rebuild(next);
+    }
+
+    private void removeBooks(Batch batch, Collection<BookView> books) {
+        books.forEach(book -> {
+            batch.removeBook(book.getAuthorId(), book.getGenreId());
+            batch.dropBook(book.getId());
+        });
+        putAll(batch);
+    }
+
+    private List<Count> top(Function<Snapshot, Ranking> ranking, int limit) {
+        lock.readLock().lock();
+        try {
+            return ranking.apply(live).top(limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void afterCommit(Consumer<Snapshot> change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(change);
+                }
+            });
+        } else {
+            apply(change);
+        }
+    }
+
+    private void apply(Consumer<Snapshot> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(live);
+            if (rebuilding != null) {
+                change.accept(rebuilding);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public class Rebuild {
+        private final Snapshot next;
+
+        private Rebuild(Snapshot next) {
+            this.next = next;
+        }
+
+        public void addBook(long authorId, long genreId) {
+            lock.writeLock().lock();
+            try {
+                next.booksPerAuthor.add(authorId, 1);
+                next.booksPerGenre.add(genreId, 1);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        public void addComment(long bookId) {
+            lock.writeLock().lock();
+            try {
+                next.commentsPerBook.add(bookId, 1);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        public void publish() {
+            lock.writeLock().lock();
+            try {
+                live = next;
+                rebuilding = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        public void abandon() {
+            lock.writeLock().lock();
+            try {
+                rebuilding = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public static class Batch {
+        private final Map<Long, Long> booksPerAuthor;
+        private final Map<Long, Long> booksPerGenre;
+        private final Map<Long, Long> commentsPerBook;
+        private final Set<Long> droppedAuthors;
+        private final Set<Long> droppedGenres;
+        private final Set<Long> droppedBooks;
+
+        public Batch() {
+            this.booksPerAuthor = new HashMap<>();
+            this.booksPerGenre = new HashMap<>();
+            this.commentsPerBook = new HashMap<>();
+            this.droppedAuthors = new HashSet<>();
+            this.droppedGenres = new HashSet<>();
+            this.droppedBooks = new HashSet<>();
+        }
+
+        private Batch(Batch batch) {
+            this.booksPerAuthor = Map.copyOf(batch.booksPerAuthor);
+            this.booksPerGenre = Map.copyOf(batch.booksPerGenre);
+            this.commentsPerBook = Map.copyOf(batch.commentsPerBook);
+            this.droppedAuthors = Set.copyOf(batch.droppedAuthors);
+            this.droppedGenres = Set.copyOf(batch.droppedGenres);
+            this.droppedBooks = Set.copyOf(batch.droppedBooks);
+        }
+
+        public void addBook(long authorId, long genreId) {
+            booksPerAuthor.merge(authorId, 1L, Long::sum);
+            booksPerGenre.merge(genreId, 1L, Long::sum);
+        }
+
+        public void addComment(long bookId) {
+            commentsPerBook.merge(bookId, 1L, Long::sum);
+        }
+
+        private void removeBook(long authorId, long genreId) {
+            booksPerAuthor.merge(authorId, -1L, Long::sum);
+            booksPerGenre.merge(genreId, -1L, Long::sum);
+        }
+
+        private void removeComment(long bookId) {
+            commentsPerBook.merge(bookId, -1L, Long::sum);
+        }
+
+        private void dropAuthor(long id) {
+            droppedAuthors.add(id);
+        }
+
+        private void dropGenre(long id) {
+            droppedGenres.add(id);
+        }
+
+        private void dropBook(long id) {
+            droppedBooks.add(id);
+        }
+
+        private void applyTo(Snapshot snapshot) {
+            booksPerAuthor.forEach(snapshot.booksPerAuthor::add);
+            booksPerGenre.forEach(snapshot.booksPerGenre::add);
+            commentsPerBook.forEach(snapshot.commentsPerBook::add);
+            droppedAuthors.forEach(snapshot.booksPerAuthor::remove);
+            droppedGenres.forEach(snapshot.booksPerGenre::remove);
+            droppedBooks.forEach(snapshot.commentsPerBook::remove);
+        }
+    }
+
+    public static class Count {
+        private final long id;
+        private final long count;
+
+        private Count(long id, long count) {
+            this.id = id;
+            this.count = count;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+
+    private static class Snapshot {
+        private final Ranking booksPerAuthor = new Ranking();
+        private final Ranking booksPerGenre = new Ranking();
+        private final Ranking commentsPerBook = new Ranking();
+    }
+
+    private static class Ranking {
+        private static final Comparator<Count> ORDER = Comparator.comparingLong(Count::getCount).reversed()
+                .thenComparingLong(Count::getId);
+
+        private final Map<Long, Count> counts = new HashMap<>();
+        private final TreeSet<Count> order = new TreeSet<>(ORDER);
+
+        private void add(long id, long delta) {
+            final Count current = remove(id);
+            final long count = (current == null ? 0 : current.count) + delta;
+            if (count > 0) {
+                final Count next = new Count(id, count);
+                counts.put(id, next);
+                order.add(next);
+            }
+        }
+
+        private Count remove(long id) {
+            final Count current = counts.remove(id);
+            if (current != null) {
+                order.remove(current);
+            }
+            return current;
+        }
+
+        private List<Count> top(int limit) {
+            final List<Count> top = new ArrayList<>(Math.min(limit, order.size()));
+            for (Count count : order) {
+                if (top.size() == limit) {
+                    break;
+                }
+                top.add(count);
+            }
+            return top;
+        }
+    }
+}
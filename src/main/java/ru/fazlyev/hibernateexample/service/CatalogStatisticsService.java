@@ -0,0 +1,15 @@
+package ru.fazlyev.hibernateexample.service;
+
+import ru.fazlyev.hibernateexample.view.CountView;
+
+import java.util.List;
+
+public interface CatalogStatisticsService {
+    List<CountView> getTopAuthors(int limit);
+
+    List<CountView> getTopGenres(int limit);
+
+    List<CountView> getTopBooks(int limit);
+
+    long rebuild();
+}
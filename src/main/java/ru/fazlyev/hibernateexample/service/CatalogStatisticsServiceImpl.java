@@ -0,0 +1,164 @@
+package ru.fazlyev.hibernateexample.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.fazlyev.hibernateexample.domain.Author;
+import ru.fazlyev.hibernateexample.domain.Genre;
+import ru.fazlyev.hibernateexample.repository.AuthorRepository;
+import ru.fazlyev.hibernateexample.repository.BookRepository;
+import ru.fazlyev.hibernateexample.repository.CommentRepository;
+import ru.fazlyev.hibernateexample.repository.GenreRepository;
+import ru.fazlyev.hibernateexample.view.BookView;
+import ru.fazlyev.hibernateexample.view.CommentView;
+import ru.fazlyev.hibernateexample.view.CountView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+
+@Service
+public class CatalogStatisticsServiceImpl implements CatalogStatisticsService {
+    private final AuthorRepository authorRepository;
+    private final GenreRepository genreRepository;
+    private final BookRepository bookRepository;
+    private final CommentRepository commentRepository;
+    private final CatalogStatistics statistics;
+    private final TransactionTemplate transactionTemplate;
+    private final int rebuildThreads;
+    private final int rebuildRangeSize;
+    private final boolean rebuildOnStartup;
+
+    public CatalogStatisticsServiceImpl(AuthorRepository authorRepository, GenreRepository genreRepository,
+                                        BookRepository bookRepository, CommentRepository commentRepository,
+                                        CatalogStatistics statistics, PlatformTransactionManager transactionManager,
+                                        @Value("${app.statistics.rebuild-threads:4}") int rebuildThreads,
+                                        @Value("${app.statistics.rebuild-range-size:10000}") int rebuildRangeSize,
+                                        @Value("${app.statistics.rebuild-on-startup:true}") boolean rebuildOnStartup) {
+        this.authorRepository = authorRepository;
+        this.genreRepository = genreRepository;
+        this.bookRepository = bookRepository;
+        this.commentRepository = commentRepository;
+        this.statistics = statistics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.rebuildThreads = rebuildThreads;
+        this.rebuildRangeSize = rebuildRangeSize;
+        this.rebuildOnStartup = rebuildOnStartup;
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<CountView> getTopAuthors(int limit) {
+        checkLimit(limit);
+        return named(statistics.getTopAuthors(limit),
+                id -> authorRepository.getAuthorById(id).map(Author::getName));
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<CountView> getTopGenres(int limit) {
+        checkLimit(limit);
+        return named(statistics.getTopGenres(limit),
+                id -> genreRepository.getGenreById(id).map(Genre::getName));
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<CountView> getTopBooks(int limit) {
+        checkLimit(limit);
+        final List<CatalogStatistics.Count> counts = statistics.getTopBooks(limit);
+        if (counts.isEmpty()) {
+            return List.of();
+        }
+        final Map<Long, String> titles = bookRepository.getViewsByIds(counts.stream()
+                .map(CatalogStatistics.Count::getId).collect(Collectors.toList())).stream()
+                .collect(Collectors.toMap(BookView::getId, BookView::getTitle));
+        return named(counts, id -> Optional.ofNullable(titles.get(id)));
+    }
+
+    @Override
+    public long rebuild() {
+        final long maxBookId = transactionTemplate.execute(status -> bookRepository.getMaxId());
+        final long maxCommentId = transactionTemplate.execute(status -> commentRepository.getMaxId());
+        final CatalogStatistics.Rebuild rebuild = statistics.startRebuild();
+        final ExecutorService executor = Executors.newFixedThreadPool(rebuildThreads);
+        try {
+            final List<CompletableFuture<Integer>> ranges = new ArrayList<>();
+            submitRanges(ranges, maxBookId, executor, (start, end) -> countBooks(rebuild, start, end));
+            submitRanges(ranges, maxCommentId, executor, (start, end) -> countComments(rebuild, start, end));
+            final long counted = ranges.stream().mapToLong(CompletableFuture::join).sum();
+            rebuild.publish();
+            return counted;
+        } catch (CompletionException e) {
+            rebuild.abandon();
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void rebuildOnStartup() {
+        if (rebuildOnStartup) {
+            rebuild();
+        }
+    }
+
+    private void submitRanges(List<CompletableFuture<Integer>> ranges, long maxId, ExecutorService executor,
+                              RangeCounter counter) {
+        for (long from = 1; from <= maxId; from += rebuildRangeSize) {
+            final long start = from;
+            final long end = Math.min(maxId + 1, from + rebuildRangeSize);
+            ranges.add(CompletableFuture.supplyAsync(() -> counter.count(start, end), executor));
+        }
+    }
+
+    private int countBooks(CatalogStatistics.Rebuild rebuild, long fromId, long toId) {
+        final List<BookView> books = transactionTemplate.execute(status ->
+                bookRepository.getViewsInRange(fromId, toId));
+        books.forEach(book -> rebuild.addBook(book.getAuthorId(), book.getGenreId()));
+        return books.size();
+    }
+
+    private int countComments(CatalogStatistics.Rebuild rebuild, long fromId, long toId) {
+        final List<CommentView> comments = transactionTemplate.execute(status ->
+                commentRepository.getViewsInRange(fromId, toId));
+        comments.forEach(comment -> rebuild.addComment(comment.getBookId()));
+        return comments.size();
+    }
+
+    private static List<CountView> named(List<CatalogStatistics.Count> counts,
+                                         LongFunction<Optional<String>> names) {
+        final List<CountView> views = new ArrayList<>();
+        for (CatalogStatistics.Count count : counts) {
+            names.apply(count.getId()).ifPresent(name -> views.add(new CountView(count.getId(), name,
+                    count.getCount())));
+        }
+        return views;
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+    }
+
+    private interface RangeCounter {
+        int count(long fromId, long toId);
+    }
+}
@@ -0,0 +1,353 @@
+package ru.fazlyev.hibernateexample.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+@Component
+public class CommentSearchIndex {
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final Comparator<Scored> RANKING = Comparator.comparingDouble((Scored scored) -> scored.score)
+            .reversed().thenComparingLong(scored -> scored.id);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Segment live = new Segment();
+    private Segment rebuilding;
+
+    public void index(long id, String content) {
+        final Document document = document(content);
+        afterCommit(segment -> segment.put(id, document));
+    }
+
+    public void indexAll(Map<Long, String> contents) {
+        final Map<Long, Document> documents = new HashMap<>();
+        contents.forEach((id, content) -> documents.put(id, document(content)));
+        afterCommit(segment -> documents.forEach(segment::put));
+    }
+
+    public void remove(long id) {
+        afterCommit(segment -> segment.remove(id));
+    }
+
+    public void removeAll(Collection<Long> ids) {
+        final List<Long> removed = List.copyOf(ids);
+        afterCommit(segment -> removed.forEach(segment::remove));
+    }
+
+    public Hits search(String query, int offset, int limit) {
+        final int wanted = offset + limit;
+        final PriorityQueue<Scored> top = new PriorityQueue<>(wanted + 1, RANKING.reversed());
+        final int total;
+        lock.readLock().lock();
+        try {
+            final List<Postings> matching = new ArrayList<>();
+            for (String term : termFrequencies(query).keySet()) {
+                final Postings postings = live.postings.get(term);
+                if (postings != null) {
+                    matching.add(postings);
+                }
+            }
+            final ScoreAccumulator scores = new ScoreAccumulator(matching.stream().mapToInt(p -> p.size).sum());
+            final int documentCount = live.documents.size();
+            for (Postings postings : matching) {
+                final double idf = Math.log(1.0 + (double) documentCount / postings.size);
+                for (int i = 0; i < postings.size; i++) {
+                    scores.add(postings.ids[i], (1.0 + Math.log(postings.frequencies[i])) * idf);
+                }
+            }
+            total = scores.size;
+            for (int i = 0; i < scores.ids.length; i++) {
+                if (scores.scores[i] > 0) {
+                    top.add(new Scored(scores.ids[i], scores.scores[i]));
+                    if (top.size() > wanted) {
+                        top.poll();
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        final List<Scored> ranked = new ArrayList<>(top);
+        ranked.sort(RANKING);
+        final List<Long> ids = ranked.stream().skip(offset).map(scored -> scored.id).collect(Collectors.toList());
+        return new Hits(ids, total);
+    }
+
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return live.documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Rebuild startRebuild() {
+        final Segment next = new Segment();
+        next.changed = new LongHashMap<>();
+        lock.writeLock().lock();
+        try {
+            rebuilding = next;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return new Rebuild(next);
+    }
+
+    private void afterCommit(Consumer<Segment> change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(change);
+                }
+            });
+        } else {
+            apply(change);
+        }
+    }
+
+    private void apply(Consumer<Segment> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(live);
+            if (rebuilding != null) {
+                change.accept(rebuilding);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static Document document(String content) {
+        final Map<String, Integer> frequencies = termFrequencies(content);
+        final Document document = new Document(frequencies.size());
+        int i = 0;
+        for (Map.Entry<String, Integer> term : frequencies.entrySet()) {
+            document.terms[i] = term.getKey();
+            document.frequencies[i++] = term.getValue();
+        }
+        return document;
+    }
+
+    static Map<String, Integer> termFrequencies(String text) {
+        final Map<String, Integer> frequencies = new HashMap<>();
+        if (text == null) {
+            return frequencies;
+        }
+        for (String term : SEPARATORS.split(text.toLowerCase(Locale.ROOT))) {
+            if (!term.isEmpty()) {
+                frequencies.merge(term, 1, Integer::sum);
+            }
+        }
+        return frequencies;
+    }
+
+    public class Rebuild {
+        private final Segment next;
+
+        private Rebuild(Segment next) {
+            this.next = next;
+        }
+
+        public void add(long id, String content) {
+            final Document document = document(content);
+            lock.writeLock().lock();
+            try {
+                next.load(id, document);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        public void publish() {
+            lock.writeLock().lock();
+            try {
+                next.changed = null;
+                live = next;
+                rebuilding = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        public void abandon() {
+            lock.writeLock().lock();
+            try {
+                rebuilding = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public static class Hits {
+        private final List<Long> ids;
+        private final long total;
+
+        private Hits(List<Long> ids, long total) {
+            this.ids = ids;
+            this.total = total;
+        }
+
+        public List<Long> getIds() {
+            return ids;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+    }
+
+    private static class Scored {
+        private final long id;
+        private final double score;
+
+        private Scored(long id, double score) {
+            this.id = id;
+            this.score = score;
+        }
+    }
+
+    private static class Document {
+        private final String[] terms;
+        private final int[] frequencies;
+
+        private Document(int size) {
+            this.terms = new String[size];
+            this.frequencies = new int[size];
+        }
+    }
+
+    private static class Segment {
+        private final Map<String, Postings> postings = new HashMap<>();
+        private final LongHashMap<String[]> documents = new LongHashMap<>();
+        private LongHashMap<Boolean> changed;
+
+        private void load(long id, Document document) {
+            if (changed.get(id) == null) {
+                add(id, document);
+            }
+        }
+
+        private void put(long id, Document document) {
+            if (changed != null) {
+                changed.put(id, Boolean.TRUE);
+            }
+            add(id, document);
+        }
+
+        private void add(long id, Document document) {
+            drop(id);
+            final String[] terms = new String[document.terms.length];
+            for (int i = 0; i < terms.length; i++) {
+                final Postings termPostings = postings.computeIfAbsent(document.terms[i], Postings::new);
+                termPostings.put(id, document.frequencies[i]);
+                terms[i] = termPostings.term;
+            }
+            documents.put(id, terms);
+        }
+
+        private void remove(long id) {
+            if (changed != null) {
+                changed.put(id, Boolean.TRUE);
+            }
+            drop(id);
+        }
+
+        private void drop(long id) {
+            final String[] terms = documents.remove(id);
+            if (terms == null) {
+                return;
+            }
+            for (String term : terms) {
+                final Postings termPostings = postings.get(term);
+                if (termPostings != null && termPostings.remove(id) && termPostings.size == 0) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private static class Postings {
+        private final String term;
+        private long[] ids = new long[4];
+        private int[] frequencies = new int[4];
+        private int size;
+
+        private Postings(String term) {
+            this.term = term;
+        }
+
+        private void put(long id, int frequency) {
+            final int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                frequencies[position] = frequency;
+                return;
+            }
+            final int insertion = -position - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            System.arraycopy(ids, insertion, ids, insertion + 1, size - insertion);
+            System.arraycopy(frequencies, insertion, frequencies, insertion + 1, size - insertion);
+            ids[insertion] = id;
+            frequencies[insertion] = frequency;
+            size++;
+        }
+
+        private boolean remove(long id) {
+            final int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            System.arraycopy(frequencies, position + 1, frequencies, position, size - position - 1);
+            size--;
+            return true;
+        }
+    }
+
+    private static class ScoreAccumulator {
+        private final long[] ids;
+        private final double[] scores;
+        private int size;
+
+        private ScoreAccumulator(int postings) {
+            final int capacity = Integer.highestOneBit(Math.max(postings, 8)) * 4;
+            ids = new long[capacity];
+            scores = new double[capacity];
+        }
+
+        private void add(long id, double score) {
+            final int mask = ids.length - 1;
+            final long hash = id * 0x9E3779B97F4A7C15L;
+            int i = (int) (hash ^ (hash >>> 32)) & mask;
+            while (scores[i] > 0 && ids[i] != id) {
+                i = (i + 1) & mask;
+            }
+            if (scores[i] == 0) {
+                ids[i] = id;
+                size++;
+            }
+            scores[i] += score;
+        }
+    }
+}
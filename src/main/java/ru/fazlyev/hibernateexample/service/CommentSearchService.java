@@ -0,0 +1,9 @@
+package ru.fazlyev.hibernateexample.service;
+
+import ru.fazlyev.hibernateexample.view.CommentView;
+
+public interface CommentSearchService {
+    SearchPage<CommentView> search(String query, int page, int pageSize);
+
+    long rebuildIndex();
+}
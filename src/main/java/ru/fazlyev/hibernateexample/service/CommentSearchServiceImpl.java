@@ -0,0 +1,104 @@
+package ru.fazlyev.hibernateexample.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.fazlyev.hibernateexample.repository.CommentRepository;
+import ru.fazlyev.hibernateexample.view.CommentView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class CommentSearchServiceImpl implements CommentSearchService {
+    private final CommentRepository commentRepository;
+    private final CommentSearchIndex searchIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final int rebuildThreads;
+    private final int rebuildRangeSize;
+    private final boolean rebuildOnStartup;
+
+    public CommentSearchServiceImpl(CommentRepository commentRepository, CommentSearchIndex searchIndex,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${app.search.rebuild-threads:4}") int rebuildThreads,
+                                    @Value("${app.search.rebuild-range-size:10000}") int rebuildRangeSize,
+                                    @Value("${app.search.rebuild-on-startup:true}") boolean rebuildOnStartup) {
+        this.commentRepository = commentRepository;
+        this.searchIndex = searchIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.rebuildThreads = rebuildThreads;
+        this.rebuildRangeSize = rebuildRangeSize;
+        this.rebuildOnStartup = rebuildOnStartup;
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public SearchPage<CommentView> search(String query, int page, int pageSize) {
+        if (page < 0 || pageSize < 1) {
+            throw new IllegalArgumentException("Page must not be negative and page size must be positive");
+        }
+        final CommentSearchIndex.Hits hits = searchIndex.search(query, page * pageSize, pageSize);
+        if (hits.getIds().isEmpty()) {
+            return new SearchPage<>(List.of(), page, pageSize, hits.getTotal());
+        }
+
+        final Map<Long, CommentView> views = commentRepository.getViewsByIds(hits.getIds()).stream()
+                .collect(Collectors.toMap(CommentView::getId, Function.identity()));
+        final List<CommentView> content = hits.getIds().stream().map(views::get).filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        return new SearchPage<>(content, page, pageSize, hits.getTotal() - (hits.getIds().size() - content.size()));
+    }
+
+    @Override
+    public long rebuildIndex() {
+        final long maxId = transactionTemplate.execute(status -> commentRepository.getMaxId());
+        final CommentSearchIndex.Rebuild rebuild = searchIndex.startRebuild();
+        final ExecutorService executor = Executors.newFixedThreadPool(rebuildThreads);
+        try {
+            final List<CompletableFuture<Integer>> ranges = new ArrayList<>();
+            for (long from = 1; from <= maxId; from += rebuildRangeSize) {
+                final long start = from;
+                final long end = Math.min(maxId + 1, from + rebuildRangeSize);
+                ranges.add(CompletableFuture.supplyAsync(() -> indexRange(rebuild, start, end), executor));
+            }
+            final long indexed = ranges.stream().mapToLong(CompletableFuture::join).sum();
+            rebuild.publish();
+            return indexed;
+        } catch (CompletionException e) {
+            rebuild.abandon();
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void rebuildIndexOnStartup() {
+        if (rebuildOnStartup) {
+            rebuildIndex();
+        }
+    }
+
+    private int indexRange(CommentSearchIndex.Rebuild rebuild, long fromId, long toId) {
+        final List<CommentView> comments = transactionTemplate.execute(status ->
+                commentRepository.getViewsInRange(fromId, toId));
+        comments.forEach(comment -> rebuild.add(comment.getId(), comment.getContent()));
+        return comments.size();
+    }
+}
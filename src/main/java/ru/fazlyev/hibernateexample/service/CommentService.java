@@ -1,7 +1,10 @@
 package ru.fazlyev.hibernateexample.service;
 
 import ru.fazlyev.hibernateexample.domain.Comment;
+import ru.fazlyev.hibernateexample.repository.KeysetPage;
+import ru.fazlyev.hibernateexample.view.CommentView;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface CommentService {
@@ -11,11 +14,17 @@ public interface CommentService {
 
     Comment getCommentByContent(String content);
 
-    List<Comment> getCommentsByBook(String bookTitle);
+    List<CommentView> getCommentsByBook(String bookTitle);
 
     List<Comment> getAll();
 
+    KeysetPage<CommentView> getPage(long afterId, int pageSize);
+
     String updateComment(long bookId, long commentId, String commentContent);
 
+    String updateComment(long bookId, long commentId, String commentContent, Long expectedVersion);
+
     String deleteById(long id);
+
+    int deleteByIds(Collection<Long> ids);
 }
@@ -2,34 +2,41 @@ package ru.fazlyev.hibernateexample.service;
 
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import ru.fazlyev.hibernateexample.domain.Book;
 import ru.fazlyev.hibernateexample.domain.Comment;
 import ru.fazlyev.hibernateexample.repository.BookRepository;
 import ru.fazlyev.hibernateexample.repository.CommentRepository;
+import ru.fazlyev.hibernateexample.repository.KeysetPage;
+import ru.fazlyev.hibernateexample.view.CommentView;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Service
 public class CommentServiceImpl implements CommentService {
     private final CommentRepository commentRepository;
     private final BookRepository bookRepository;
+    private final CommentSearchIndex searchIndex;
+    private final CatalogStatistics catalogStatistics;
 
-    public CommentServiceImpl(CommentRepository commentRepository, BookRepository bookRepository) {
+    public CommentServiceImpl(CommentRepository commentRepository, BookRepository bookRepository,
+                              CommentSearchIndex searchIndex, CatalogStatistics catalogStatistics) {
         this.commentRepository = commentRepository;
         this.bookRepository = bookRepository;
+        this.searchIndex = searchIndex;
+        this.catalogStatistics = catalogStatistics;
     }
 
     @Transactional
     @Override
     public String saveComment(long bookId, String commentContent) {
-        final Book book = bookRepository.getBookById(bookId).orElseThrow(
-                () -> new IllegalArgumentException("Incorrect id"));
-        final Comment comment = new Comment(0L, commentContent, book);
+        final Comment comment = new Comment(0L, commentContent, bookRepository.getReferenceById(bookId));
 
         commentRepository.save(comment);
-        bookRepository.save(book);
+        searchIndex.index(comment.getId(), commentContent);
+        catalogStatistics.addComment(bookId);
 
-        return "You successfully added a comment to " + book.getTitle();
+        return "You successfully added a comment to book " + bookId;
     }
 
     @Transactional(readOnly = true)
@@ -47,8 +54,8 @@ public class CommentServiceImpl implements CommentService {
 
     @Transactional(readOnly = true)
     @Override
-    public List<Comment> getCommentsByBook(String bookTitle) {
-        return commentRepository.getCommentsByBook(bookRepository.getBookByTitle(bookTitle));
+    public List<CommentView> getCommentsByBook(String bookTitle) {
+        return commentRepository.getViewsByBookTitle(bookTitle);
     }
 
     @Transactional(readOnly = true)
@@ -57,28 +64,54 @@ public class CommentServiceImpl implements CommentService {
         return commentRepository.getAll();
     }
 
+    @Transactional(readOnly = true)
+    @Override
+    public KeysetPage<CommentView> getPage(long afterId, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return commentRepository.getViewPage(afterId, pageSize);
+    }
+
     @Transactional
     @Override
     public String updateComment(long bookId, long commentId, String commentContent) {
-        final Book book = bookRepository.getBookById(bookId).orElseThrow(
-                () -> new IllegalArgumentException("Incorrect id"));
-        final Comment comment = new Comment(commentId, commentContent, book);
+        return updateComment(bookId, commentId, commentContent, null);
+    }
+
+    @Transactional
+    @Override
+    public String updateComment(long bookId, long commentId, String commentContent, Long expectedVersion) {
+        final Comment comment = new Comment(commentId, commentContent, bookRepository.getReferenceById(bookId));
 
-        commentRepository.update(comment);
-        bookRepository.save(book);
+        final CommentView previous = commentRepository.update(comment, expectedVersion).orElseThrow(
+                () -> UpdateConflicts.notUpdated("Comment", commentId, expectedVersion,
+                        commentRepository.getCommentById(commentId).isPresent()));
+        searchIndex.index(commentId, commentContent);
+        catalogStatistics.moveComment(previous.getBookId(), bookId);
 
-        return book.getTitle() + " comment was updated";
+        return "Comment " + commentId + " of book " + bookId + " was updated";
     }
 
     @Transactional
     @Override
     public String deleteById(long id) {
-        final Comment comment = commentRepository.getCommentById(id).orElseThrow(
+        final CommentView comment = commentRepository.deleteById(id).orElseThrow(
                 () -> new IllegalArgumentException("Incorrect comment id"));
+        searchIndex.remove(id);
+        catalogStatistics.removeComments(List.of(comment));
+
+        return comment.getBookTitle() == null ? "Comment was deleted" : comment.getBookTitle() + " comment was deleted";
+    }
 
-        final Book book = bookRepository.getBookByComment(comment.getContent());
-        commentRepository.deleteById(id);
+    @Transactional
+    @Override
+    public int deleteByIds(Collection<Long> ids) {
+        final List<CommentView> comments = commentRepository.deleteByIds(ids);
+        final List<Long> deletedIds = comments.stream().map(CommentView::getId).collect(Collectors.toList());
+        searchIndex.removeAll(deletedIds);
+        catalogStatistics.removeComments(comments);
 
-        return book.getTitle() + " comment was deleted";
+        return comments.size();
     }
 }
@@ -2,6 +2,7 @@ package ru.fazlyev.hibernateexample.service;
 
 import ru.fazlyev.hibernateexample.domain.Genre;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface GenreService {
@@ -15,5 +16,9 @@ public interface GenreService {
 
     String updateGenre(long id, String name);
 
+    String updateGenre(long id, String name, Long expectedVersion);
+
     String deleteGenreById(long id);
+
+    int deleteGenresByIds(Collection<Long> ids);
 }
@@ -4,15 +4,36 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.fazlyev.hibernateexample.domain.Genre;
 import ru.fazlyev.hibernateexample.repository.GenreRepository;
+import ru.fazlyev.hibernateexample.repository.BookRepository;
+import ru.fazlyev.hibernateexample.repository.CommentRepository;
+import ru.fazlyev.hibernateexample.view.BookView;
 
+import java.util.Collection;
 import java.util.List;
 
 @Service
 public class GenreServiceImpl implements GenreService {
     private final GenreRepository genreRepository;
+    private final BookRepository bookRepository;
+    private final CommentRepository commentRepository;
+    private final NameIdCache nameIdCache;
+    private final BookLookupCache bookLookupCache;
+    private final BookSearchIndex bookSearchIndex;
+    private final CommentSearchIndex commentSearchIndex;
+    private final CatalogStatistics catalogStatistics;
 
-    public GenreServiceImpl(GenreRepository genreRepository) {
+    public GenreServiceImpl(GenreRepository genreRepository, BookRepository bookRepository,
+                            CommentRepository commentRepository, NameIdCache nameIdCache,
+                            BookLookupCache bookLookupCache, BookSearchIndex bookSearchIndex,
+                            CommentSearchIndex commentSearchIndex, CatalogStatistics catalogStatistics) {
         this.genreRepository = genreRepository;
+        this.bookRepository = bookRepository;
+        this.commentRepository = commentRepository;
+        this.nameIdCache = nameIdCache;
+        this.bookLookupCache = bookLookupCache;
+        this.bookSearchIndex = bookSearchIndex;
+        this.commentSearchIndex = commentSearchIndex;
+        this.catalogStatistics = catalogStatistics;
     }
 
     @Transactional
@@ -46,8 +67,19 @@ public class GenreServiceImpl implements GenreService {
     @Transactional
     @Override
     public String updateGenre(long id, String name) {
+        return updateGenre(id, name, null);
+    }
+
+    @Transactional
+    @Override
+    public String updateGenre(long id, String name, Long expectedVersion) {
         final Genre genre = new Genre(id, name);
-        genreRepository.update(genre);
+        if (genreRepository.update(genre, expectedVersion) == 0) {
+            throw UpdateConflicts.notUpdated("Genre", id, expectedVersion,
+                    genreRepository.getGenreById(id).isPresent());
+        }
+        nameIdCache.evictGenre(id);
+        bookLookupCache.evictGenre(id, genre.getName());
 
         return String.format("%s was updated", genre.getName());
     }
@@ -57,8 +89,30 @@ public class GenreServiceImpl implements GenreService {
     public String deleteGenreById(long id) {
         final Genre genre = genreRepository.getGenreById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Incorrect id"));
+        final List<Long> commentIds = commentRepository.getIdsByGenreIds(List.of(id));
+        final List<BookView> books = bookRepository.getViewsByGenreIds(List.of(id));
         genreRepository.deleteById(id);
+        nameIdCache.evictGenre(id);
+        bookLookupCache.evictGenre(id, genre.getName());
+        bookSearchIndex.removeGenre(id);
+        commentSearchIndex.removeAll(commentIds);
+        catalogStatistics.removeGenres(List.of(id), books);
 
         return String.format("%s was deleted", genre.getName());
     }
+
+    @Transactional
+    @Override
+    public int deleteGenresByIds(Collection<Long> ids) {
+        final List<Long> commentIds = commentRepository.getIdsByGenreIds(ids);
+        final List<BookView> books = bookRepository.getViewsByGenreIds(ids);
+        final int deleted = genreRepository.deleteByIds(ids);
+        nameIdCache.evictGenres(ids);
+        bookLookupCache.evictGenres(ids);
+        bookSearchIndex.removeGenres(ids);
+        commentSearchIndex.removeAll(commentIds);
+        catalogStatistics.removeGenres(ids, books);
+
+        return deleted;
+    }
 }
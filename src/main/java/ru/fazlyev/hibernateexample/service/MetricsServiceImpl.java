@@ -0,0 +1,58 @@
+package ru.fazlyev.hibernateexample.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.stereotype.Service;
+import ru.fazlyev.hibernateexample.metrics.RepositoryMetrics;
+
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@Service
+public class MetricsServiceImpl implements MetricsService {
+    private final MeterRegistry registry;
+
+    public MetricsServiceImpl(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public String getRepositoryMetrics() {
+        final String report = registry.find(RepositoryMetrics.CALLS).timers().stream()
+                .filter(timer -> timer.count() > 0)
+                .sorted(Comparator.comparingDouble((Timer timer) -> timer.totalTime(TimeUnit.NANOSECONDS)).reversed()
+                        .thenComparing(timer -> timer.getId().getTag(RepositoryMetrics.METHOD_TAG)))
+                .map(this::format)
+                .collect(Collectors.joining("\n"));
+        return report.isEmpty() ? "No repository calls recorded" : report;
+    }
+
+    private String format(Timer timer) {
+        final String repository = timer.getId().getTag(RepositoryMetrics.REPOSITORY_TAG);
+        final String method = timer.getId().getTag(RepositoryMetrics.METHOD_TAG);
+        final StringBuilder line = new StringBuilder(String.format("%s.%s: %d calls, mean %.3f ms", repository,
+                method, timer.count(), timer.mean(TimeUnit.MILLISECONDS)));
+        for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+            line.append(String.format(", p%.0f %.3f ms", percentile.percentile() * 100,
+                    percentile.value(TimeUnit.MILLISECONDS)));
+        }
+        line.append(String.format(", max %.3f ms", timer.max(TimeUnit.MILLISECONDS)));
+        final DistributionSummary statements = summary(RepositoryMetrics.STATEMENTS, repository, method);
+        if (statements != null) {
+            line.append(String.format(", %.1f statements/call", statements.mean()));
+        }
+        final DistributionSummary rows = summary(RepositoryMetrics.ROWS, repository, method);
+        if (rows != null && rows.count() > 0) {
+            line.append(String.format(", %.1f rows/call", rows.mean()));
+        }
+        return line.toString();
+    }
+
+    private DistributionSummary summary(String name, String repository, String method) {
+        return registry.find(name).tag(RepositoryMetrics.REPOSITORY_TAG, repository)
+                .tag(RepositoryMetrics.METHOD_TAG, method).summary();
+    }
+}
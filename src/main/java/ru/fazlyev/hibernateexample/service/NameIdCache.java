@@ -0,0 +1,139 @@
+package ru.fazlyev.hibernateexample.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheWriter;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+
+@Component
+public class NameIdCache {
+    private final NamesById authorNames = new NamesById();
+    private final NamesById genreNames = new NamesById();
+    private final Cache<String, Long> authorIds;
+    private final Cache<String, Long> genreIds;
+
+    public NameIdCache(@Value("${app.cache.name-ids.maximum-size:10000}") long maximumSize) {
+        this.authorIds = Caffeine.newBuilder().maximumSize(maximumSize).writer(authorNames).build();
+        this.genreIds = Caffeine.newBuilder().maximumSize(maximumSize).writer(genreNames).build();
+    }
+
+    public long getAuthorId(String name, ToLongFunction<String> loader) {
+        return getId(authorIds, name, loader);
+    }
+
+    public long getGenreId(String name, ToLongFunction<String> loader) {
+        return getId(genreIds, name, loader);
+    }
+
+    public void evictAuthor(long id) {
+        evict(authorIds, authorNames, Set.of(id));
+    }
+
+    public void evictGenre(long id) {
+        evict(genreIds, genreNames, Set.of(id));
+    }
+
+    public void evictAuthors(Collection<Long> ids) {
+        evict(authorIds, authorNames, Set.copyOf(ids));
+    }
+
+    public void evictGenres(Collection<Long> ids) {
+        evict(genreIds, genreNames, Set.copyOf(ids));
+    }
+
+    private static long getId(Cache<String, Long> cache, String name, ToLongFunction<String> loader) {
+        final Long cached = cache.getIfPresent(name);
+        if (cached != null) {
+            return cached;
+        }
+
+        final Map<String, Long> pending = pendingIds(cache);
+        final Long created = pending.get(name);
+        if (created != null) {
+            return created;
+        }
+        final long id = loader.applyAsLong(name);
+        pending.put(name, id);
+        return id;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void evict(Cache<String, Long> cache, NamesById names, Set<Long> ids) {
+        names.invalidate(cache, ids);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            final Map<String, Long> pending = (Map<String, Long>) TransactionSynchronizationManager.getResource(cache);
+            if (pending != null) {
+                pending.values().removeIf(ids::contains);
+            }
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    names.invalidate(cache, ids);
+                }
+            });
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Long> pendingIds(Cache<String, Long> cache) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return cache.asMap();
+        }
+
+        final Map<String, Long> bound = (Map<String, Long>) TransactionSynchronizationManager.getResource(cache);
+        if (bound != null) {
+            return bound;
+        }
+        final Map<String, Long> pending = new HashMap<>();
+        TransactionSynchronizationManager.bindResource(cache, pending);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.putAll(pending);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResource(cache);
+            }
+        });
+        return pending;
+    }
+
+    private static class NamesById implements CacheWriter<String, Long> {
+        private final Map<Long, Set<String>> names = new ConcurrentHashMap<>();
+
+        @Override
+        public void write(String name, Long id) {
+            names.computeIfAbsent(id, key -> ConcurrentHashMap.newKeySet()).add(name);
+        }
+
+        @Override
+        public void delete(String name, Long id, RemovalCause cause) {
+            names.computeIfPresent(id, (key, current) -> {
+                current.remove(name);
+                return current.isEmpty() ? null : current;
+            });
+        }
+
+        private void invalidate(Cache<String, Long> cache, Set<Long> ids) {
+            for (Long id : ids) {
+                final Set<String> evicted = names.remove(id);
+                if (evicted != null) {
+                    evicted.forEach(name -> cache.asMap().remove(name, id));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package ru.fazlyev.hibernateexample.service;
+
+import ru.fazlyev.hibernateexample.repository.RowCountMode;
+
+public interface RowCountService {
+    String getCounts(RowCountMode mode);
+}
@@ -0,0 +1,33 @@
+package ru.fazlyev.hibernateexample.service;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.fazlyev.hibernateexample.repository.AuthorRepository;
+import ru.fazlyev.hibernateexample.repository.BookRepository;
+import ru.fazlyev.hibernateexample.repository.CommentRepository;
+import ru.fazlyev.hibernateexample.repository.GenreRepository;
+import ru.fazlyev.hibernateexample.repository.RowCountMode;
+
+@Service
+public class RowCountServiceImpl implements RowCountService {
+    private final AuthorRepository authorRepository;
+    private final GenreRepository genreRepository;
+    private final BookRepository bookRepository;
+    private final CommentRepository commentRepository;
+
+    public RowCountServiceImpl(AuthorRepository authorRepository, GenreRepository genreRepository,
+                               BookRepository bookRepository, CommentRepository commentRepository) {
+        this.authorRepository = authorRepository;
+        this.genreRepository = genreRepository;
+        this.bookRepository = bookRepository;
+        this.commentRepository = commentRepository;
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public String getCounts(RowCountMode mode) {
+        return String.format("Authors: %d, genres: %d, books: %d, comments: %d (%s)",
+                authorRepository.count(mode), genreRepository.count(mode), bookRepository.count(mode),
+                commentRepository.count(mode), mode == RowCountMode.EXACT ? "exact" : "estimated");
+    }
+}
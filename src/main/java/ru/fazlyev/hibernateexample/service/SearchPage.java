@@ -0,0 +1,57 @@
+package ru.fazlyev.hibernateexample.service;
+
+import java.util.List;
+import java.util.Objects;
+
+public class SearchPage<T> {
+    private final List<T> content;
+    private final int page;
+    private final int pageSize;
+    private final long totalHits;
+
+    public SearchPage(List<T> content, int page, int pageSize, long totalHits) {
+        this.content = List.copyOf(content);
+        this.page = page;
+        this.pageSize = pageSize;
+        this.totalHits = totalHits;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public long getTotalHits() {
+        return totalHits;
+    }
+
+    public boolean hasNext() {
+        return (long) (page + 1) * pageSize < totalHits;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SearchPage<?> that = (SearchPage<?>) o;
+        return page == that.page && pageSize == that.pageSize && totalHits == that.totalHits
+                && content.equals(that.content);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(content, page, pageSize, totalHits);
+    }
+
+    @Override
+    public String toString() {
+        if (totalHits == 0) {
+            return "No comments found";
+        }
+        final long pages = (totalHits + pageSize - 1) / pageSize;
+        return content + String.format("%nPage %d of %d, %d matches", page + 1, pages, totalHits);
+    }
+}
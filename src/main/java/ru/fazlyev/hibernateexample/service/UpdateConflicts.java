@@ -0,0 +1,16 @@
+package ru.fazlyev.hibernateexample.service;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+
+final class UpdateConflicts {
+    private UpdateConflicts() {
+    }
+
+    static RuntimeException notUpdated(String entity, long id, Long expectedVersion, boolean exists) {
+        if (exists && expectedVersion != null) {
+            return new OptimisticLockingFailureException(String.format(
+                    "%s %d was changed concurrently, version %d is outdated", entity, id, expectedVersion));
+        }
+        return new IllegalArgumentException("Incorrect id");
+    }
+}
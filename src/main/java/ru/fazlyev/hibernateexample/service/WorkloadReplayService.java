@@ -0,0 +1,5 @@
+package ru.fazlyev.hibernateexample.service;
+
+public interface WorkloadReplayService {
+    String replay(int operations, int threads);
+}
@@ -0,0 +1,120 @@
+package ru.fazlyev.hibernateexample.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.fazlyev.hibernateexample.repository.BookRepository;
+import ru.fazlyev.hibernateexample.repository.BookSort;
+import ru.fazlyev.hibernateexample.repository.PageTotalMode;
+import ru.fazlyev.hibernateexample.view.BookView;
+import ru.fazlyev.hibernateexample.view.CommentView;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntConsumer;
+
+@Service
+public class WorkloadReplayServiceImpl implements WorkloadReplayService {
+    private static final String[] DRIVER_SETTINGS = {"prepareThreshold", "preparedStatementCacheQueries",
+            "preparedStatementCacheSizeMiB", "reWriteBatchedInserts"};
+
+    private final BookService bookService;
+    private final CommentService commentService;
+    private final BookRepository bookRepository;
+    private final DataSource dataSource;
+    private final int sampleSize;
+
+    public WorkloadReplayServiceImpl(BookService bookService, CommentService commentService,
+                                     BookRepository bookRepository, DataSource dataSource,
+                                     @Value("${app.replay.sample-size:20000}") int sampleSize) {
+        this.bookService = bookService;
+        this.commentService = commentService;
+        this.bookRepository = bookRepository;
+        this.dataSource = dataSource;
+        this.sampleSize = sampleSize;
+    }
+
+    @Override
+    public String replay(int operations, int threads) {
+        if (operations < 1 || threads < 1) {
+            throw new IllegalArgumentException("Operations and threads must be positive");
+        }
+        final List<BookView> books = bookService.getPage(0L, sampleSize).getContent();
+        final List<CommentView> comments = commentService.getPage(0L, sampleSize).getContent();
+        if (books.isEmpty() || comments.isEmpty()) {
+            return "Nothing to replay";
+        }
+
+        final IntConsumer workload = operation -> {
+            final BookView book = books.get(operation % books.size());
+            switch (operation % 4) {
+                case 0:
+                    bookRepository.getViewByTitle(book.getTitle());
+                    break;
+                case 1:
+                    commentService.getCommentByContent(comments.get(operation % comments.size()).getContent());
+                    break;
+                case 2:
+                    bookService.getBooksByAuthor(book.getAuthor(), BookSort.TITLE, 0, 20, PageTotalMode.NONE);
+                    break;
+                default:
+                    commentService.getCommentsByBook(book.getTitle());
+            }
+        };
+        final long elapsed = run(workload, operations, threads);
+        final double millis = Math.max(elapsed, 1L) / 1_000_000.0;
+        return String.format("Settings: %s%nReplayed %d operations on %d threads in %.0f ms: %.1f operations/s",
+                describe(dataSource), operations, threads, millis, operations * 1000.0 / millis);
+    }
+
+    private static long run(IntConsumer workload, int operations, int threads) {
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final long start = System.nanoTime();
+            final List<CompletableFuture<Void>> workers = new ArrayList<>();
+            for (int worker = 0; worker < threads; worker++) {
+                final int first = worker;
+                workers.add(CompletableFuture.runAsync(() -> {
+                    for (int operation = first; operation < operations; operation += threads) {
+                        workload.accept(operation);
+                    }
+                }, executor));
+            }
+            CompletableFuture.allOf(workers.toArray(new CompletableFuture[0])).join();
+            return System.nanoTime() - start;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    static String describe(DataSource dataSource) {
+        final HikariDataSource pool;
+        try {
+            if (!dataSource.isWrapperFor(HikariDataSource.class)) {
+                return "unpooled data source, driver defaults";
+            }
+            pool = dataSource.unwrap(HikariDataSource.class);
+        } catch (SQLException e) {
+            return "unknown data source";
+        }
+        final Properties properties = pool.getDataSourceProperties();
+        final StringBuilder settings = new StringBuilder("pool ").append(pool.getMaximumPoolSize());
+        for (String setting : DRIVER_SETTINGS) {
+            settings.append(", ").append(setting).append(' ')
+                    .append(properties.getOrDefault(setting, "default"));
+        }
+        return settings.toString();
+    }
+}
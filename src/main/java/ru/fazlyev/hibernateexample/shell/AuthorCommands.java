@@ -35,11 +35,13 @@ public class AuthorCommands {
         return service.getAll().toString();
     }
 
-    @ShellMethod(key = {"au", "aUpdate"}, value = "Update author in repository. Arguments: id, author. " +
-            "Please, put comma instead of space in each argument or simply put the arguments in quotes.")
+    @ShellMethod(key = {"au", "aUpdate"}, value = "Update author in repository. Arguments: id, author, " +
+            "optionally the expected version. Please, put comma instead of space in each argument or simply put " +
+            "the arguments in quotes.")
     public String update(@ShellOption("Id") long id,
-                         @ShellOption("Name") String name) {
-        return service.updateAuthor(id, name);
+                         @ShellOption("Name") String name,
+                         @ShellOption(value = "Version", defaultValue = ShellOption.NULL) Long version) {
+        return service.updateAuthor(id, name, version);
     }
 
     @ShellMethod(key = {"ad", "aDelete"}, value = "Delete author by id")
@@ -47,6 +49,11 @@ public class AuthorCommands {
         return service.deleteAuthorById(id);
     }
 
+    @ShellMethod(key = {"adm", "aDeleteMany"}, value = "Delete authors with their books by ids. Arguments: ids or id ranges separated by commas, e.g. 1-100,205.")
+    public String deleteByIds(@ShellOption("Ids") String ids) {
+        return String.format("%d authors were deleted", service.deleteAuthorsByIds(IdRanges.parse(ids)));
+    }
+
     private String reformatString(String str) {
         return String.join(" ", str.split(","));
     }
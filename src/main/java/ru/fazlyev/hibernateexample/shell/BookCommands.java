@@ -4,14 +4,22 @@ import org.springframework.shell.standard.ShellComponent;
 import org.springframework.shell.standard.ShellMethod;
 import org.springframework.shell.standard.ShellOption;
 import ru.fazlyev.hibernateexample.domain.Book;
+import ru.fazlyev.hibernateexample.repository.BookSort;
+import ru.fazlyev.hibernateexample.repository.PageTotalMode;
+import ru.fazlyev.hibernateexample.service.BookSearchService;
 import ru.fazlyev.hibernateexample.service.BookService;
+import ru.fazlyev.hibernateexample.view.BookView;
+
+import java.util.List;
 
 @ShellComponent
 public class BookCommands {
     private final BookService bookService;
+    private final BookSearchService bookSearchService;
 
-    public BookCommands(BookService bookService) {
+    public BookCommands(BookService bookService, BookSearchService bookSearchService) {
         this.bookService = bookService;
+        this.bookSearchService = bookSearchService;
     }
 
     @ShellMethod(key = {"bi", "bInsert"}, value = "Insert book. Arguments: title, author, genre. " +
@@ -48,28 +56,77 @@ public class BookCommands {
         return bookService.getBookByGenre(reformatString(genre)).toString();
     }
 
+    @ShellMethod(key = {"bsba", "booksByAuthor"}, value = "Get books of author page by page. Arguments: author, " +
+            "id to start after, page size, sort (TITLE or ID), total (EXACT, CAPPED or NONE). " +
+            "Please, put comma instead of space in each argument or simply put the arguments in quotes.")
+    public String getBooksByAuthor(@ShellOption("Author") String author,
+                                   @ShellOption(value = "After", defaultValue = "0") long afterId,
+                                   @ShellOption(value = "Size", defaultValue = "20") int pageSize,
+                                   @ShellOption(value = "Sort", defaultValue = "TITLE") BookSort sort,
+                                   @ShellOption(value = "Total", defaultValue = "CAPPED") PageTotalMode totalMode) {
+        return bookService.getBooksByAuthor(reformatString(author), sort, afterId, pageSize, totalMode).toString();
+    }
+
+    @ShellMethod(key = {"bsbg", "booksByGenre"}, value = "Get books of genre page by page. Arguments: genre, " +
+            "id to start after, page size, sort (TITLE or ID), total (EXACT, CAPPED or NONE). " +
+            "Please, put comma instead of space in each argument or simply put the arguments in quotes.")
+    public String getBooksByGenre(@ShellOption("Genre") String genre,
+                                  @ShellOption(value = "After", defaultValue = "0") long afterId,
+                                  @ShellOption(value = "Size", defaultValue = "20") int pageSize,
+                                  @ShellOption(value = "Sort", defaultValue = "TITLE") BookSort sort,
+                                  @ShellOption(value = "Total", defaultValue = "CAPPED") PageTotalMode totalMode) {
+        return bookService.getBooksByGenre(reformatString(genre), sort, afterId, pageSize, totalMode).toString();
+    }
+
     @ShellMethod(key = {"bbc", "bByComment", "bookByComment"}, value = "Get book by comment. " +
             "Please, put comma instead of space in each argument or simply put the arguments in quotes.")
     public String getBookByComment(@ShellOption("Comment") String commentContent) {
         return bookService.getBookByComment(reformatString(commentContent)).toString();
     }
 
-    @ShellMethod(key = {"bga", "bGetAll"}, value = "Get all books")
-    public String getAll() {
-        return bookService.getAll().toString();
+    @ShellMethod(key = {"bga", "bGetAll"}, value = "Get all books page by page. Arguments: id to start after, " +
+            "page size.")
+    public String getAll(@ShellOption(value = "After", defaultValue = "0") long afterId,
+                         @ShellOption(value = "Size", defaultValue = "20") int pageSize) {
+        return bookService.getPage(afterId, pageSize).toString();
     }
 
-    @ShellMethod(key = {"bu", "bUpdate"}, value = "Update book in repository. Arguments: id, title, author, genre. " +
-            "Please, put comma instead of space in each argument or simply put the arguments in quotes.")
+    @ShellMethod(key = {"bs", "bSearch", "bookSearch"}, value = "Search books by similar title or author, " +
+            "typos allowed. Arguments: query, maximum number of books. Please, put comma instead of space in each " +
+            "argument or simply put the arguments in quotes.")
+    public String search(@ShellOption("Query") String query,
+                         @ShellOption(value = "Limit", defaultValue = "10") int limit) {
+        final List<BookView> books = bookSearchService.search(reformatString(query), limit);
+        return books.isEmpty() ? "No books found" : books.toString();
+    }
+
+    @ShellMethod(key = {"bri", "bReindex"}, value = "Rebuild the book search index from the database")
+    public String reindex() {
+        return String.format("Indexed %d books", bookSearchService.rebuildIndex());
+    }
+
+    @ShellMethod(key = {"bu", "bUpdate"}, value = "Update book in repository. Arguments: id, title, author, genre, " +
+            "optionally the expected version. Please, put comma instead of space in each argument or simply put " +
+            "the arguments in quotes.")
     public String update(@ShellOption("Id") long id,
                          @ShellOption("Title") String title,
                          @ShellOption("Author") String authorNameParameter,
-                         @ShellOption("Genre") String genreNameParameter) {
+                         @ShellOption("Genre") String genreNameParameter,
+                         @ShellOption(value = "Version", defaultValue = ShellOption.NULL) Long version) {
         bookService.updateBook(id, reformatString(title),
-                reformatString(authorNameParameter), reformatString(genreNameParameter));
+                reformatString(authorNameParameter), reformatString(genreNameParameter), version);
         return String.format("%s was updated", reformatString(title));
     }
 
+    @ShellMethod(key = {"bmg", "bMoveToGenre"}, value = "Move books to a genre. Arguments: ids or id ranges " +
+            "separated by commas, e.g. 1-100,205, and genre. Please, put comma instead of space in the genre or " +
+            "simply put it in quotes.")
+    public String moveToGenre(@ShellOption("Ids") String ids, @ShellOption("Genre") String genreNameParameter) {
+        return String.format("%d books were moved to %s",
+                bookService.moveBooksToGenre(IdRanges.parse(ids), reformatString(genreNameParameter)),
+                reformatString(genreNameParameter));
+    }
+
     @ShellMethod(key = {"bd", "bDelete"}, value = "Delete book by id")
     public String deleteById(@ShellOption("Id") long id) {
         final Book book = bookService.getBookById(id);
@@ -77,6 +134,11 @@ public class BookCommands {
         return String.format("%s was deleted", book.getTitle());
     }
 
+    @ShellMethod(key = {"bdm", "bDeleteMany"}, value = "Delete books by ids. Arguments: ids or id ranges separated by commas, e.g. 1-100,205.")
+    public String deleteByIds(@ShellOption("Ids") String ids) {
+        return String.format("%d books were deleted", bookService.deleteBooksByIds(IdRanges.parse(ids)));
+    }
+
     private String reformatString(String str) {
         return String.join(" ", str.split(","));
     }
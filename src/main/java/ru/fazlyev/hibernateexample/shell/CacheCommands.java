@@ -0,0 +1,19 @@
+package ru.fazlyev.hibernateexample.shell;
+
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import ru.fazlyev.hibernateexample.service.CacheStatisticsService;
+
+@ShellComponent
+public class CacheCommands {
+    private final CacheStatisticsService service;
+
+    public CacheCommands(CacheStatisticsService service) {
+        this.service = service;
+    }
+
+    @ShellMethod(key = {"cs", "cacheStats"}, value = "Show hit, miss and eviction counters of the caches")
+    public String getStatistics() {
+        return service.getStatistics();
+    }
+}
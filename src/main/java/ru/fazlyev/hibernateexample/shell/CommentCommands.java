@@ -3,14 +3,17 @@ package ru.fazlyev.hibernateexample.shell;
 import org.springframework.shell.standard.ShellComponent;
 import org.springframework.shell.standard.ShellMethod;
 import org.springframework.shell.standard.ShellOption;
+import ru.fazlyev.hibernateexample.service.CommentSearchService;
 import ru.fazlyev.hibernateexample.service.CommentService;
 
 @ShellComponent
 public class CommentCommands {
     private final CommentService service;
+    private final CommentSearchService searchService;
 
-    public CommentCommands(CommentService service) {
+    public CommentCommands(CommentService service, CommentSearchService searchService) {
         this.service = service;
+        this.searchService = searchService;
     }
 
     @ShellMethod(key = {"ci", "cInsert"}, value = "Insert comment. Arguments: book id, comment. " +
@@ -37,18 +40,35 @@ public class CommentCommands {
         return service.getCommentsByBook(bookTitle).toString();
     }
 
-    @ShellMethod(key = {"cga", "cGetAll"}, value = "Get all comments")
-    public String getAll() {
-        return service.getAll().toString();
+    @ShellMethod(key = {"cga", "cGetAll"}, value = "Get all comments page by page. Arguments: id to start after, " +
+            "page size.")
+    public String getAll(@ShellOption(value = "After", defaultValue = "0") long afterId,
+                         @ShellOption(value = "Size", defaultValue = "20") int pageSize) {
+        return service.getPage(afterId, pageSize).toString();
+    }
+
+    @ShellMethod(key = {"csr", "cSearch", "commentSearch"}, value = "Search comments by keywords, best matches " +
+            "first. Arguments: keywords, page, page size. Please, put comma instead of space in each argument " +
+            "or simply put the arguments in quotes.")
+    public String search(@ShellOption("Keywords") String keywords,
+                         @ShellOption(value = "Page", defaultValue = "0") int page,
+                         @ShellOption(value = "Size", defaultValue = "20") int pageSize) {
+        return searchService.search(reformatString(keywords), page, pageSize).toString();
+    }
+
+    @ShellMethod(key = {"cri", "cReindex"}, value = "Rebuild the comment search index from the database")
+    public String reindex() {
+        return String.format("Indexed %d comments", searchService.rebuildIndex());
     }
 
     @ShellMethod(key = {"cu", "cUpdate"}, value = "Update comment in repository. Arguments: bookId, commentId, " +
-            "name. Please, put comma instead of space in each argument or simply put the arguments " +
-            "in quotes.")
+            "name, optionally the expected version. Please, put comma instead of space in each argument or simply " +
+            "put the arguments in quotes.")
     public String update(@ShellOption("BookId") long bookId,
                          @ShellOption("CommentId to replace") long commentId,
-                         @ShellOption("Content") String commentContent) {
-        return service.updateComment(bookId, commentId, commentContent);
+                         @ShellOption("Content") String commentContent,
+                         @ShellOption(value = "Version", defaultValue = ShellOption.NULL) Long version) {
+        return service.updateComment(bookId, commentId, commentContent, version);
     }
 
     @ShellMethod(key = {"cd", "cDelete"}, value = "Delete comment by id")
@@ -56,6 +76,11 @@ public class CommentCommands {
         return service.deleteById(id);
     }
 
+    @ShellMethod(key = {"cdm", "cDeleteMany"}, value = "Delete comments by ids. Arguments: ids or id ranges separated by commas, e.g. 1-100,205.")
+    public String deleteByIds(@ShellOption("Ids") String ids) {
+        return String.format("%d comments were deleted", service.deleteByIds(IdRanges.parse(ids)));
+    }
+
     private String reformatString(String str) {
         return String.join(" ", str.split(","));
     }
@@ -35,11 +35,13 @@ public class GenreCommands {
         return genreService.getAll().toString();
     }
 
-    @ShellMethod(key = {"gu", "gUpdate"}, value = "Update genre in repository. Arguments: id, name. " +
-            "Please, put comma instead of space in each argument or simply put the arguments in quotes.")
+    @ShellMethod(key = {"gu", "gUpdate"}, value = "Update genre in repository. Arguments: id, name, " +
+            "optionally the expected version. Please, put comma instead of space in each argument or simply put " +
+            "the arguments in quotes.")
     public String update(@ShellOption("Id") long id,
-                         @ShellOption("Name") String name) {
-        return genreService.updateGenre(id, reformatString(name));
+                         @ShellOption("Name") String name,
+                         @ShellOption(value = "Version", defaultValue = ShellOption.NULL) Long version) {
+        return genreService.updateGenre(id, reformatString(name), version);
     }
 
     @ShellMethod(key = {"gd", "gDelete"}, value = "Delete genre by id")
@@ -47,6 +49,11 @@ public class GenreCommands {
         return genreService.deleteGenreById(id);
     }
 
+    @ShellMethod(key = {"gdm", "gDeleteMany"}, value = "Delete genres with their books by ids. Arguments: ids or id ranges separated by commas, e.g. 1-100,205.")
+    public String deleteByIds(@ShellOption("Ids") String ids) {
+        return String.format("%d genres were deleted", genreService.deleteGenresByIds(IdRanges.parse(ids)));
+    }
+
     private String reformatString(String str) {
         return String.join(" ", str.split(","));
     }
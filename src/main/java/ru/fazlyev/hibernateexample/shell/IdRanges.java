@@ -0,0 +1,34 @@
+package ru.fazlyev.hibernateexample.shell;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class IdRanges {
+    static final int MAX_IDS = 1_000_000;
+
+    private IdRanges() {
+    }
+
+    static List<Long> parse(String ranges) {
+        final List<Long> ids = new ArrayList<>();
+        for (String range : ranges.split(",")) {
+            final String trimmed = range.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            final int dash = trimmed.indexOf('-', 1);
+            final long from = Long.parseLong((dash < 0 ? trimmed : trimmed.substring(0, dash)).trim());
+            final long to = dash < 0 ? from : Long.parseLong(trimmed.substring(dash + 1).trim());
+            if (from > to) {
+                throw new IllegalArgumentException("Incorrect id range " + trimmed);
+            }
+            if (to - from >= MAX_IDS - ids.size()) {
+                throw new IllegalArgumentException("No more than " + MAX_IDS + " ids are allowed");
+            }
+            for (long id = from; id <= to; id++) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+}
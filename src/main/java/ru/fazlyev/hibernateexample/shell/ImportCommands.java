@@ -0,0 +1,24 @@
+package ru.fazlyev.hibernateexample.shell;
+
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+import ru.fazlyev.hibernateexample.service.CatalogImportService;
+
+import java.nio.file.Path;
+
+@ShellComponent
+public class ImportCommands {
+    private final CatalogImportService service;
+
+    public ImportCommands(CatalogImportService service) {
+        this.service = service;
+    }
+
+    @ShellMethod(key = {"imp", "catalogImport"}, value = "Import books with comments from a .csv file " +
+            "(title,author,genre,comment...) or a .jsonl file ({\"title\", \"author\", \"genre\", \"comments\"}). " +
+            "Run the same command again to resume a failed import. Arguments: file path.")
+    public String importCatalog(@ShellOption("File") String file) {
+        return service.importCatalog(Path.of(file)).toString();
+    }
+}
@@ -0,0 +1,19 @@
+package ru.fazlyev.hibernateexample.shell;
+
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import ru.fazlyev.hibernateexample.service.MetricsService;
+
+@ShellComponent
+public class MetricsCommands {
+    private final MetricsService service;
+
+    public MetricsCommands(MetricsService service) {
+        this.service = service;
+    }
+
+    @ShellMethod(key = {"m", "metrics"}, value = "Show latency percentiles, statements and rows per repository method")
+    public String getRepositoryMetrics() {
+        return service.getRepositoryMetrics();
+    }
+}
@@ -0,0 +1,22 @@
+package ru.fazlyev.hibernateexample.shell;
+
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+import ru.fazlyev.hibernateexample.service.WorkloadReplayService;
+
+@ShellComponent
+public class ReplayCommands {
+    private final WorkloadReplayService service;
+
+    public ReplayCommands(WorkloadReplayService service) {
+        this.service = service;
+    }
+
+    @ShellMethod(key = {"wr", "workloadReplay"}, value = "Replay book and comment lookups and report throughput " +
+            "for the current pool and driver settings. Arguments: number of operations, number of threads")
+    public String replay(@ShellOption(value = "Operations", defaultValue = "10000") int operations,
+                         @ShellOption(value = "Threads", defaultValue = "4") int threads) {
+        return service.replay(operations, threads);
+    }
+}
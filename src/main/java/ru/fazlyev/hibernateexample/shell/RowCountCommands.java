@@ -0,0 +1,22 @@
+package ru.fazlyev.hibernateexample.shell;
+
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+import ru.fazlyev.hibernateexample.repository.RowCountMode;
+import ru.fazlyev.hibernateexample.service.RowCountService;
+
+@ShellComponent
+public class RowCountCommands {
+    private final RowCountService service;
+
+    public RowCountCommands(RowCountService service) {
+        this.service = service;
+    }
+
+    @ShellMethod(key = {"rc", "rowCounts"}, value = "Show the number of authors, genres, books and comments. " +
+            "Arguments: EXACT for maintained counters or ESTIMATE for planner statistics.")
+    public String getCounts(@ShellOption(value = "Mode", defaultValue = "EXACT") RowCountMode mode) {
+        return service.getCounts(mode);
+    }
+}
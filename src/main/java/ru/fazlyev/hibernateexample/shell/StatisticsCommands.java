@@ -0,0 +1,44 @@
+package ru.fazlyev.hibernateexample.shell;
+
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+import ru.fazlyev.hibernateexample.service.CatalogStatisticsService;
+import ru.fazlyev.hibernateexample.view.CountView;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@ShellComponent
+public class StatisticsCommands {
+    private final CatalogStatisticsService service;
+
+    public StatisticsCommands(CatalogStatisticsService service) {
+        this.service = service;
+    }
+
+    @ShellMethod(key = {"ta", "topAuthors"}, value = "Show authors with the most books. Arguments: number of authors")
+    public String getTopAuthors(@ShellOption(value = "Limit", defaultValue = "10") int limit) {
+        return format(service.getTopAuthors(limit));
+    }
+
+    @ShellMethod(key = {"tg", "topGenres"}, value = "Show genres with the most books. Arguments: number of genres")
+    public String getTopGenres(@ShellOption(value = "Limit", defaultValue = "10") int limit) {
+        return format(service.getTopGenres(limit));
+    }
+
+    @ShellMethod(key = {"tb", "topBooks"}, value = "Show the most commented books. Arguments: number of books")
+    public String getTopBooks(@ShellOption(value = "Limit", defaultValue = "10") int limit) {
+        return format(service.getTopBooks(limit));
+    }
+
+    @ShellMethod(key = {"sr", "statsRebuild"}, value = "Recount catalog statistics from the database")
+    public String rebuild() {
+        return String.format("Counted %d books and comments", service.rebuild());
+    }
+
+    private String format(List<CountView> counts) {
+        return counts.isEmpty() ? "Nothing found" : counts.stream().map(CountView::toString)
+                .collect(Collectors.joining("\n"));
+    }
+}
@@ -0,0 +1,66 @@
+package ru.fazlyev.hibernateexample.view;
+
+import java.util.Objects;
+
+public final class BookView {
+    private final long id;
+    private final String title;
+    private final long authorId;
+    private final String author;
+    private final long genreId;
+    private final String genre;
+
+    public BookView(long id, String title, long authorId, String author, long genreId, String genre) {
+        this.id = id;
+        this.title = title;
+        this.authorId = authorId;
+        this.author = author;
+        this.genreId = genreId;
+        this.genre = genre;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public long getAuthorId() {
+        return authorId;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public long getGenreId() {
+        return genreId;
+    }
+
+    public String getGenre() {
+        return genre;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BookView view = (BookView) o;
+        return id == view.id && authorId == view.authorId && genreId == view.genreId && title.equals(view.title)
+                && author.equals(view.author) && genre.equals(view.genre);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, title, authorId, author, genreId, genre);
+    }
+
+    @Override
+    public String toString() {
+        return "Title: " + title + '\n' +
+                "Author: " + author + '\n' +
+                "Genre: " + genre;
+    }
+}
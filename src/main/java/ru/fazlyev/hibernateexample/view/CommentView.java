@@ -0,0 +1,53 @@
+package ru.fazlyev.hibernateexample.view;
+
+import java.util.Objects;
+
+public final class CommentView {
+    private final long id;
+    private final String content;
+    private final long bookId;
+    private final String bookTitle;
+
+    public CommentView(long id, String content, long bookId, String bookTitle) {
+        this.id = id;
+        this.content = content;
+        this.bookId = bookId;
+        this.bookTitle = bookTitle;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public long getBookId() {
+        return bookId;
+    }
+
+    public String getBookTitle() {
+        return bookTitle;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CommentView view = (CommentView) o;
+        return id == view.id && bookId == view.bookId && content.equals(view.content)
+                && Objects.equals(bookTitle, view.bookTitle);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, content, bookId, bookTitle);
+    }
+
+    @Override
+    public String toString() {
+        return "Comment '" + content +
+                "' to book " + bookTitle;
+    }
+}
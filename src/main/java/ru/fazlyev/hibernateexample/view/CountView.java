@@ -0,0 +1,45 @@
+package ru.fazlyev.hibernateexample.view;
+
+import java.util.Objects;
+
+public final class CountView {
+    private final long id;
+    private final String name;
+    private final long count;
+
+    public CountView(long id, String name, long count) {
+        this.id = id;
+        this.name = name;
+        this.count = count;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CountView view = (CountView) o;
+        return id == view.id && count == view.count && name.equals(view.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, name, count);
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + count;
+    }
+}
@@ -0,0 +1,39 @@
+CREATE SEQUENCE authors_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE genres_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE books_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE comments_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE authors
+(
+    id   BIGINT PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    CONSTRAINT uk_authors_name UNIQUE (name)
+);
+
+CREATE TABLE genres
+(
+    id   BIGINT PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    CONSTRAINT uk_genres_name UNIQUE (name)
+);
+
+CREATE TABLE books
+(
+    id        BIGINT PRIMARY KEY,
+    title     VARCHAR(255) NOT NULL,
+    author_id BIGINT,
+    genre_id  BIGINT,
+    CONSTRAINT fk_books_author FOREIGN KEY (author_id) REFERENCES authors (id)
+        ON DELETE CASCADE ON UPDATE CASCADE,
+    CONSTRAINT fk_books_genre FOREIGN KEY (genre_id) REFERENCES genres (id)
+        ON DELETE CASCADE ON UPDATE CASCADE
+);
+
+CREATE TABLE comments
+(
+    id      BIGINT PRIMARY KEY,
+    book_id BIGINT,
+    content VARCHAR(500),
+    CONSTRAINT fk_comments_book FOREIGN KEY (book_id) REFERENCES books (id)
+        ON DELETE CASCADE ON UPDATE CASCADE
+);
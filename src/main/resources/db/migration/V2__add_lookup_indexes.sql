@@ -0,0 +1,5 @@
+CREATE INDEX idx_books_title ON books (title);
+CREATE INDEX idx_books_author_id ON books (author_id);
+CREATE INDEX idx_books_genre_id ON books (genre_id);
+CREATE INDEX idx_comments_content ON comments (content);
+CREATE INDEX idx_comments_book_id ON comments (book_id);
@@ -0,0 +1,6 @@
+DROP INDEX idx_books_author_id;
+DROP INDEX idx_books_genre_id;
+CREATE INDEX idx_books_author_id ON books (author_id, id);
+CREATE INDEX idx_books_genre_id ON books (genre_id, id);
+CREATE INDEX idx_books_author_id_title ON books (author_id, title, id);
+CREATE INDEX idx_books_genre_id_title ON books (genre_id, title, id);
@@ -0,0 +1,12 @@
+CREATE TABLE row_counts
+(
+    table_name VARCHAR(64) NOT NULL,
+    slot       INT         NOT NULL,
+    row_count  BIGINT      NOT NULL DEFAULT 0,
+    CONSTRAINT pk_row_counts PRIMARY KEY (table_name, slot)
+);
+
+INSERT INTO row_counts (table_name, slot, row_count) SELECT 'authors', 0, COUNT(*) FROM authors;
+INSERT INTO row_counts (table_name, slot, row_count) SELECT 'genres', 0, COUNT(*) FROM genres;
+INSERT INTO row_counts (table_name, slot, row_count) SELECT 'books', 0, COUNT(*) FROM books;
+INSERT INTO row_counts (table_name, slot, row_count) SELECT 'comments', 0, COUNT(*) FROM comments;
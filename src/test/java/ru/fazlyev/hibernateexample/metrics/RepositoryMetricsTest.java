@@ -0,0 +1,81 @@
+package ru.fazlyev.hibernateexample.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.AopTestUtils;
+import ru.fazlyev.hibernateexample.repository.BookRepository;
+import ru.fazlyev.hibernateexample.repository.BookRepositoryImpl;
+import ru.fazlyev.hibernateexample.repository.BookSort;
+import ru.fazlyev.hibernateexample.repository.PageTotalMode;
+import ru.fazlyev.hibernateexample.service.MetricsServiceImpl;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@EnableAspectJAutoProxy
+@Import({RepositoryMetrics.class, MetricsServiceImpl.class, BookRepositoryImpl.class, SimpleMeterRegistry.class})
+class RepositoryMetricsTest {
+    @Autowired
+    private BookRepository repository;
+    @Autowired
+    private MeterRegistry registry;
+    @Autowired
+    private MetricsServiceImpl metricsService;
+
+    @Test
+    void shouldTimeCallsAndCountStatementsAndRows() {
+        repository.getBookByTitle("Ulysses");
+        repository.getBookByTitle("Ulysses");
+        repository.getViewsByAuthor("James Joyce", BookSort.TITLE, 0, 10, PageTotalMode.EXACT);
+        repository.getViewsByIds(List.of(1L, 2L, 3L));
+
+        final Timer byTitle = registry.get(RepositoryMetrics.CALLS).tag("repository", "BookRepository")
+                .tag("method", "getBookByTitle").timer();
+        assertEquals(2L, byTitle.count());
+        assertEquals(3, byTitle.takeSnapshot().percentileValues().length);
+        assertEquals(2.0, registry.get(RepositoryMetrics.STATEMENTS).tag("method", "getBookByTitle")
+                .summary().totalAmount());
+        assertEquals(1.0, registry.get(RepositoryMetrics.STATEMENTS).tag("method", "getViewsByAuthor")
+                .summary().totalAmount());
+        assertEquals(1.0, registry.get(RepositoryMetrics.ROWS).tag("method", "getViewsByIds")
+                .summary().totalAmount());
+
+        assertThat(metricsService.getRepositoryMetrics().split("\n")).hasSize(3)
+                .anyMatch(line -> line.matches("BookRepository\\.getBookByTitle: 2 calls, mean [0-9.]+ ms, " +
+                        "p50 [0-9.]+ ms, p95 [0-9.]+ ms, p99 [0-9.]+ ms, max [0-9.]+ ms, 1\\.0 statements/call, " +
+                        "1\\.0 rows/call"));
+    }
+
+    @Tag("benchmark")
+    @Test
+    void shouldKeepInstrumentationUnderFivePercentOfLookup() throws Throwable {
+        final BookRepository target = AopTestUtils.getUltimateTargetObject(repository);
+
+        final long lookup = fastest(() -> target.getBookByTitle("Ulysses"));
+        final long instrumented = fastest(() -> repository.getBookByTitle("Ulysses"));
+
+        assertThat(instrumented - lookup).isLessThan(lookup * 5 / 100);
+    }
+
+    private static long fastest(RepositoryMetrics.Invocation call) throws Throwable {
+        long fastest = Long.MAX_VALUE;
+        for (int round = 0; round < 10; round++) {
+            final long start = System.nanoTime();
+            for (int i = 0; i < 1000; i++) {
+                call.proceed();
+            }
+            fastest = Math.min(fastest, (System.nanoTime() - start) / 1000);
+        }
+        return fastest;
+    }
+}
@@ -1,14 +1,21 @@
 package ru.fazlyev.hibernateexample.repository;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.fazlyev.hibernateexample.domain.Author;
 import ru.fazlyev.hibernateexample.domain.Book;
 
+import javax.persistence.EntityManagerFactory;
 import javax.persistence.NoResultException;
 import java.util.List;
 
@@ -22,13 +29,17 @@ class AuthorRepositoryImplTest {
     private AuthorRepositoryImpl repository;
     @Autowired
     private TestEntityManager em;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
 
     public final Author jamesJoyce = new Author(1L, "James Joyce");
 
     @Test
     void testCountMethod() {
         final long expected = 1L;
-        final long actual = repository.count();
+        final long actual = repository.count(RowCountMode.EXACT);
 
         assertEquals(expected, actual);
     }
@@ -65,6 +76,25 @@ class AuthorRepositoryImplTest {
         assertEquals(jamesJoyce, actual);
     }
 
+    @Test
+    void shouldReturnExistingIdWithoutInsert() {
+        final Object sequence = currentSequenceValue();
+
+        assertEquals(1L, repository.getOrCreateIdByName(jamesJoyce.getName()));
+        assertEquals(1L, repository.count(RowCountMode.EXACT));
+        assertEquals(sequence, currentSequenceValue());
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Test
+    void shouldCreateMissingAuthorOnce() {
+        final long id = repository.getOrCreateIdByName("Michel Foucault");
+
+        assertEquals(id, repository.getOrCreateIdByName("Michel Foucault"));
+        assertEquals("Michel Foucault", em.find(Author.class, id).getName());
+        assertEquals(2L, repository.count(RowCountMode.EXACT));
+    }
+
     @Test
     void shouldThrowExceptionAfterGetAuthorByNameMethodInvocation() {
         assertThrows(NoResultException.class, () -> repository.getAuthorByName("author"));
@@ -85,7 +115,7 @@ class AuthorRepositoryImplTest {
     @Test
     void testUpdateByComparing() {
         final Author expected = new Author(1, "Michel Foucault");
-        repository.update(expected);
+        repository.update(expected, null);
         final Author actual = repository.getAuthorById(1L).get();
 
         assertEquals(expected, actual);
@@ -104,4 +134,72 @@ class AuthorRepositoryImplTest {
         repository.deleteById(1L);
         assertNull(em.find(Book.class, 1L));
     }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Test
+    void shouldServeRepeatedFindFromSecondLevelCache() {
+        final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        transaction.executeWithoutResult(status -> repository.getAuthorById(1L));
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        final Author actual = transaction.execute(status -> repository.getAuthorById(1L).orElseThrow());
+
+        assertEquals(jamesJoyce, actual);
+        assertEquals(1L, statistics.getDomainDataRegionStatistics("authors").getHitCount());
+        assertEquals(0L, statistics.getPrepareStatementCount());
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Test
+    void shouldEvictOnlyUpdatedAndDeletedAuthorFromSecondLevelCache() {
+        final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        final long otherId = transaction.execute(status -> repository.save(new Author(0L, "Michel Foucault")).getId());
+        transaction.executeWithoutResult(status -> repository.getAuthorById(1L));
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        transaction.executeWithoutResult(status -> repository.update(new Author(1L, "Updated"), null));
+        transaction.executeWithoutResult(status -> repository.deleteById(1L));
+        final Author other = transaction.execute(status -> repository.getAuthorById(otherId).orElseThrow());
+
+        assertEquals("Michel Foucault", other.getName());
+        // update and delete both find the cached row and the other author stays cached
+        assertEquals(3L, statistics.getDomainDataRegionStatistics("authors").getHitCount());
+        assertEquals(0L, statistics.getDomainDataRegionStatistics("authors").getMissCount());
+        assertTrue(transaction.execute(status -> repository.getAuthorById(1L)).isEmpty());
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Test
+    void shouldEvictOnlyBatchDeletedAuthorsFromSecondLevelCache() {
+        final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        final long otherId = transaction.execute(status -> repository.save(new Author(0L, "Michel Foucault")).getId());
+        transaction.executeWithoutResult(status -> {
+            repository.getAuthorById(1L);
+            repository.getAuthorById(otherId);
+        });
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        assertEquals(Integer.valueOf(1), transaction.execute(status -> repository.deleteByIds(List.of(1L))));
+        final Author other = transaction.execute(status -> repository.getAuthorById(otherId).orElseThrow());
+
+        assertEquals("Michel Foucault", other.getName());
+        assertEquals(1L, statistics.getDomainDataRegionStatistics("authors").getHitCount());
+        assertEquals(0L, statistics.getDomainDataRegionStatistics("authors").getMissCount());
+        assertTrue(transaction.execute(status -> repository.getAuthorById(1L)).isEmpty());
+        assertNull(transaction.execute(status -> em.find(Book.class, 1L)));
+    }
+
+    private Object currentSequenceValue() {
+        return em.getEntityManager().createNativeQuery("SELECT CURRENT_VALUE FROM INFORMATION_SCHEMA.SEQUENCES " +
+                "WHERE SEQUENCE_NAME = 'AUTHORS_SEQ'").getSingleResult();
+    }
 }
@@ -1,18 +1,36 @@
 package ru.fazlyev.hibernateexample.repository;
 
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.graph.GraphSemantic;
+import org.hibernate.jpa.QueryHints;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.fazlyev.hibernateexample.domain.Author;
 import ru.fazlyev.hibernateexample.domain.Book;
 import ru.fazlyev.hibernateexample.domain.Comment;
 import ru.fazlyev.hibernateexample.domain.Genre;
+import ru.fazlyev.hibernateexample.view.BookView;
 
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -24,6 +42,8 @@ class BookRepositoryImplTest {
     private BookRepositoryImpl repository;
     @Autowired
     private TestEntityManager em;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
 
     private final Book expectedUlysses = new Book(1, "Ulysses", new Author(1, "James Joyce"),
             new Genre(1, "Modernist novel"));
@@ -156,11 +176,53 @@ class BookRepositoryImplTest {
         assertThat(sessionFactory.getStatistics().getPrepareStatementCount()).isEqualTo(1L);
     }
 
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    @Test
+    void shouldReturnBooksPageByPage() {
+        final Book book = new Book(0, "Discipline And Punish", new Author(0, "Michel Foucault"),
+                new Genre(0, "Philosophy"));
+        repository.save(book);
+
+        final KeysetPage<Book> firstPage = repository.getPage(0L, 1);
+        final KeysetPage<Book> secondPage = repository.getPage(firstPage.getNextCursor(), 1);
+
+        assertEquals(List.of(expectedUlysses), firstPage.getContent());
+        assertTrue(firstPage.hasNext());
+        assertEquals(List.of(book), secondPage.getContent());
+        assertFalse(secondPage.hasNext());
+    }
+
+    @Test
+    void shouldStreamAllBooksAndDetachThem() {
+        final List<Book> books;
+        try (Stream<Book> stream = repository.streamAll()) {
+            books = stream.collect(Collectors.toList());
+        }
+
+        assertEquals(List.of(expectedUlysses), books);
+        assertThat(books).noneMatch(em.getEntityManager()::contains);
+    }
+
+    @Test
+    void shouldSeekPageWithSingleStatementWhateverTheCursor() {
+        SessionFactory sessionFactory = em.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class);
+        sessionFactory.getStatistics().setStatisticsEnabled(true);
+        sessionFactory.getStatistics().clear();
+
+        final KeysetPage<Book> page = repository.getPage(10_000L, 20);
+
+        assertThat(page.getContent()).isEmpty();
+        assertFalse(page.hasNext());
+        assertThat(sessionFactory.getStatistics().getPrepareStatementCount()).isEqualTo(1L);
+    }
+
     @Test
     void shouldReturnCorrectBookByTitleWithAllInfo() {
         SessionFactory sessionFactory = em.getEntityManager().getEntityManagerFactory()
                 .unwrap(SessionFactory.class);
         sessionFactory.getStatistics().setStatisticsEnabled(true);
+        sessionFactory.getStatistics().clear();
 
         final Book book = repository.getBookByTitle(expectedUlysses.getTitle());
         assertThat(book).isNotNull().matches(b -> !b.getTitle().equals(""), "Blank title")
@@ -170,4 +232,277 @@ class BookRepositoryImplTest {
 
         assertThat(sessionFactory.getStatistics().getPrepareStatementCount()).isEqualTo(1L);
     }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    @Test
+    void shouldReturnViewsWithoutManagingEntities() {
+        final BookView expected = new BookView(1L, "Ulysses", 1L, "James Joyce", 1L, "Modernist novel");
+        repository.save(new Book(0, "Discipline And Punish", new Author(0, "Michel Foucault"),
+                new Genre(0, "Philosophy")));
+        em.flush();
+        em.clear();
+
+        assertEquals(expected, repository.getViewByTitle("Ulysses"));
+        assertEquals(expected, repository.getViewByAuthor("James Joyce"));
+        assertEquals(expected, repository.getViewByGenre("Modernist novel"));
+        assertEquals(2, repository.getAllViews().size());
+        final KeysetPage<BookView> page = repository.getViewPage(0L, 1);
+        assertEquals(List.of(expected), page.getContent());
+        assertTrue(page.hasNext());
+        assertEquals(0, em.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    @Test
+    void shouldReturnEveryBookOfAuthorPageByPage() {
+        final Author joyce = em.find(Author.class, 1L);
+        final Genre novel = em.find(Genre.class, 1L);
+        repository.save(new Book(0, "Dubliners", joyce, novel));
+        repository.save(new Book(0, "Finnegans Wake", joyce, novel));
+        repository.save(new Book(0, "Discipline And Punish", new Author(0, "Michel Foucault"),
+                new Genre(0, "Philosophy")));
+        em.flush();
+        em.clear();
+
+        final CountedPage<BookView> firstPage = repository.getViewsByAuthor("James Joyce", BookSort.TITLE, 0, 2,
+                PageTotalMode.EXACT);
+        final CountedPage<BookView> secondPage = repository.getViewsByAuthor("James Joyce", BookSort.TITLE,
+                firstPage.getNextCursor(), 2, PageTotalMode.EXACT);
+
+        assertThat(firstPage.getContent()).extracting(BookView::getTitle).containsExactly("Dubliners",
+                "Finnegans Wake");
+        assertTrue(firstPage.hasNext());
+        assertEquals(3, firstPage.getTotal());
+        assertThat(secondPage.getContent()).extracting(BookView::getTitle).containsExactly("Ulysses");
+        assertFalse(secondPage.hasNext());
+        assertEquals(3, secondPage.getTotal());
+        assertThat(repository.getViewsByGenre("Modernist novel", BookSort.ID, 0, 3, PageTotalMode.NONE).getContent())
+                .extracting(BookView::getTitle).containsExactly("Ulysses", "Dubliners", "Finnegans Wake");
+        assertEquals("Ulysses", repository.getViewByAuthor("James Joyce").getTitle());
+        assertEquals(0, em.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    @Test
+    void shouldWalkEqualTitlesOfGenreByCursor() {
+        final Author joyce = em.find(Author.class, 1L);
+        final Genre novel = em.find(Genre.class, 1L);
+        for (int i = 0; i < 5; i++) {
+            repository.save(new Book(0, "Dubliners", joyce, novel));
+        }
+        em.flush();
+        em.clear();
+
+        final List<Long> walked = new ArrayList<>();
+        CountedPage<BookView> page = repository.getViewsByGenre("Modernist novel", BookSort.TITLE, 0, 2,
+                PageTotalMode.NONE);
+        walked.addAll(page.getContent().stream().map(BookView::getId).collect(Collectors.toList()));
+        while (page.hasNext()) {
+            page = repository.getViewsByGenre("Modernist novel", BookSort.TITLE, page.getNextCursor(), 2,
+                    PageTotalMode.NONE);
+            walked.addAll(page.getContent().stream().map(BookView::getId).collect(Collectors.toList()));
+        }
+
+        assertEquals(repository.getAllViews().stream()
+                .sorted(Comparator.comparing(BookView::getTitle).thenComparingLong(BookView::getId))
+                .map(BookView::getId).collect(Collectors.toList()), walked);
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    @Test
+    void shouldSkipOrCapTheCountQuery() {
+        final Author joyce = em.find(Author.class, 1L);
+        final Genre novel = em.find(Genre.class, 1L);
+        long book999 = 0;
+        for (int i = 0; i < 1_200; i++) {
+            final Book book = new Book(0, "Book " + i, joyce, novel);
+            repository.save(book);
+            if (i == 999) {
+                book999 = book.getId();
+            }
+        }
+        em.flush();
+        em.clear();
+        SessionFactory sessionFactory = em.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class);
+        sessionFactory.getStatistics().setStatisticsEnabled(true);
+
+        sessionFactory.getStatistics().clear();
+        final CountedPage<BookView> uncounted = repository.getViewsByGenre("Modernist novel", BookSort.TITLE, 0, 20,
+                PageTotalMode.NONE);
+        assertEquals(CountedPage.UNKNOWN_TOTAL, uncounted.getTotal());
+        assertTrue(uncounted.hasNext());
+        assertThat(sessionFactory.getStatistics().getPrepareStatementCount()).isEqualTo(1L);
+
+        final CountedPage<BookView> capped = repository.getViewsByGenre("Modernist novel", BookSort.TITLE, 0, 20,
+                PageTotalMode.CAPPED);
+        assertEquals(1_000, capped.getTotal());
+        assertTrue(capped.isTotalCapped());
+
+        final CountedPage<BookView> exact = repository.getViewsByGenre("Modernist novel", BookSort.TITLE, book999,
+                20, PageTotalMode.EXACT);
+        assertEquals(1_201, exact.getTotal());
+        assertFalse(exact.hasNext());
+        assertThat(exact.getContent()).hasSize(1);
+
+        sessionFactory.getStatistics().clear();
+        final CountedPage<BookView> unknownGenre = repository.getViewsByGenre("Poetry", BookSort.TITLE, 0, 20,
+                PageTotalMode.EXACT);
+        assertThat(unknownGenre.getContent()).isEmpty();
+        assertEquals(0, unknownGenre.getTotal());
+        assertThat(sessionFactory.getStatistics().getPrepareStatementCount()).isEqualTo(1L);
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Test
+    void shouldDeleteTenThousandBooksInPaddedChunks() {
+        final Author joyce = em.find(Author.class, 1L);
+        final Genre novel = em.find(Genre.class, 1L);
+        final List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            final Book book = new Book(0, "Book " + i, joyce, novel);
+            repository.save(book);
+            ids.add(book.getId());
+        }
+        em.flush();
+        em.clear();
+        SessionFactory sessionFactory = em.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class);
+        sessionFactory.getStatistics().setStatisticsEnabled(true);
+
+        sessionFactory.getStatistics().clear();
+        assertEquals(10_000, repository.deleteByIds(ids).size());
+        assertThat(sessionFactory.getStatistics().getPrepareStatementCount()).isEqualTo(10L);
+
+        repository.save(new Book(0, "Dubliners", em.find(Author.class, 1L), em.find(Genre.class, 1L)));
+        em.flush();
+        assertEquals(List.of(expectedUlysses.getTitle(), "Dubliners"),
+                repository.getAll().stream().map(Book::getTitle).sorted(Comparator.reverseOrder())
+                        .collect(Collectors.toList()));
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Test
+    void shouldReuseQueryPlanForBatchesPaddedToSameSize() {
+        final Genre philosophy = em.persist(new Genre(0, "Philosophy"));
+        final Author joyce = em.find(Author.class, 1L);
+        final Genre novel = em.find(Genre.class, 1L);
+        final List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            final Book book = new Book(0, "Book " + i, joyce, novel);
+            repository.save(book);
+            ids.add(book.getId());
+        }
+        em.flush();
+        em.clear();
+        SessionFactory sessionFactory = em.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class);
+        sessionFactory.getStatistics().setStatisticsEnabled(true);
+
+        final List<BookView> previous = repository.updateGenreByIds(ids.subList(0, 5), philosophy);
+        sessionFactory.getStatistics().clear();
+        assertEquals(7, repository.updateGenreByIds(ids.subList(5, 12), philosophy).size());
+
+        assertEquals(ids.subList(0, 5), previous.stream().map(BookView::getId).collect(Collectors.toList()));
+        assertThat(previous).allMatch(view -> view.getGenreId() == novel.getId());
+
+        assertThat(sessionFactory.getStatistics().getQueryPlanCacheMissCount()).isZero();
+        assertThat(repository.getViewsByGenre("Philosophy", BookSort.ID, 0, 20, PageTotalMode.EXACT).getTotal())
+                .isEqualTo(12L);
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    @Test
+    void shouldLookUpBookByTitleFromPrecompiledPlan() {
+        SessionFactory sessionFactory = em.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class);
+        sessionFactory.getStatistics().setStatisticsEnabled(true);
+        sessionFactory.getStatistics().clear();
+
+        assertEquals(expectedUlysses, repository.getBookByTitle("Ulysses"));
+        em.clear();
+        assertEquals(expectedUlysses, repository.getBookByTitle("Ulysses"));
+
+        assertThat(sessionFactory.getStatistics().getQueryPlanCacheMissCount()).isZero();
+    }
+
+    @Test
+    void shouldAllocateLessPerLookupThanFetchGraphQuery() {
+        final com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final Runnable named = () -> repository.getBookByTitle("Ulysses");
+        final Runnable fetchGraph = () -> em.getEntityManager()
+                .createQuery("select b from Book b where b.title = :title", Book.class)
+                .setParameter("title", "Ulysses")
+                .setHint(GraphSemantic.FETCH.getJpaHintName(), em.getEntityManager().getEntityGraph(Book.FULL_GRAPH))
+                .setHint(QueryHints.HINT_READONLY, true)
+                .getSingleResult();
+
+        final long namedBytes = allocatedBytes(threads, named);
+        final long fetchGraphBytes = allocatedBytes(threads, fetchGraph);
+
+        assertThat(namedBytes).isLessThan(fetchGraphBytes / 2);
+    }
+
+    private static long allocatedBytes(com.sun.management.ThreadMXBean threads, Runnable lookup) {
+        for (int i = 0; i < 200; i++) {
+            lookup.run();
+        }
+        final long threadId = Thread.currentThread().getId();
+        final long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 500; i++) {
+            lookup.run();
+        }
+        return threads.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Test
+    void shouldNotLoseConcurrentConditionalUpdates() throws Exception {
+        final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        final int threads = 8;
+        final int updatesPerThread = 25;
+        transaction.executeWithoutResult(status -> repository.update(counter(0), null));
+        final long start = transaction.execute(status -> repository.getBookById(1L).orElseThrow()).getVersion();
+
+        runConcurrently(threads, updatesPerThread, () -> {
+            final Book current = transaction.execute(status -> repository.getBookById(1L).orElseThrow());
+            final int counter = Integer.parseInt(current.getTitle().substring("Counter ".length()));
+            return transaction.execute(status -> repository.update(counter(counter + 1), current.getVersion()))
+                    .isPresent() ? 1 : 0;
+        });
+
+        final Book actual = transaction.execute(status -> repository.getBookById(1L).orElseThrow());
+        assertEquals("Counter " + threads * updatesPerThread, actual.getTitle());
+        assertEquals(start + threads * updatesPerThread, actual.getVersion());
+        assertTrue(transaction.execute(status -> repository.update(counter(-1), start)).isEmpty());
+        assertEquals(actual.getTitle(),
+                transaction.execute(status -> repository.getBookById(1L).orElseThrow()).getTitle());
+    }
+
+    private Book counter(int value) {
+        return new Book(1L, "Counter " + value, expectedUlysses.getAuthor(), expectedUlysses.getGenre());
+    }
+
+    private static void runConcurrently(int threads, int updatesPerThread, Supplier<Integer> attempt) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                workers.add(executor.submit(() -> {
+                    for (int done = 0; done < updatesPerThread; ) {
+                        final int updated = attempt.get();
+                        assertThat(updated).isBetween(0, 1);
+                        done += updated;
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
@@ -1,18 +1,35 @@
 package ru.fazlyev.hibernateexample.repository;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.fazlyev.hibernateexample.domain.Author;
 import ru.fazlyev.hibernateexample.domain.Book;
 import ru.fazlyev.hibernateexample.domain.Comment;
 import ru.fazlyev.hibernateexample.domain.Genre;
+import ru.fazlyev.hibernateexample.view.CommentView;
 
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import javax.persistence.NoResultException;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -24,6 +41,8 @@ class CommentRepositoryImplTest {
     private CommentRepositoryImpl repository;
     @Autowired
     private TestEntityManager em;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
 
     private final Book ulysses = new Book(1L, "Ulysses", new Author(1L, "James Joyce"),
             new Genre(1L, "Modernist novel"));
@@ -32,7 +51,7 @@ class CommentRepositoryImplTest {
     @Test
     void testCountMethod() {
         final long expected = 1L;
-        final long actual = repository.count();
+        final long actual = repository.count(RowCountMode.EXACT);
 
         assertEquals(expected, actual);
     }
@@ -45,6 +64,7 @@ class CommentRepositoryImplTest {
                 philosophy);
 
         final Comment expected = new Comment(0L, "Published in 1975", book);
+        em.persist(book);
         repository.save(expected);
         final Comment actual = repository.getCommentById(2L).orElseThrow(() ->
                 new IllegalArgumentException("Incorrect id"));
@@ -61,6 +81,7 @@ class CommentRepositoryImplTest {
                 philosophy);
 
         final Comment comment = new Comment(0L, "Published in 1975", book);
+        em.persist(book);
         repository.save(comment);
 
         assertThat(comment.getId()).isPositive();
@@ -73,6 +94,7 @@ class CommentRepositoryImplTest {
         final Book book = new Book(0, "Discipline and Punish", foucault,
                 philosophy);
         final Comment comment = new Comment(0L, "Published in 1975", book);
+        em.persist(book);
         repository.save(comment);
 
         final Comment actualComment = em.find(Comment.class, comment.getId());
@@ -117,17 +139,56 @@ class CommentRepositoryImplTest {
         final Comment disciplineAndPunishComment = new Comment(2L, "Published in 1975", book);
         final List<Comment> expected = List.of(this.ulyssesComment, disciplineAndPunishComment);
 
+        em.persist(book);
         repository.save(disciplineAndPunishComment);
         final List<Comment> actual = repository.getAll();
 
         assertEquals(expected, actual);
     }
 
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    @Test
+    void shouldReturnCommentsPageByPage() {
+        final Comment secondComment = new Comment(0L, "Published in Paris", em.find(Book.class, 1L));
+        repository.save(secondComment);
+
+        final KeysetPage<Comment> firstPage = repository.getPage(0L, 1);
+        final KeysetPage<Comment> secondPage = repository.getPage(firstPage.getNextCursor(), 1);
+
+        assertEquals(List.of(ulyssesComment), firstPage.getContent());
+        assertEquals(1L, firstPage.getNextCursor());
+        assertTrue(firstPage.hasNext());
+        assertEquals(List.of(secondComment), secondPage.getContent());
+        assertFalse(secondPage.hasNext());
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Test
+    void shouldStreamAllCommentsWithBoundedPersistenceContext() {
+        em.getEntityManager().createNativeQuery("INSERT INTO comments (id, book_id, content) " +
+                "SELECT X + 1, 1, 'Generated comment ' || X FROM SYSTEM_RANGE(1, 20000)").executeUpdate();
+        final PersistenceContext persistenceContext = em.getEntityManager()
+                .unwrap(SessionImplementor.class).getPersistenceContext();
+        final AtomicLong maxManagedEntities = new AtomicLong();
+
+        final long streamed;
+        try (Stream<Comment> comments = repository.streamAll()) {
+            streamed = comments.peek(c -> maxManagedEntities.accumulateAndGet(
+                    persistenceContext.getNumberOfManagedEntities(), Math::max))
+                    .filter(c -> c.getBook().getId() == 1L)
+                    .count();
+        }
+
+        assertEquals(20_001L, streamed);
+        assertThat(maxManagedEntities.get()).isLessThanOrEqualTo(4L);
+        assertEquals(0, persistenceContext.getNumberOfManagedEntities());
+    }
+
     @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
     @Test
     void testUpdateByComparing() {
         final Comment expected = new Comment(1L, "Published in 1975", ulysses);
-        repository.update(expected);
+        repository.update(expected, null);
         final Comment actual = repository.getCommentById(1L).orElseThrow(() ->
                 new IllegalArgumentException("Incorrect id"));
 
@@ -137,7 +198,113 @@ class CommentRepositoryImplTest {
     @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
     @Test
     void shouldCorrectDeleteCommentById() {
-        repository.deleteById(1);
+        assertEquals(Optional.of(new CommentView(1L, "Published in 1922", 1L, "Ulysses")),
+                repository.deleteById(1));
         assertTrue(repository.getCommentById(1L).isEmpty());
+        assertTrue(repository.deleteById(1).isEmpty());
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Test
+    void shouldDeleteCommentsByIdsReturningTheirBooks() {
+        final Book ulysses = em.find(Book.class, 1L);
+        final Comment second = new Comment(0L, "Banned in 1922", ulysses);
+        final Comment third = new Comment(0L, "Published in 1922", ulysses);
+        repository.save(second);
+        repository.save(third);
+        em.flush();
+
+        final List<CommentView> deleted = repository.deleteByIds(List.of(1L, third.getId(), 10_000L));
+
+        assertEquals(List.of(new CommentView(1L, "Published in 1922", 1L, "Ulysses"),
+                new CommentView(third.getId(), "Published in 1922", 1L, "Ulysses")), deleted);
+        em.clear();
+        assertThat(repository.getAll()).extracting(Comment::getId).containsExactly(second.getId());
+        assertTrue(repository.deleteByIds(List.of()).isEmpty());
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Test
+    void shouldDeleteCommentWithoutBook() {
+        em.getEntityManager().createNativeQuery("INSERT INTO comments (id, book_id, content) VALUES (2, NULL, ?)")
+                .setParameter(1, "Orphaned").executeUpdate();
+
+        assertEquals(Optional.of(new CommentView(2L, "Orphaned", 0L, null)), repository.deleteById(2L));
+        assertEquals(List.of(new CommentView(1L, "Published in 1922", 1L, "Ulysses")),
+                repository.deleteByIds(List.of(1L, 2L)));
+    }
+
+    @Test
+    void shouldReturnCommentViewsOfBook() {
+        final CommentView expected = new CommentView(1L, "Published in 1922", 1L, "Ulysses");
+
+        assertEquals(List.of(expected), repository.getViewsByBookTitle("Ulysses"));
+        assertEquals(List.of(expected), repository.getViewPage(0L, 20).getContent());
+        assertTrue(repository.getViewsByBookTitle("Dubliners").isEmpty());
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    @Test
+    void shouldLookUpCommentByContentFromPrecompiledPlan() {
+        SessionFactory sessionFactory = em.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class);
+        sessionFactory.getStatistics().setStatisticsEnabled(true);
+        sessionFactory.getStatistics().clear();
+
+        assertEquals(ulyssesComment, repository.getCommentByContent("Published in 1922"));
+        em.clear();
+        assertEquals(ulyssesComment, repository.getCommentByContent("Published in 1922"));
+
+        assertThat(sessionFactory.getStatistics().getQueryPlanCacheMissCount()).isZero();
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Test
+    void shouldNotLoseConcurrentConditionalUpdates() throws Exception {
+        final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        final int threads = 8;
+        final int updatesPerThread = 25;
+        transaction.executeWithoutResult(status -> repository.update(counter(0), null));
+        final long start = transaction.execute(status -> repository.getCommentById(1L).orElseThrow()).getVersion();
+
+        runConcurrently(threads, updatesPerThread, () -> {
+            final Comment current = transaction.execute(status -> repository.getCommentById(1L).orElseThrow());
+            final int counter = Integer.parseInt(current.getContent().substring("Counter ".length()));
+            return transaction.execute(status -> repository.update(counter(counter + 1), current.getVersion()))
+                    .isPresent() ? 1 : 0;
+        });
+
+        final Comment actual = transaction.execute(status -> repository.getCommentById(1L).orElseThrow());
+        assertEquals("Counter " + threads * updatesPerThread, actual.getContent());
+        assertEquals(start + threads * updatesPerThread, actual.getVersion());
+        assertTrue(transaction.execute(status -> repository.update(counter(-1), start)).isEmpty());
+        assertEquals(actual.getContent(),
+                transaction.execute(status -> repository.getCommentById(1L).orElseThrow()).getContent());
+    }
+
+    private Comment counter(int value) {
+        return new Comment(1L, "Counter " + value, ulysses);
+    }
+
+    private static void runConcurrently(int threads, int updatesPerThread, Supplier<Integer> attempt) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                workers.add(executor.submit(() -> {
+                    for (int done = 0; done < updatesPerThread; ) {
+                        final int updated = attempt.get();
+                        assertThat(updated).isBetween(0, 1);
+                        done += updated;
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
     }
 }
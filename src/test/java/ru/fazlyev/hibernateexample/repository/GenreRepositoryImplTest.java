@@ -1,14 +1,21 @@
 package ru.fazlyev.hibernateexample.repository;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.fazlyev.hibernateexample.domain.Book;
 import ru.fazlyev.hibernateexample.domain.Genre;
 
+import javax.persistence.EntityManagerFactory;
 import javax.persistence.NoResultException;
 
 import java.util.List;
@@ -23,13 +30,17 @@ class GenreRepositoryImplTest {
     private GenreRepositoryImpl repository;
     @Autowired
     private TestEntityManager em;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
 
     private final Genre expectedNovel = new Genre(1, "Modernist novel");
 
     @Test
     void testCountMethod() {
         final long expected = 1L;
-        final long actual = repository.count();
+        final long actual = repository.count(RowCountMode.EXACT);
 
         assertEquals(expected, actual);
     }
@@ -67,6 +78,22 @@ class GenreRepositoryImplTest {
         assertEquals(expectedNovel, actual);
     }
 
+    @Test
+    void shouldReturnExistingIdWithoutInsert() {
+        assertEquals(1L, repository.getOrCreateIdByName(expectedNovel.getName()));
+        assertEquals(1L, repository.count(RowCountMode.EXACT));
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Test
+    void shouldCreateMissingGenreOnce() {
+        final long id = repository.getOrCreateIdByName("Philosophy");
+
+        assertEquals(id, repository.getOrCreateIdByName("Philosophy"));
+        assertEquals("Philosophy", em.find(Genre.class, id).getName());
+        assertEquals(2L, repository.count(RowCountMode.EXACT));
+    }
+
     @Test
     void shouldThrowExceptionAfterGetGenreByNameMethodInvocation(){
         assertThrows(NoResultException.class, () -> repository.getGenreByName("genre"));
@@ -87,7 +114,7 @@ class GenreRepositoryImplTest {
     @Test
     void testUpdateByComparing() {
         final Genre expected = new Genre(1, "Philosophy");
-        repository.update(expected);
+        repository.update(expected, null);
         final Genre actual = repository.getGenreById(1L).get();
 
         assertEquals(expected, actual);
@@ -106,4 +133,26 @@ class GenreRepositoryImplTest {
         repository.deleteById(1L);
         assertNull(em.find(Book.class, 1L));
     }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Test
+    void shouldEvictOnlyUpdatedAndDeletedGenreFromSecondLevelCache() {
+        final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        final long otherId = transaction.execute(status -> repository.save(new Genre(0L, "Philosophy")).getId());
+        transaction.executeWithoutResult(status -> repository.getGenreById(1L));
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        transaction.executeWithoutResult(status -> repository.update(new Genre(1L, "Updated"), null));
+        transaction.executeWithoutResult(status -> repository.deleteById(1L));
+        final Genre other = transaction.execute(status -> repository.getGenreById(otherId).orElseThrow());
+
+        assertEquals("Philosophy", other.getName());
+        // update and delete both find the cached row and the other genre stays cached
+        assertEquals(3L, statistics.getDomainDataRegionStatistics("genres").getHitCount());
+        assertEquals(0L, statistics.getDomainDataRegionStatistics("genres").getMissCount());
+        assertTrue(transaction.execute(status -> repository.getGenreById(1L)).isEmpty());
+    }
 }
@@ -0,0 +1,36 @@
+package ru.fazlyev.hibernateexample.repository;
+
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Locale;
+
+public class H2RowCountTrigger implements Trigger {
+    private String table;
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName, String tableName, boolean before,
+                     int type) {
+        table = tableName.toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+        try (PreparedStatement statement = conn.prepareStatement
+                ("UPDATE row_counts SET row_count = row_count + ? WHERE table_name = ? AND slot = 0")) {
+            statement.setLong(1, newRow == null ? -1 : 1);
+            statement.setString(2, table);
+            statement.executeUpdate();
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void remove() {
+    }
+}
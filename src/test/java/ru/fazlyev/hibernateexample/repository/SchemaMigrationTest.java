@@ -0,0 +1,127 @@
+package ru.fazlyev.hibernateexample.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = {"spring.flyway.enabled=true", "spring.datasource.initialization-mode=never",
+        "spring.jpa.hibernate.ddl-auto=validate"})
+class SchemaMigrationTest {
+    private static final Pattern SCAN_COUNT = Pattern.compile("scanCount: (\\d+)");
+    private static final List<String> LOOKUPS = List.of(
+            "SELECT a.id FROM authors a WHERE a.name = 'Author 7'",
+            "SELECT g.id FROM genres g WHERE g.name = 'Genre 7'",
+            "SELECT b.id FROM books b WHERE b.title = 'Book 7'",
+            "SELECT b.id FROM books b WHERE b.author_id = 7",
+            "SELECT b.id FROM books b WHERE b.genre_id = 7",
+            "SELECT c.id FROM comments c WHERE c.content = 'Comment 7'",
+            "SELECT c.id FROM comments c WHERE c.book_id = 7");
+
+    private static final List<String> GENRE_PAGES = List.of(
+            "SELECT b.id FROM books b WHERE b.genre_id = (SELECT g.id FROM genres g WHERE g.name = 'Genre 1') " +
+                    "ORDER BY b.genre_id, b.title, b.id LIMIT 21 OFFSET 40",
+            "SELECT b.id FROM books b WHERE b.genre_id = (SELECT g.id FROM genres g WHERE g.name = 'Genre 1') " +
+                    "ORDER BY b.genre_id, b.id LIMIT 21 OFFSET 40",
+            "SELECT b.id FROM books b WHERE b.author_id = (SELECT a.id FROM authors a WHERE a.name = 'Author 1') " +
+                    "ORDER BY b.author_id, b.title, b.id LIMIT 21 OFFSET 40");
+
+    private static final List<String> ROW_COUNTS = List.of(
+            "SELECT SUM(row_count) FROM row_counts WHERE table_name = 'authors'",
+            "SELECT SUM(row_count) FROM row_counts WHERE table_name = 'genres'",
+            "SELECT SUM(row_count) FROM row_counts WHERE table_name = 'books'",
+            "SELECT SUM(row_count) FROM row_counts WHERE table_name = 'comments'");
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void shouldCreateLookupIndexes() {
+        final List<String> indexes = new JdbcTemplate(dataSource).queryForList(
+                "SELECT LOWER(index_name) FROM information_schema.indexes WHERE table_schema = 'PUBLIC'", String.class);
+
+        assertThat(indexes).contains("idx_books_title", "idx_books_author_id", "idx_books_genre_id",
+                "idx_books_author_id_title", "idx_books_genre_id_title", "idx_comments_content",
+                "idx_comments_book_id");
+    }
+
+    @Test
+    void shouldKeepLookupCostIndependentOfTableSize() {
+        final JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+
+        fill(jdbc, 1, 1_000);
+        final List<Long> small = scanCounts(jdbc);
+        fill(jdbc, 1_001, 50_000);
+        final List<Long> large = scanCounts(jdbc);
+
+        assertEquals(small, large);
+        assertThat(large).allMatch(rows -> rows <= 3);
+    }
+
+    @Test
+    void shouldKeepPageCostIndependentOfGenreSize() {
+        final JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.update("INSERT INTO authors (id, name) VALUES (1, 'Author 1')");
+        jdbc.update("INSERT INTO genres (id, name) VALUES (1, 'Genre 1')");
+
+        final List<List<Long>> costs = new ArrayList<>();
+        int size = 0;
+        for (int genreSize : List.of(100, 10_000, 100_000)) {
+            jdbc.update("INSERT INTO books (id, title, author_id, genre_id) " +
+                    "SELECT x, 'Book ' || MOD(x * 7919, 100003), 1, 1 FROM SYSTEM_RANGE(?, ?)", size + 1, genreSize);
+            size = genreSize;
+            costs.add(scanCounts(jdbc, GENRE_PAGES));
+        }
+
+        assertThat(costs).allMatch(costs.get(0)::equals);
+        assertThat(costs.get(0)).allMatch(rows -> rows <= 62);
+    }
+
+    @Test
+    void shouldMaintainRowCountsThroughInsertsAndCascadingDeletes() {
+        final JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+
+        fill(jdbc, 1, 10_000);
+        jdbc.update("DELETE FROM authors WHERE id <= 100");
+        jdbc.update("DELETE FROM comments WHERE id > 9900");
+
+        assertThat(rowCounts(jdbc)).containsExactly(9_900L, 10_000L, 9_900L, 9_800L);
+        assertThat(scanCounts(jdbc, ROW_COUNTS)).allMatch(rows -> rows <= 16);
+    }
+
+    private static List<Long> rowCounts(JdbcTemplate jdbc) {
+        return ROW_COUNTS.stream().map(sql -> jdbc.queryForObject(sql, Long.class)).collect(Collectors.toList());
+    }
+
+    private static void fill(JdbcTemplate jdbc, int from, int to) {
+        jdbc.update("INSERT INTO authors (id, name) SELECT x, 'Author ' || x FROM SYSTEM_RANGE(?, ?)", from, to);
+        jdbc.update("INSERT INTO genres (id, name) SELECT x, 'Genre ' || x FROM SYSTEM_RANGE(?, ?)", from, to);
+        jdbc.update("INSERT INTO books (id, title, author_id, genre_id) SELECT x, 'Book ' || x, x, x " +
+                "FROM SYSTEM_RANGE(?, ?)", from, to);
+        jdbc.update("INSERT INTO comments (id, book_id, content) SELECT x, x, 'Comment ' || x " +
+                "FROM SYSTEM_RANGE(?, ?)", from, to);
+    }
+
+    private static List<Long> scanCounts(JdbcTemplate jdbc) {
+        return scanCounts(jdbc, LOOKUPS);
+    }
+
+    private static List<Long> scanCounts(JdbcTemplate jdbc, List<String> queries) {
+        return queries.stream().map(sql -> {
+            final String plan = jdbc.queryForObject("EXPLAIN ANALYZE " + sql, String.class);
+            final Matcher matcher = SCAN_COUNT.matcher(plan);
+            assertThat(matcher.find()).as(plan).isTrue();
+            return Long.parseLong(matcher.group(1));
+        }).collect(Collectors.toList());
+    }
+}
@@ -5,23 +5,44 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.fazlyev.hibernateexample.domain.Author;
 import ru.fazlyev.hibernateexample.repository.AuthorRepositoryImpl;
+import ru.fazlyev.hibernateexample.repository.BookRepositoryImpl;
+import ru.fazlyev.hibernateexample.repository.CommentRepositoryImpl;
+import ru.fazlyev.hibernateexample.view.BookView;
 
 import javax.persistence.NoResultException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
+import static ru.fazlyev.hibernateexample.sql.SqlStatements.assertAtMost;
 
 @DataJpaTest
-@Import({AuthorRepositoryImpl.class, AuthorServiceImpl.class})
+@Import({AuthorRepositoryImpl.class, AuthorServiceImpl.class, BookRepositoryImpl.class, CommentRepositoryImpl.class,
+        NameIdCache.class, BookLookupCache.class, BookSearchIndex.class, CommentSearchIndex.class, CatalogStatistics.class})
 class AuthorServiceImplTest {
     @Autowired
     private AuthorServiceImpl service;
     @Autowired
+    private BookLookupCache bookLookupCache;
+    @Autowired
+    private CommentSearchIndex commentSearchIndex;
+    @Autowired
     private TestEntityManager em;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
 
     private Author jamesJoyce = new Author(1L, "James Joyce");
 
@@ -29,7 +50,7 @@ class AuthorServiceImplTest {
     @Test
     void testSaveByComparing() {
         final Author foucault = new Author(0L, "Michel Foucault");
-        service.saveAuthor(foucault.getName());
+        assertAtMost(2, () -> service.saveAuthor(foucault.getName()));
 
         final Author actual = service.getAuthorById(2L);
 
@@ -38,21 +59,21 @@ class AuthorServiceImplTest {
 
     @Test
     void shouldReturnCorrectAuthorById() {
-        final Author actual = service.getAuthorById(1L);
+        final Author actual = assertAtMost(1, () -> service.getAuthorById(1L));
 
         assertEquals(jamesJoyce, actual);
     }
 
     @Test
     void shouldReturnCorrectAuthorByName() {
-        final Author actual = service.getAuthorByName(jamesJoyce.getName());
+        final Author actual = assertAtMost(1, () -> service.getAuthorByName(jamesJoyce.getName()));
 
         assertEquals(jamesJoyce, actual);
     }
 
     @Test
     void shouldThrowExceptionAfterGetAuthorByNameMethodInvocation() {
-        assertThrows(NoResultException.class, () -> service.getAuthorByName("author"));
+        assertThrows(NoResultException.class, () -> assertAtMost(1, () -> service.getAuthorByName("author")));
     }
 
     @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
@@ -63,7 +84,7 @@ class AuthorServiceImplTest {
 
         service.saveAuthor(foucault.getName());
 
-        final List<Author> actual = service.getAll();
+        final List<Author> actual = assertAtMost(1, () -> service.getAll());
 
         assertThat(actual).isNotNull().matches(a -> a.size() == expected.size())
                 .matches(a -> a.get(0).getName().equals(expected.get(0).getName()))
@@ -73,7 +94,7 @@ class AuthorServiceImplTest {
     @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
     @Test
     void testUpdateAuthorMethodByComparing() {
-        service.updateAuthor(1L, "Author");
+        assertAtMost(2, () -> service.updateAuthor(1L, "Author"));
 
         final Author actualAuthor = em.find(Author.class, 1L);
         assertThat(actualAuthor).isNotNull().matches(s -> !s.getName().isBlank())
@@ -84,8 +105,69 @@ class AuthorServiceImplTest {
     @Test
     void authorShouldBeDeletedCorrectly() {
         final String expected = "James Joyce was deleted";
-        final String actual = service.deleteAuthorById(1L);
+        final String actual = assertAtMost(4, () -> service.deleteAuthorById(1L));
 
         assertEquals(expected, actual);
     }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Test
+    void shouldRemoveCommentsOfDeletedAuthorsFromSearchIndex() {
+        commentSearchIndex.index(1L, "Published in 1922");
+
+        assertAtMost(3, () -> service.deleteAuthorsByIds(List.of(1L)));
+
+        assertEquals(0L, commentSearchIndex.size());
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Test
+    void shouldInvalidateBookLookupsOfRenamedAuthor() {
+        final BookView ulysses = new BookView(1L, "Ulysses", 1L, "James Joyce", 1L, "Modernist novel");
+        bookLookupCache.get(BookLookupCache.Lookup.AUTHOR, "James Joyce", name -> ulysses);
+
+        assertAtMost(1, () -> service.updateAuthor(1L, "Joyce"));
+
+        final BookView reloaded = new BookView(1L, "Ulysses", 1L, "Joyce", 1L, "Modernist novel");
+        assertSame(reloaded, bookLookupCache.get(BookLookupCache.Lookup.AUTHOR, "James Joyce", name -> reloaded));
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Test
+    void shouldNotLoseConcurrentVersionedUpdates() throws Exception {
+        final int threads = 8;
+        final int updatesPerThread = 25;
+        service.updateAuthor(1L, "Counter 0");
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                workers.add(executor.submit(() -> {
+                    for (int done = 0; done < updatesPerThread; ) {
+                        final Author current = assertAtMost(1, () -> service.getAuthorById(1L));
+                        final int counter = Integer.parseInt(current.getName().substring("Counter ".length()));
+                        try {
+                            assertAtMost(2, () -> service.updateAuthor(1L, "Counter " + (counter + 1),
+                                    current.getVersion()));
+                            done++;
+                        } catch (OptimisticLockingFailureException e) {
+                            // another editor won, re-read and retry
+                        }
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        final Author actual = new TransactionTemplate(transactionManager)
+                .execute(status -> service.getAuthorById(1L));
+        assertEquals("Counter " + threads * updatesPerThread, actual.getName());
+        assertEquals(threads * updatesPerThread + 1L, actual.getVersion());
+    }
 }
@@ -0,0 +1,87 @@
+package ru.fazlyev.hibernateexample.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookSearchIndexTest {
+    private final BookSearchIndex index = new BookSearchIndex(0.3);
+
+    @Test
+    void shouldFindMisspelledTitleAmongManyBooks() {
+        final Random random = new Random(42);
+        for (long id = 1; id <= 200_000; id++) {
+            index.index(id, randomWord(random) + " " + randomWord(random), id % 1_000, randomWord(random), 1L);
+        }
+        index.index(200_001L, "The Man Without Qualities", 1_001L, "Robert Musil", 1L);
+
+        final List<BookSearchIndex.Match> matches = index.search("man withot qualitys", 5);
+
+        assertEquals(200_001L, index.size());
+        assertEquals(200_001L, matches.get(0).getBookId());
+        assertTrue(matches.get(0).getSimilarity() > 0.3);
+    }
+
+    @Tag("benchmark")
+    @Test
+    void shouldSearchAMillionTitlesWithinAMillisecond() {
+        final Random random = new Random(42);
+        for (long id = 1; id <= 1_000_000; id++) {
+            index.index(id, randomWord(random) + " " + randomWord(random), id % 10_000, randomWord(random), id % 100);
+        }
+        index.index(1_000_001L, "The Man Without Qualities", 10_001L, "Robert Musil", 1L);
+
+        final long[] latencies = new long[1_000];
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < latencies.length; i++) {
+                final long start = System.nanoTime();
+                final List<BookSearchIndex.Match> matches = index.search("man withot qualitys", 5);
+                latencies[i] = System.nanoTime() - start;
+                assertEquals(1_000_001L, matches.get(0).getBookId());
+            }
+        }
+        Arrays.sort(latencies);
+
+        assertThat(latencies[latencies.length / 2]).isLessThan(TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    @Test
+    void shouldDropRemovedBooksAndBooksOfRemovedAuthorsAndGenres() {
+        index.index(1L, "Ulysses", 1L, "James Joyce", 1L);
+        index.index(2L, "Dubliners", 1L, "James Joyce", 2L);
+        index.index(3L, "Dubliners Revisited", 2L, "Someone Else", 3L);
+
+        index.remove(3L);
+        assertEquals(List.of(2L), ids(index.search("Dubliners", 10)));
+
+        index.removeGenre(2L);
+        assertEquals(List.of(), index.search("Dubliners", 10));
+
+        index.renameAuthor(1L, "Jim Joyce");
+        assertEquals(List.of(1L), ids(index.search("Jim Joyce", 10)));
+        assertEquals(List.of(), index.search("James", 10));
+
+        index.removeAuthor(1L);
+        assertEquals(0L, index.size());
+    }
+
+    private static String randomWord(Random random) {
+        final char[] word = new char[5 + random.nextInt(5)];
+        for (int i = 0; i < word.length; i++) {
+            word[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(word);
+    }
+
+    private static List<Long> ids(List<BookSearchIndex.Match> matches) {
+        return matches.stream().map(BookSearchIndex.Match::getBookId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,119 @@
+package ru.fazlyev.hibernateexample.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.fazlyev.hibernateexample.repository.AuthorRepositoryImpl;
+import ru.fazlyev.hibernateexample.repository.BookRepositoryImpl;
+import ru.fazlyev.hibernateexample.repository.CommentRepositoryImpl;
+import ru.fazlyev.hibernateexample.repository.GenreRepositoryImpl;
+import ru.fazlyev.hibernateexample.view.BookView;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.fazlyev.hibernateexample.sql.SqlStatements.assertAtMost;
+
+@DataJpaTest(properties = {"app.search.rebuild-on-startup=true", "app.search.books.rebuild-page-size=2"})
+@Import({BookSearchServiceImpl.class, BookSearchIndex.class, BookServiceImpl.class, AuthorServiceImpl.class,
+        BookRepositoryImpl.class, AuthorRepositoryImpl.class, GenreRepositoryImpl.class, NameIdCache.class,
+        CommentRepositoryImpl.class, BookLookupCache.class, CommentSearchIndex.class, CatalogStatistics.class})
+class BookSearchServiceImplTest {
+    @Autowired
+    private BookSearchServiceImpl searchService;
+    @Autowired
+    private BookServiceImpl bookService;
+    @Autowired
+    private AuthorServiceImpl authorService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final BookView ulysses = new BookView(1L, "Ulysses", 1L, "James Joyce", 1L, "Modernist novel");
+
+    @Test
+    void shouldFindBooksByMisspelledOrPartialTitleAndAuthor() {
+        assertEquals(List.of(ulysses), search("Ulyses", 10));
+        assertEquals(List.of(ulysses), search("ulys", 10));
+        assertEquals(List.of(ulysses), search("James Joice", 10));
+        assertEquals(List.of(), search("Discipline", 10));
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Test
+    void shouldRankMostSimilarTitleFirstAndFollowWrites() {
+        bookService.saveBook("Dubliners", "James Joyce", "Modernist novel");
+        bookService.saveBook("Dublin Murder Squad", "Tana French", "Crime");
+
+        assertEquals(List.of("Dubliners", "Dublin Murder Squad"), titles(search("Dubliner", 10)));
+
+        final long dublinersId = search("Dubliners", 1).get(0).getId();
+        bookService.updateBook(dublinersId, "Finnegans Wake", "James Joyce", "Modernist novel");
+        assertEquals(List.of("Dublin Murder Squad"), titles(search("Dubliner", 10)));
+        assertEquals(List.of("Finnegans Wake"), titles(search("Finnegan", 10)));
+
+        bookService.deleteBookById(dublinersId);
+        assertEquals(List.of(), search("Finnegan", 10));
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Test
+    void shouldFollowAuthorRenames() {
+        authorService.updateAuthor(1L, "Augustine Joyce");
+
+        assertEquals(List.of(1L), ids(search("Augustine", 10)));
+        assertEquals(List.of(), search("James", 10));
+    }
+
+    @Test
+    void shouldNotIndexUncommittedBooks() {
+        bookService.saveBook("Dubliners", "James Joyce", "Modernist novel");
+
+        assertEquals(List.of(), search("Dubliners", 10));
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Test
+    void shouldRebuildIndexFromDatabasePageByPage() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            final EntityManager em = entityManagerFactory.createEntityManager();
+            em.joinTransaction();
+            for (int id = 2; id <= 5; id++) {
+                em.createNativeQuery("INSERT INTO books (id, title, author_id, genre_id) VALUES (?, ?, 1, 1)")
+                        .setParameter(1, id).setParameter(2, "Imported volume " + id).executeUpdate();
+            }
+            em.close();
+        });
+        assertEquals(List.of(), search("Imported volume", 10));
+
+        assertEquals(5L, assertAtMost(3, () -> searchService.rebuildIndex()));
+
+        assertEquals(4, search("Imported volume", 10).size());
+        assertEquals(List.of(ulysses), search("Ulysses", 10));
+    }
+
+    private List<BookView> search(String query, int limit) {
+        return assertAtMost(1, () -> searchService.search(query, limit));
+    }
+
+    private static List<String> titles(List<BookView> books) {
+        return books.stream().map(BookView::getTitle).collect(Collectors.toList());
+    }
+
+    private static List<Long> ids(List<BookView> books) {
+        return books.stream().map(BookView::getId).collect(Collectors.toList());
+    }
+}
@@ -1,41 +1,66 @@
 package ru.fazlyev.hibernateexample.service;
 
+import org.hibernate.Session;
+import org.hibernate.FlushMode;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.fazlyev.hibernateexample.domain.Author;
 import ru.fazlyev.hibernateexample.domain.Book;
 import ru.fazlyev.hibernateexample.domain.Comment;
 import ru.fazlyev.hibernateexample.domain.Genre;
 import ru.fazlyev.hibernateexample.repository.AuthorRepositoryImpl;
 import ru.fazlyev.hibernateexample.repository.BookRepositoryImpl;
+import ru.fazlyev.hibernateexample.repository.CommentRepositoryImpl;
 import ru.fazlyev.hibernateexample.repository.GenreRepositoryImpl;
+import ru.fazlyev.hibernateexample.view.BookView;
 
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.NoResultException;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
+import static ru.fazlyev.hibernateexample.sql.SqlStatements.assertAtMost;
 
 @DataJpaTest
 @Import({BookServiceImpl.class, BookRepositoryImpl.class,
-        AuthorRepositoryImpl.class, GenreRepositoryImpl.class})
+        AuthorRepositoryImpl.class, GenreRepositoryImpl.class, NameIdCache.class, BookLookupCache.class,
+        CommentRepositoryImpl.class, BookSearchIndex.class, CommentSearchIndex.class, CatalogStatistics.class})
 class BookServiceImplTest {
     @Autowired
     private BookServiceImpl service;
     @Autowired
+    private CommentSearchIndex commentSearchIndex;
+    @Autowired
     private TestEntityManager em;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
 
     private final Book expectedUlysses = new Book(1L, "Ulysses", new Author(1, "James Joyce"),
             new Genre(1, "Modernist novel"));
+    private final BookView expectedUlyssesView = new BookView(1L, "Ulysses", 1L, "James Joyce",
+            1L, "Modernist novel");
 
     @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
     @Test
     void testSaveBookMethodWithParameters() {
-        service.saveBook("Discipline and Punish", "Michel Foucault",
-                "Philosophy");
+        assertAtMost(4, () -> service.saveBook("Discipline and Punish", "Michel Foucault", "Philosophy"));
 
         final Book actualBook = em.find(Book.class, 2L);
         assertThat(actualBook).isNotNull().matches(s -> !s.getTitle().equals(""))
@@ -48,8 +73,8 @@ class BookServiceImplTest {
 
     @Test
     void testSaveBookMethodWithOldAuthorAndGenre() {
-        service.saveBook("A Portrait of the Artist as a Young Man",
-                "James Joyce", "Modernist novel");
+        assertAtMost(6, () -> service.saveBook("A Portrait of the Artist as a Young Man",
+                "James Joyce", "Modernist novel"));
 
         final Book actualBook = em.find(Book.class, 2L);
         assertThat(actualBook).isNotNull().matches(s -> !s.getTitle().equals(""))
@@ -60,37 +85,87 @@ class BookServiceImplTest {
                 .matches(s -> s.getGenre().getId() == 1);
     }
 
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Test
+    void shouldBatchBookInserts() {
+        final Statistics statistics = em.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        service.saveBook("Dubliners", "James Joyce", "Modernist novel");
+        em.flush();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        assertAtMost(4, () -> {
+            for (int i = 0; i < 100; i++) {
+                service.saveBook("Book " + i, "James Joyce", "Modernist novel");
+            }
+        });
+
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(100L);
+        // author and genre ids come from the cache, leaving two sequence calls and one batched insert
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2L + 1L);
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Test
+    void shouldNotLookUpCachedAuthorAndGenreAfterCommit() {
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        service.saveBook("Dubliners", "Michel Foucault", "Philosophy");
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        assertAtMost(1, () -> service.saveBook("Discipline and Punish", "Michel Foucault", "Philosophy"));
+
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(1L);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1L);
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Test
+    void shouldNotCreateDuplicateAuthorAndGenre() {
+        assertAtMost(4, () -> {
+            service.saveBook("Dubliners", "Michel Foucault", "Philosophy");
+            service.saveBook("Discipline and Punish", "Michel Foucault", "Philosophy");
+        });
+
+        assertEquals(1L, em.getEntityManager().createQuery(
+                "select count(a) from Author a where a.name = 'Michel Foucault'", Long.class).getSingleResult());
+        assertEquals(1L, em.getEntityManager().createQuery(
+                "select count(g) from Genre g where g.name = 'Philosophy'", Long.class).getSingleResult());
+    }
+
     @Test
     void shouldReturnCorrectBookById() {
-        final Book actual = service.getBookById(1L);
+        final Book actual = assertAtMost(1, () -> service.getBookById(1L));
 
         assertEquals(expectedUlysses, actual);
     }
 
     @Test
     void shouldReturnCorrectBookByTitle() {
-        final Book actual = service.getBookByTitle(expectedUlysses.getTitle());
+        final BookView actual = assertAtMost(1, () -> service.getBookByTitle(expectedUlysses.getTitle()));
 
-        assertEquals(expectedUlysses, actual);
+        assertEquals(expectedUlyssesView, actual);
     }
 
     @Test
     void shouldReturnCorrectBookByAuthor() {
-        final Book actual = service.getBookByAuthor(expectedUlysses.getAuthor().getName());
+        final BookView actual = assertAtMost(1, () -> service.getBookByAuthor(expectedUlysses.getAuthor().getName()));
 
-        assertEquals(expectedUlysses, actual);
+        assertEquals(expectedUlyssesView, actual);
     }
 
     @Test
     void shouldReturnCorrectBookByGenre() {
-        final Book actual = service.getBookByGenre(expectedUlysses.getGenre().getName());
+        final BookView actual = assertAtMost(1, () -> service.getBookByGenre(expectedUlysses.getGenre().getName()));
 
-        assertEquals(expectedUlysses, actual);
+        assertEquals(expectedUlyssesView, actual);
     }
 
     @Test
     void shouldReturnCorrectBookByComment() {
-        final Book actual = service.getBookByComment("Published in 1922");
+        final Book actual = assertAtMost(1, () -> service.getBookByComment("Published in 1922"));
 
         assertEquals(expectedUlysses, actual);
     }
@@ -104,7 +179,7 @@ class BookServiceImplTest {
         final List<Book> expected = List.of(expectedUlysses, book);
 
         service.saveBook("Discipline And Punish", "Michel Foucault", "Philosophy");
-        final List<Book> actual = service.getAll();
+        final List<BookView> actual = assertAtMost(1, () -> service.getAll());
 
         assertThat(actual).isNotNull().matches(a -> a.size() == expected.size());
     }
@@ -112,8 +187,7 @@ class BookServiceImplTest {
     @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
     @Test
     void testUpdateBookMethodWithParameters() {
-        service.updateBook(1L, "Discipline and Punish", "Michel Foucault",
-                "Philosophy");
+        assertAtMost(4, () -> service.updateBook(1L, "Discipline and Punish", "Michel Foucault", "Philosophy"));
 
         final Book actualBook = em.find(Book.class, 1L);
         assertThat(actualBook).isNotNull().matches(s -> !s.getTitle().equals(""))
@@ -126,8 +200,8 @@ class BookServiceImplTest {
 
     @Test
     void testUpdateBookMethodWithOldAuthorAndGenre() {
-        service.updateBook(1L, "A Portrait of the Artist as a Young Man",
-                "James Joyce", "Modernist novel");
+        assertAtMost(6, () -> service.updateBook(1L, "A Portrait of the Artist as a Young Man",
+                "James Joyce", "Modernist novel"));
 
         final Book actualBook = em.find(Book.class, 1L);
         assertThat(actualBook).isNotNull().matches(s -> !s.getTitle().equals(""))
@@ -138,11 +212,145 @@ class BookServiceImplTest {
                 .matches(s -> s.getGenre().getId() == 1);
     }
 
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Test
+    void shouldUpdateBookOnlyWhenExpectedVersionMatches() {
+        assertAtMost(6, () -> service.updateBook(1L, "Dubliners", "James Joyce", "Modernist novel", 0L));
+
+        assertThrows(OptimisticLockingFailureException.class, () -> assertAtMost(2,
+                () -> service.updateBook(1L, "Finnegans Wake", "James Joyce", "Modernist novel", 0L)));
+        assertThrows(IllegalArgumentException.class, () -> assertAtMost(2,
+                () -> service.updateBook(10_000L, "Finnegans Wake", "James Joyce", "Modernist novel", 0L)));
+        em.clear();
+        final Book actual = em.find(Book.class, 1L);
+        assertEquals("Dubliners", actual.getTitle());
+        assertEquals(1L, actual.getVersion());
+    }
+
     @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
     @Test
     void commentShouldBeDeletedBeforeBookDeletionAndCheckCorrectBookDeletion() {
-        service.deleteBookById(1L);
+        assertAtMost(2, () -> service.deleteBookById(1L));
         assertNull(em.find(Comment.class, 1L));
         assertThrows(IllegalArgumentException.class, () -> service.getBookById(1L));
     }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Test
+    void shouldRemoveCascadedCommentsFromSearchIndex() {
+        commentSearchIndex.index(1L, "Published in 1922");
+
+        assertAtMost(2, () -> service.deleteBooksByIds(List.of(1L)));
+
+        assertEquals(0L, commentSearchIndex.size());
+    }
+
+    @Test
+    void shouldServeRepeatedLookupFromCache() {
+        final Statistics statistics = em.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        service.getBookByTitle("Ulysses");
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        final BookView actual = assertAtMost(0, () -> service.getBookByTitle("Ulysses"));
+
+        assertEquals(expectedUlyssesView, actual);
+        assertEquals(0L, statistics.getPrepareStatementCount());
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Test
+    void shouldInvalidateLookupsOfUpdatedBook() {
+        service.getBookByAuthor("James Joyce");
+        service.getBookByGenre("Modernist novel");
+
+        assertAtMost(6, () -> service.updateBook(1L, "Dubliners", "James Joyce", "Modernist novel"));
+        em.clear();
+
+        assertEquals("Dubliners", service.getBookByAuthor("James Joyce").getTitle());
+        assertEquals("Dubliners", service.getBookByGenre("Modernist novel").getTitle());
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Test
+    void shouldInvalidateLookupsOfDeletedBook() {
+        service.getBookByTitle("Ulysses");
+
+        assertAtMost(2, () -> service.deleteBookById(1L));
+
+        assertThrows(NoResultException.class, () -> service.getBookByTitle("Ulysses"));
+    }
+
+    @Test
+    void shouldLoadFullBookInOneStatement() {
+        final Book[] book = new Book[1];
+
+        assertEquals(1L, countStatements(() -> book[0] = assertAtMost(1, () -> service.getBookById(1L))));
+        assertEquals(expectedUlysses.toString(), book[0].toString());
+    }
+
+    @Test
+    void shouldListBooksInOneStatement() {
+        final List<BookView> books = new ArrayList<>();
+
+        assertEquals(1L, countStatements(() -> books.addAll(assertAtMost(1, () -> service.getAll()))));
+        assertEquals(List.of(expectedUlyssesView), books);
+        assertEquals(1L, countStatements(() -> assertAtMost(1, () -> service.getPage(0L, 20))));
+    }
+
+    @Test
+    void shouldNotManageEntitiesReadThroughViews() {
+        em.clear();
+
+        assertAtMost(3, () -> {
+            service.getAll();
+            service.getBookByTitle("Ulysses");
+            service.getPage(0L, 20);
+        });
+
+        assertEquals(0, em.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    void shouldLoadEntitiesReadOnlyWithoutSnapshots() {
+        em.clear();
+
+        final Book book = assertAtMost(1, () -> service.getBookByComment("Published in 1922"));
+
+        final SessionImplementor session = em.getEntityManager().unwrap(SessionImplementor.class);
+        assertTrue(session.isReadOnly(book));
+        assertNull(session.getPersistenceContext().getEntry(book).getLoadedState());
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Test
+    void shouldNeitherFlushNorSnapshotInReadOnlyTransactions() {
+        final TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        readOnly.executeWithoutResult(status -> {
+            final SessionImplementor session = EntityManagerFactoryUtils
+                    .getTransactionalEntityManager(entityManagerFactory).unwrap(SessionImplementor.class);
+            final Book book = assertAtMost(1, () -> service.getBookById(1L));
+
+            assertEquals(FlushMode.MANUAL, session.getHibernateFlushMode());
+            assertTrue(session.isDefaultReadOnly());
+            assertTrue(session.isReadOnly(book));
+            assertNull(session.getPersistenceContext().getEntry(book).getLoadedState());
+        });
+    }
+
+    private long countStatements(Runnable action) {
+        final Statistics statistics = em.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        em.clear();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        action.run();
+        final long statements = statistics.getPrepareStatementCount();
+        em.clear();
+        return statements;
+    }
 }
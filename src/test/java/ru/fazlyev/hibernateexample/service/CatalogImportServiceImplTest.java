@@ -0,0 +1,194 @@
+package ru.fazlyev.hibernateexample.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.fazlyev.hibernateexample.domain.Book;
+import ru.fazlyev.hibernateexample.domain.Comment;
+import ru.fazlyev.hibernateexample.importer.CatalogImportException;
+import ru.fazlyev.hibernateexample.importer.ImportReport;
+import ru.fazlyev.hibernateexample.importer.PostgresCopyLoader;
+import ru.fazlyev.hibernateexample.repository.AuthorRepositoryImpl;
+import ru.fazlyev.hibernateexample.repository.BookRepositoryImpl;
+import ru.fazlyev.hibernateexample.repository.CommentRepositoryImpl;
+import ru.fazlyev.hibernateexample.repository.GenreRepositoryImpl;
+import ru.fazlyev.hibernateexample.view.BookView;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static ru.fazlyev.hibernateexample.sql.SqlStatements.assertAtMost;
+
+@DataJpaTest(properties = "app.import.chunk-size=2")
+@Import({CatalogImportServiceImpl.class, AuthorRepositoryImpl.class, GenreRepositoryImpl.class,
+        BookRepositoryImpl.class, CommentRepositoryImpl.class, PostgresCopyLoader.class, BookSearchIndex.class,
+        CommentSearchIndex.class, CatalogStatistics.class})
+class CatalogImportServiceImplTest {
+    @Autowired
+    private CatalogImportServiceImpl service;
+    @Autowired
+    private PostgresCopyLoader copyLoader;
+    @Autowired
+    private BookRepositoryImpl bookRepository;
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+    @Autowired
+    private CommentSearchIndex commentSearchIndex;
+    @Autowired
+    private CatalogStatistics catalogStatistics;
+    @Autowired
+    private TestEntityManager em;
+
+    @TempDir
+    Path directory;
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Test
+    void shouldImportCsvAndReuseAuthorsAndGenres() throws IOException {
+        final Path file = write("catalog.csv",
+                "title,author,genre,comments",
+                "Dubliners,James Joyce,Modernist novel,\"Short stories, 1914\"",
+                "Discipline and Punish,Michel Foucault,Philosophy,Published in 1975,Panopticon",
+                "The Order of Things,Michel Foucault,Philosophy");
+
+        final ImportReport report = assertAtMost(10, () -> service.importCatalog(file));
+
+        assertEquals(3L, report.getRecords());
+        assertEquals(3L, report.getComments());
+        assertEquals(1L, report.getAuthorsCreated());
+        assertEquals(1L, report.getGenresCreated());
+        assertThat(report.getRowsPerSecond()).isPositive();
+        assertEquals(1L, countAuthorsNamed("James Joyce"));
+        assertEquals(1L, countAuthorsNamed("Michel Foucault"));
+        assertThat(commentsOf("Dubliners")).containsExactly("Short stories, 1914");
+        assertFalse(Files.exists(directory.resolve("catalog.csv.checkpoint")));
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Test
+    void shouldImportJsonLines() throws IOException {
+        final Path file = write("catalog.jsonl",
+                "{\"title\": \"Dubliners\", \"author\": \"James Joyce\", \"genre\": \"Modernist novel\", " +
+                        "\"comments\": [\"Published in 1914\"]}",
+                "{\"title\": \"Finnegans Wake\", \"author\": \"James Joyce\", \"genre\": \"Modernist novel\"}");
+
+        final ImportReport report = assertAtMost(6, () -> service.importCatalog(file));
+
+        assertEquals(2L, report.getRecords());
+        assertEquals(1L, report.getComments());
+        assertEquals(0L, report.getAuthorsCreated());
+        assertThat(commentsOf("Dubliners")).containsExactly("Published in 1914");
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Test
+    void shouldResumeAfterCommittedRecords() throws IOException {
+        final Path file = write("catalog.csv",
+                "Dubliners,James Joyce,Modernist novel",
+                "Finnegans Wake,James Joyce,Modernist novel",
+                "Discipline and Punish,Michel Foucault,Philosophy");
+        Files.writeString(directory.resolve("catalog.csv.checkpoint"), "2");
+
+        final ImportReport report = assertAtMost(8, () -> service.importCatalog(file));
+
+        assertEquals(2L, report.getResumedFrom());
+        assertEquals(1L, report.getRecords());
+        assertEquals(1L, countBooksTitled("Discipline and Punish"));
+        assertEquals(0L, countBooksTitled("Dubliners"));
+        assertFalse(Files.exists(directory.resolve("catalog.csv.checkpoint")));
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Test
+    void shouldIndexAndCountCommittedChunks() throws IOException {
+        final Path file = write("catalog.csv",
+                "Dubliners,James Joyce,Modernist novel,Published in 1914",
+                "Discipline and Punish,Michel Foucault,Philosophy,Published in 1975,Panopticon");
+
+        assertAtMost(10, () -> service.importCatalog(file));
+
+        assertEquals(3L, commentSearchIndex.size());
+        assertEquals(1L, commentSearchIndex.search("panopticon", 0, 20).getTotal());
+        assertEquals(2L, bookSearchIndex.size());
+        final List<Long> found = bookSearchIndex.search("disciplne and punsh", 1).stream()
+                .map(BookSearchIndex.Match::getBookId).collect(Collectors.toList());
+        assertThat(bookRepository.getViewsByIds(found)).extracting(BookView::getTitle)
+                .containsExactly("Discipline and Punish");
+        assertEquals(List.of(1L, 1L), counts(catalogStatistics.getTopAuthors(10)));
+        assertEquals(List.of(2L, 1L), counts(catalogStatistics.getTopBooks(10)));
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Test
+    void shouldReportMalformedLineAndKeepCheckpoint() throws IOException {
+        final Path file = write("catalog.csv",
+                "Dubliners,James Joyce,Modernist novel",
+                "Finnegans Wake,James Joyce,Modernist novel",
+                "Discipline and Punish,Michel Foucault");
+
+        final CatalogImportException exception = assertThrows(CatalogImportException.class,
+                () -> assertAtMost(3, () -> service.importCatalog(file)));
+
+        assertThat(exception.getMessage()).startsWith("Line 3:");
+        assertEquals("2", Files.readString(directory.resolve("catalog.csv.checkpoint")));
+    }
+
+    @Test
+    void shouldFallBackToJpaWhenCopyIsUnavailable() {
+        assertFalse(copyLoader.isAvailable());
+    }
+
+    @Test
+    void shouldNotOpenConnectionWhenCopyIsDisabled() {
+        final DataSource dataSource = mock(DataSource.class);
+
+        assertFalse(new PostgresCopyLoader(dataSource, false).isAvailable());
+        verifyNoInteractions(dataSource);
+    }
+
+    @Test
+    void shouldRejectUnknownFormat() {
+        assertThrows(IllegalArgumentException.class, () -> service.importCatalog(directory.resolve("catalog.xml")));
+    }
+
+    private Path write(String fileName, String... lines) throws IOException {
+        return Files.write(directory.resolve(fileName), List.of(lines));
+    }
+
+    private long countAuthorsNamed(String name) {
+        return em.getEntityManager().createQuery("select count(a) from Author a where a.name = :name", Long.class)
+                .setParameter("name", name).getSingleResult();
+    }
+
+    private long countBooksTitled(String title) {
+        return em.getEntityManager().createQuery("select count(b) from Book b where b.title = :title", Long.class)
+                .setParameter("title", title).getSingleResult();
+    }
+
+    private List<String> commentsOf(String title) {
+        final Book book = em.getEntityManager().createQuery("select b from Book b where b.title = :title", Book.class)
+                .setParameter("title", title).getSingleResult();
+        return em.getEntityManager().createQuery("select c from Comment c where c.book = :book", Comment.class)
+                .setParameter("book", book).getResultStream().map(Comment::getContent)
+                .collect(Collectors.toList());
+    }
+
+    private static List<Long> counts(List<CatalogStatistics.Count> top) {
+        return top.stream().map(CatalogStatistics.Count::getCount).collect(Collectors.toList());
+    }
+}
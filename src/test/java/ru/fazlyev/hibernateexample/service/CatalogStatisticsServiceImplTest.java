@@ -0,0 +1,167 @@
+package ru.fazlyev.hibernateexample.service;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.fazlyev.hibernateexample.repository.AuthorRepositoryImpl;
+import ru.fazlyev.hibernateexample.repository.BookRepositoryImpl;
+import ru.fazlyev.hibernateexample.repository.CommentRepositoryImpl;
+import ru.fazlyev.hibernateexample.repository.GenreRepositoryImpl;
+import ru.fazlyev.hibernateexample.view.BookView;
+import ru.fazlyev.hibernateexample.view.CountView;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.fazlyev.hibernateexample.sql.SqlStatements.assertAtMost;
+
+@DataJpaTest(properties = {"app.statistics.rebuild-on-startup=true", "app.statistics.rebuild-range-size=2"})
+@Import({CatalogStatisticsServiceImpl.class, CatalogStatistics.class, BookServiceImpl.class,
+        CommentServiceImpl.class, BookRepositoryImpl.class, AuthorRepositoryImpl.class, GenreRepositoryImpl.class,
+        CommentRepositoryImpl.class, NameIdCache.class, BookLookupCache.class, BookSearchIndex.class,
+        CommentSearchIndex.class})
+class CatalogStatisticsServiceImplTest {
+    @Autowired
+    private CatalogStatisticsServiceImpl statisticsService;
+    @Autowired
+    private CatalogStatistics catalogStatistics;
+    @Autowired
+    private BookServiceImpl bookService;
+    @Autowired
+    private CommentServiceImpl commentService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void shouldCountCatalogOnStartup() {
+        assertAtMost(3, () -> {
+            assertEquals(List.of(new CountView(1L, "James Joyce", 1L)), statisticsService.getTopAuthors(10));
+            assertEquals(List.of(new CountView(1L, "Modernist novel", 1L)), statisticsService.getTopGenres(10));
+            assertEquals(List.of(new CountView(1L, "Ulysses", 1L)), statisticsService.getTopBooks(10));
+        });
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Test
+    void shouldUpdateCountsFromWritePaths() {
+        bookService.saveBook("Dubliners", "James Joyce", "Short stories");
+        bookService.saveBook("Discipline and Punish", "Michel Foucault", "Philosophy");
+        bookService.saveBook("The Order of Things", "Michel Foucault", "Philosophy");
+        final long dubliners = bookService.getBookByTitle("Dubliners").getId();
+        final long order = bookService.getBookByTitle("The Order of Things").getId();
+        commentService.saveComment(dubliners, "Fifteen stories");
+        commentService.saveComment(dubliners, "Ends with The Dead");
+
+        assertAtMost(5, () -> {
+            assertEquals(List.of("James Joyce: 2", "Michel Foucault: 2"), names(statisticsService.getTopAuthors(10)));
+            assertEquals(List.of("Philosophy: 2", "Modernist novel: 1"), names(statisticsService.getTopGenres(2)));
+            assertEquals(List.of("Dubliners: 2", "Ulysses: 1"), names(statisticsService.getTopBooks(10)));
+        });
+
+        bookService.moveBooksToGenre(List.of(dubliners), "Modernist novel");
+        bookService.deleteBookById(order);
+        commentService.deleteById(1L);
+
+        assertAtMost(1, () -> {
+            assertEquals(List.of("Modernist novel: 2", "Philosophy: 1"), names(statisticsService.getTopGenres(10)));
+            assertEquals(List.of("James Joyce: 2", "Michel Foucault: 1"), names(statisticsService.getTopAuthors(10)));
+            assertEquals(List.of("Dubliners: 2"), names(statisticsService.getTopBooks(10)));
+        });
+
+        bookService.deleteBooksByIds(List.of(dubliners));
+
+        assertEquals(List.of(), assertAtMost(0, () -> statisticsService.getTopBooks(10)));
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Test
+    void shouldDropBooksAndCommentsOfDeletedAuthorsAndGenres() {
+        final BookView first = new BookView(10L, "First", 5L, "Fifth", 7L, "Seventh");
+        final BookView second = new BookView(11L, "Second", 5L, "Fifth", 8L, "Eighth");
+        final BookView third = new BookView(12L, "Third", 6L, "Sixth", 8L, "Eighth");
+        final CatalogStatistics.Batch batch = new CatalogStatistics.Batch();
+        List.of(first, second, third).forEach(book -> {
+            batch.addBook(book.getAuthorId(), book.getGenreId());
+            batch.addComment(book.getId());
+        });
+        catalogStatistics.putAll(batch);
+
+        catalogStatistics.removeAuthors(List.of(5L), List.of(first, second));
+
+        assertEquals(List.of(1L, 6L), ids(catalogStatistics.getTopAuthors(10)));
+        assertEquals(List.of(1L, 8L), ids(catalogStatistics.getTopGenres(10)));
+        assertEquals(List.of(1L, 12L), ids(catalogStatistics.getTopBooks(10)));
+
+        catalogStatistics.removeGenres(List.of(8L), List.of(third));
+        catalogStatistics.addBook(6L, 7L);
+        catalogStatistics.addComment(10L);
+
+        assertEquals(List.of(1L, 6L), ids(catalogStatistics.getTopAuthors(10)));
+        assertEquals(List.of(1L, 7L), ids(catalogStatistics.getTopGenres(10)));
+        assertEquals(List.of(1L, 10L), ids(catalogStatistics.getTopBooks(10)));
+        assertEquals(1L, catalogStatistics.getTopBooks(10).get(1).getCount());
+    }
+
+    @Test
+    void shouldNotCountUncommittedWrites() {
+        commentService.saveComment(1L, "Never committed");
+
+        assertEquals(List.of(new CountView(1L, "Ulysses", 1L)),
+                assertAtMost(1, () -> statisticsService.getTopBooks(10)));
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Test
+    void shouldRebuildCountsFromDatabaseOverIdRanges() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            final EntityManager em = entityManagerFactory.createEntityManager();
+            em.joinTransaction();
+            for (int id = 2; id <= 6; id++) {
+                em.createNativeQuery("INSERT INTO comments (id, book_id, content) VALUES (?, 1, ?)")
+                        .setParameter(1, id).setParameter(2, "Imported comment " + id).executeUpdate();
+            }
+            em.close();
+        });
+        assertEquals(List.of(new CountView(1L, "Ulysses", 1L)), statisticsService.getTopBooks(10));
+
+        assertEquals(7L, assertAtMost(6, () -> statisticsService.rebuild()));
+
+        assertEquals(List.of(new CountView(1L, "Ulysses", 6L)), statisticsService.getTopBooks(10));
+        assertEquals(List.of(new CountView(1L, "James Joyce", 1L)), statisticsService.getTopAuthors(10));
+    }
+
+    @Test
+    void shouldReadTopBooksWithSingleStatement() {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getStatistics().setStatisticsEnabled(true);
+        sessionFactory.getStatistics().clear();
+
+        assertThat(assertAtMost(1, () -> statisticsService.getTopBooks(10))).hasSize(1);
+        assertThat(sessionFactory.getStatistics().getPrepareStatementCount()).isEqualTo(1L);
+        assertThrows(IllegalArgumentException.class, () -> statisticsService.getTopBooks(0));
+    }
+
+    private static List<String> names(List<CountView> counts) {
+        return counts.stream().map(CountView::toString).collect(Collectors.toList());
+    }
+
+    private static List<Long> ids(List<CatalogStatistics.Count> top) {
+        return top.stream().map(CatalogStatistics.Count::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,55 @@
+package ru.fazlyev.hibernateexample.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommentSearchIndexTest {
+    private final CommentSearchIndex index = new CommentSearchIndex();
+
+    @Test
+    void shouldRankAndPageManyMatches() {
+        for (long id = 1; id <= 10_000; id++) {
+            index.index(id, id % 100 == 0 ? "dublin dublin dublin" : "dublin");
+        }
+        index.index(10_001L, "nothing to see");
+
+        final CommentSearchIndex.Hits firstPage = index.search("dublin", 0, 3);
+        final CommentSearchIndex.Hits secondPage = index.search("dublin", 3, 3);
+
+        assertEquals(List.of(100L, 200L, 300L), firstPage.getIds());
+        assertEquals(List.of(400L, 500L, 600L), secondPage.getIds());
+        assertEquals(10_000L, firstPage.getTotal());
+        assertEquals(10_001L, index.size());
+    }
+
+    @Test
+    void shouldNotResurrectCommentsDeletedDuringRebuild() {
+        index.index(1L, "Published in 1922");
+        index.index(2L, "Published in Paris");
+
+        final CommentSearchIndex.Rebuild rebuild = index.startRebuild();
+        index.remove(1L);
+        index.index(2L, "Printed in Dijon");
+        rebuild.add(1L, "Published in 1922");
+        rebuild.add(2L, "Published in Paris");
+        rebuild.publish();
+
+        assertEquals(0L, index.search("published", 0, 20).getTotal());
+        assertEquals(List.of(2L), index.search("dijon", 0, 20).getIds());
+        assertEquals(1L, index.size());
+    }
+
+    @Test
+    void shouldKeepLiveSegmentWhenRebuildIsAbandoned() {
+        index.index(1L, "Published in 1922");
+
+        final CommentSearchIndex.Rebuild rebuild = index.startRebuild();
+        rebuild.add(2L, "Published in Paris");
+        rebuild.abandon();
+
+        assertEquals(List.of(1L), index.search("published", 0, 20).getIds());
+    }
+}
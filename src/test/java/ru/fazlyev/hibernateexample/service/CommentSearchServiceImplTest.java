@@ -0,0 +1,132 @@
+package ru.fazlyev.hibernateexample.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.fazlyev.hibernateexample.repository.BookRepositoryImpl;
+import ru.fazlyev.hibernateexample.repository.CommentRepositoryImpl;
+import ru.fazlyev.hibernateexample.view.CommentView;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.fazlyev.hibernateexample.sql.SqlStatements.assertAtMost;
+
+@DataJpaTest(properties = {"app.search.rebuild-on-startup=true", "app.search.rebuild-range-size=2"})
+@Import({CommentSearchServiceImpl.class, CommentSearchIndex.class, CommentServiceImpl.class,
+        CommentRepositoryImpl.class, BookRepositoryImpl.class, CatalogStatistics.class})
+class CommentSearchServiceImplTest {
+    @Autowired
+    private CommentSearchServiceImpl searchService;
+    @Autowired
+    private CommentServiceImpl commentService;
+    @Autowired
+    private CommentSearchIndex searchIndex;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void shouldIndexCommentsOnStartup() {
+        final SearchPage<CommentView> page = search("published", 0, 20);
+
+        assertEquals(List.of(new CommentView(1L, "Published in 1922", 1L, "Ulysses")), page.getContent());
+        assertEquals(1L, page.getTotalHits());
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Test
+    void shouldRankAndPageMatches() {
+        commentService.saveComment(1L, "Dublin, Dublin and Dublin again");
+        commentService.saveComment(1L, "A day in Dublin");
+        commentService.saveComment(1L, "Bloom walks through Dublin on a day in June");
+
+        final SearchPage<CommentView> firstPage = search("dublin day", 0, 2);
+        final SearchPage<CommentView> secondPage = search("dublin day", 1, 2);
+
+        assertEquals(List.of("A day in Dublin", "Bloom walks through Dublin on a day in June"),
+                contents(firstPage));
+        assertTrue(firstPage.hasNext());
+        assertEquals(List.of("Dublin, Dublin and Dublin again"), contents(secondPage));
+        assertFalse(secondPage.hasNext());
+        assertEquals(3L, secondPage.getTotalHits());
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Test
+    void shouldUpdateIndexOnCommentUpdateAndDelete() {
+        commentService.updateComment(1L, 1L, "First published in Paris");
+
+        assertEquals(0L, search("1922", 0, 20).getTotalHits());
+        assertEquals(List.of("First published in Paris"), contents(search("paris", 0, 20)));
+
+        commentService.deleteById(1L);
+
+        assertEquals(0L, search("paris", 0, 20).getTotalHits());
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Test
+    void shouldCountOnlyResolvedHits() {
+        searchIndex.index(99L, "Published nowhere");
+
+        final SearchPage<CommentView> page = search("published", 0, 20);
+
+        assertEquals(List.of(new CommentView(1L, "Published in 1922", 1L, "Ulysses")), page.getContent());
+        assertEquals(1L, page.getTotalHits());
+    }
+
+    @Test
+    void shouldNotIndexUncommittedComments() {
+        commentService.saveComment(1L, "Never committed");
+
+        assertEquals(0L, search("committed", 0, 20).getTotalHits());
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Test
+    void shouldRebuildIndexFromDatabaseOverIdRanges() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            final EntityManager em = entityManagerFactory.createEntityManager();
+            em.joinTransaction();
+            for (int id = 2; id <= 6; id++) {
+                em.createNativeQuery("INSERT INTO comments (id, book_id, content) VALUES (?, 1, ?)")
+                        .setParameter(1, id).setParameter(2, "Imported comment " + id).executeUpdate();
+            }
+            em.close();
+        });
+        assertEquals(0L, search("imported", 0, 20).getTotalHits());
+
+        assertEquals(6L, assertAtMost(4, () -> searchService.rebuildIndex()));
+
+        assertEquals(5L, search("imported", 0, 20).getTotalHits());
+        assertEquals(1L, search("published", 0, 20).getTotalHits());
+    }
+
+    @Test
+    void shouldRejectInvalidPage() {
+        assertThrows(IllegalArgumentException.class, () -> search("dublin", -1, 20));
+        assertThrows(IllegalArgumentException.class, () -> search("dublin", 0, 0));
+    }
+
+    private SearchPage<CommentView> search(String query, int page, int pageSize) {
+        return assertAtMost(1, () -> searchService.search(query, page, pageSize));
+    }
+
+    private static List<String> contents(SearchPage<CommentView> page) {
+        return page.getContent().stream().map(CommentView::getContent).collect(Collectors.toList());
+    }
+}
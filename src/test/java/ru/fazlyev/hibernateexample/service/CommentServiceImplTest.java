@@ -1,5 +1,8 @@
 package ru.fazlyev.hibernateexample.service;
 
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
@@ -12,15 +15,19 @@ import ru.fazlyev.hibernateexample.domain.Comment;
 import ru.fazlyev.hibernateexample.domain.Genre;
 import ru.fazlyev.hibernateexample.repository.BookRepositoryImpl;
 import ru.fazlyev.hibernateexample.repository.CommentRepositoryImpl;
+import ru.fazlyev.hibernateexample.view.CommentView;
 
 import javax.persistence.NoResultException;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
+import static ru.fazlyev.hibernateexample.sql.SqlStatements.assertAtMost;
 
 @DataJpaTest
-@Import({CommentRepositoryImpl.class, BookRepositoryImpl.class, CommentServiceImpl.class})
+@Import({CommentRepositoryImpl.class, BookRepositoryImpl.class, CommentServiceImpl.class, CommentSearchIndex.class,
+        CatalogStatistics.class})
 class CommentServiceImplTest {
     @Autowired
     private CommentServiceImpl commentService;
@@ -30,6 +37,7 @@ class CommentServiceImplTest {
     private final Book ulysses = new Book(1L, "Ulysses", new Author(1L, "James Joyce"),
             new Genre(1L, "Modernist novel"));
     private final Comment ulyssesComment = new Comment(1L, "Published in 1922", ulysses);
+    private final CommentView ulyssesCommentView = new CommentView(1L, "Published in 1922", 1L, "Ulysses");
 
     @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
     @Test
@@ -41,7 +49,7 @@ class CommentServiceImplTest {
         final Comment expected = new Comment(0L, "Published in 1975", book);
 
         em.persist(book);
-        commentService.saveComment(expected.getBook().getId(), expected.getContent());
+        assertAtMost(2, () -> commentService.saveComment(expected.getBook().getId(), expected.getContent()));
         final Comment actual = commentService.getCommentById(2L);
 
         assertEquals(expected.getContent(), actual.getContent());
@@ -50,27 +58,28 @@ class CommentServiceImplTest {
     @Test
     void shouldReturnCorrectCommentById() {
         commentService.saveComment(ulyssesComment.getBook().getId(), ulyssesComment.getContent());
-        final Comment actual = commentService.getCommentById(1L);
+        final Comment actual = assertAtMost(1, () -> commentService.getCommentById(1L));
 
         assertEquals(ulyssesComment, actual);
     }
 
     @Test
     void shouldReturnCorrectCommentByContent() {
-        final Comment actual = commentService.getCommentByContent(ulyssesComment.getContent());
+        final Comment actual = assertAtMost(1, () -> commentService.getCommentByContent(ulyssesComment.getContent()));
 
         assertEquals(ulyssesComment, actual);
     }
 
     @Test
     void shouldThrowExceptionAfterGetCommentByContentMethodInvocation() {
-        assertThrows(NoResultException.class, () -> commentService.getCommentByContent("comment"));
+        assertThrows(NoResultException.class,
+                () -> assertAtMost(1, () -> commentService.getCommentByContent("comment")));
     }
 
     @Test
     void testGetCommentByBookMethod() {
-        final List<Comment> expected = List.of(ulyssesComment);
-        final List<Comment> actual = commentService.getCommentsByBook("Ulysses");
+        final List<CommentView> expected = List.of(ulyssesCommentView);
+        final List<CommentView> actual = assertAtMost(1, () -> commentService.getCommentsByBook("Ulysses"));
 
         assertEquals(expected, actual);
     }
@@ -89,15 +98,35 @@ class CommentServiceImplTest {
         em.persist(book);
         commentService.saveComment(disciplineAndPunishComment.getBook().getId(),
                 disciplineAndPunishComment.getContent());
-        final List<Comment> actual = commentService.getAll();
+        final List<Comment> actual = assertAtMost(1, () -> commentService.getAll());
 
         assertEquals(expected, actual);
     }
 
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Test
+    void shouldBatchCommentInserts() {
+        final Statistics statistics = em.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        assertAtMost(4, () -> {
+            for (int i = 0; i < 100; i++) {
+                commentService.saveComment(1L, "Comment " + i);
+            }
+        });
+
+        // two sequence calls and a single batched insert statement
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3L);
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(100L);
+        assertThat(commentService.getAll()).hasSize(101);
+    }
+
     @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
     @Test
     void shouldUpdateCommentCorrectly() {
-        commentService.updateComment(1L, 1L, "Comment");
+        assertAtMost(2, () -> commentService.updateComment(1L, 1L, "Comment"));
 
         final Comment actualComment = em.find(Comment.class, 1L);
         assertThat(actualComment).isNotNull().matches(s -> !s.getContent().isBlank())
@@ -108,8 +137,103 @@ class CommentServiceImplTest {
     @Test
     void testDeleteByIdMethodByResultStringComparing() {
         final String expected = "Ulysses comment was deleted";
-        final String actual = commentService.deleteById(1L);
+        final String actual = assertAtMost(1, () -> commentService.deleteById(1L));
 
         assertEquals(expected, actual);
     }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Test
+    void shouldDeleteCommentWithoutBook() {
+        em.getEntityManager().createNativeQuery("INSERT INTO comments (id, book_id, content) VALUES (2, NULL, ?)")
+                .setParameter(1, "Orphaned").executeUpdate();
+
+        assertEquals("Comment was deleted", assertAtMost(1, () -> commentService.deleteById(2L)));
+    }
+
+    @Test
+    void shouldLoadCommentWithItsBookInOneStatement() {
+        final Comment[] comment = new Comment[1];
+
+        assertEquals(1L, countStatements(() -> comment[0] = assertAtMost(1, () -> commentService.getCommentById(1L))));
+        assertEquals(ulyssesComment.toString(), comment[0].toString());
+        assertEquals(1L, countStatements(
+                () -> assertAtMost(1, () -> commentService.getCommentByContent("Published in 1922"))));
+    }
+
+    @Test
+    void shouldReadCommentsOfBookInOneStatementWithoutManagingEntities() {
+        final List<CommentView> comments = new ArrayList<>();
+
+        assertEquals(1L, countStatements(
+                () -> comments.addAll(assertAtMost(1, () -> commentService.getCommentsByBook("Ulysses")))));
+        assertEquals(List.of(ulyssesCommentView), comments);
+
+        assertAtMost(2, () -> {
+            commentService.getCommentsByBook("Ulysses");
+            commentService.getPage(0L, 20);
+        });
+        assertEquals(0, em.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    void shouldListCommentsInOneStatement() {
+        assertEquals(1L, countStatements(() -> assertAtMost(1, () -> commentService.getAll())));
+        assertEquals(1L, countStatements(() -> assertAtMost(1, () -> commentService.getPage(0L, 20))));
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Test
+    void shouldInsertCommentWithSingleStatementWithoutLoadingBook() {
+        final Statistics statistics = em.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        commentService.saveComment(1L, "Warms up the sequence pool");
+        em.flush();
+
+        assertEquals(1L, countStatements(
+                () -> assertAtMost(1, () -> commentService.saveComment(1L, "Banned in 1922"))));
+        assertEquals(1L, statistics.getEntityInsertCount());
+        assertEquals(0L, statistics.getEntityLoadCount());
+        // H2 locks the previous row before the update; Postgres reads it back from the update itself
+        assertEquals(2L, countStatements(
+                () -> assertAtMost(2, () -> commentService.updateComment(1L, 1L, "Published in Paris"))));
+        assertEquals(0L, statistics.getEntityLoadCount());
+        assertThrows(IllegalArgumentException.class,
+                () -> assertAtMost(2, () -> commentService.updateComment(1L, 10_000L, "Lost")));
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Test
+    void shouldDeleteCommentWithoutLoadingBookSeparately() {
+        assertEquals(1L, countStatements(() -> assertAtMost(1, () -> commentService.deleteById(1L))));
+        assertThrows(IllegalArgumentException.class, () -> assertAtMost(1, () -> commentService.deleteById(1L)));
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Test
+    void shouldDeleteManyCommentsInOneStatement() {
+        final Book book = em.find(Book.class, 1L);
+        final List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            ids.add(em.persistAndGetId(new Comment(0L, "Comment " + i, book), Long.class));
+        }
+        em.flush();
+
+        final int[] deleted = new int[1];
+        assertEquals(1L, countStatements(() -> deleted[0] = assertAtMost(1, () -> commentService.deleteByIds(ids))));
+        assertEquals(500, deleted[0]);
+        assertEquals(List.of(ulyssesCommentView), commentService.getCommentsByBook("Ulysses"));
+    }
+
+    private long countStatements(Runnable action) {
+        final Statistics statistics = em.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        em.clear();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        action.run();
+        final long statements = statistics.getPrepareStatementCount();
+        em.clear();
+        return statements;
+    }
 }
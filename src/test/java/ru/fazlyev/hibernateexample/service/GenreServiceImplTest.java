@@ -7,6 +7,8 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.annotation.DirtiesContext;
 import ru.fazlyev.hibernateexample.domain.Genre;
+import ru.fazlyev.hibernateexample.repository.BookRepositoryImpl;
+import ru.fazlyev.hibernateexample.repository.CommentRepositoryImpl;
 import ru.fazlyev.hibernateexample.repository.GenreRepositoryImpl;
 
 import javax.persistence.NoResultException;
@@ -14,9 +16,11 @@ import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
+import static ru.fazlyev.hibernateexample.sql.SqlStatements.assertAtMost;
 
 @DataJpaTest
-@Import({GenreRepositoryImpl.class, GenreServiceImpl.class})
+@Import({GenreRepositoryImpl.class, GenreServiceImpl.class, BookRepositoryImpl.class, CommentRepositoryImpl.class,
+        NameIdCache.class, BookLookupCache.class, BookSearchIndex.class, CommentSearchIndex.class, CatalogStatistics.class})
 class GenreServiceImplTest {
     @Autowired
     private GenreServiceImpl service;
@@ -29,7 +33,7 @@ class GenreServiceImplTest {
     @Test
     void testSaveByComparing() {
         final Genre philosophy = new Genre(0L, "Philosophy");
-        service.saveGenre(philosophy.getName());
+        assertAtMost(2, () -> service.saveGenre(philosophy.getName()));
 
         final Genre actual = service.getGenreById(2L);
 
@@ -38,21 +42,21 @@ class GenreServiceImplTest {
 
     @Test
     void shouldReturnCorrectGenreById() {
-        final Genre actual = service.getGenreById(1L);
+        final Genre actual = assertAtMost(1, () -> service.getGenreById(1L));
 
         assertEquals(expectedNovel, actual);
     }
 
     @Test
     void shouldReturnCorrectGenreByName() {
-        final Genre actual = service.getGenreByName(expectedNovel.getName());
+        final Genre actual = assertAtMost(1, () -> service.getGenreByName(expectedNovel.getName()));
 
         assertEquals(expectedNovel, actual);
     }
 
     @Test
     void shouldThrowExceptionAfterGetGenreByNameMethodInvocation() {
-        assertThrows(NoResultException.class, () -> service.getGenreByName("genre"));
+        assertThrows(NoResultException.class, () -> assertAtMost(1, () -> service.getGenreByName("genre")));
     }
 
     @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
@@ -63,7 +67,7 @@ class GenreServiceImplTest {
 
         service.saveGenre(philosophy.getName());
 
-        final List<Genre> actual = service.getAll();
+        final List<Genre> actual = assertAtMost(1, () -> service.getAll());
 
         assertThat(actual).isNotNull().matches(a -> a.size() == expected.size())
                 .matches(a -> a.get(0).getName().equals(expected.get(0).getName()))
@@ -73,7 +77,7 @@ class GenreServiceImplTest {
     @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
     @Test
     void testUpdateAuthorMethodByComparing() {
-        service.updateGenre(1L, "Genre");
+        assertAtMost(1, () -> service.updateGenre(1L, "Genre"));
 
         final Genre actualGenre = em.find(Genre.class, 1L);
         assertThat(actualGenre).isNotNull().matches(s -> !s.getName().isBlank())
@@ -84,7 +88,7 @@ class GenreServiceImplTest {
     @Test
     void authorShouldBeDeletedCorrectly() {
         final String expected = "Modernist novel was deleted";
-        final String actual = service.deleteGenreById(1L);
+        final String actual = assertAtMost(4, () -> service.deleteGenreById(1L));
 
         assertEquals(expected, actual);
     }
@@ -0,0 +1,31 @@
+package ru.fazlyev.hibernateexample.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongHashMapTest {
+    @Test
+    void shouldBehaveLikeHashMapUnderRandomPutsAndRemoves() {
+        final LongHashMap<String> map = new LongHashMap<>();
+        final Map<Long, String> expected = new HashMap<>();
+        final Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            final long key = random.nextInt(2_000) * 64L;
+            if (random.nextBoolean()) {
+                assertEquals(expected.put(key, "v" + i), map.put(key, "v" + i));
+            } else {
+                assertEquals(expected.remove(key), map.remove(key));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 2_000 * 64L; key += 64) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+    }
+}
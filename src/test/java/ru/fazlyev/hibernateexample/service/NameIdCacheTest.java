@@ -0,0 +1,51 @@
+package ru.fazlyev.hibernateexample.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NameIdCacheTest {
+    @Test
+    void shouldEvictOnlyNamesOfGivenIds() {
+        final NameIdCache cache = new NameIdCache(100);
+        final AtomicInteger loads = new AtomicInteger();
+        for (int id = 1; id <= 50; id++) {
+            final long expected = id;
+            cache.getAuthorId("Author " + id, name -> {
+                loads.incrementAndGet();
+                return expected;
+            });
+        }
+
+        cache.evictAuthor(7L);
+        cache.evictAuthors(List.of(8L, 9L, 1_000L));
+
+        assertEquals(70L, cache.getAuthorId("Author 7", name -> 70L));
+        assertEquals(80L, cache.getAuthorId("Author 8", name -> 80L));
+        assertEquals(90L, cache.getAuthorId("Author 9", name -> 90L));
+        assertEquals(10L, cache.getAuthorId("Author 10", name -> fail("Author 10 should stay cached")));
+        assertEquals(50, loads.get());
+    }
+
+    @Test
+    void shouldForgetPreviousNameOfRenamedId() {
+        final NameIdCache cache = new NameIdCache(100);
+        cache.getGenreId("Modernist novel", name -> 1L);
+        cache.getGenreId("Philosophy", name -> 2L);
+
+        cache.evictGenre(1L);
+        cache.getGenreId("Modern novel", name -> 1L);
+
+        assertEquals(3L, cache.getGenreId("Modernist novel", name -> 3L));
+        assertEquals(1L, cache.getGenreId("Modern novel", name -> fail("Renamed genre should stay cached")));
+
+        cache.evictGenres(List.of(1L, 3L));
+
+        assertEquals(4L, cache.getGenreId("Modern novel", name -> 4L));
+        assertEquals(5L, cache.getGenreId("Modernist novel", name -> 5L));
+        assertEquals(2L, cache.getGenreId("Philosophy", name -> fail("Philosophy should stay cached")));
+    }
+}
@@ -0,0 +1,51 @@
+package ru.fazlyev.hibernateexample.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"app.search.rebuild-on-startup=true", "app.statistics.rebuild-on-startup=true"})
+class StartupRebuildTest {
+    @Autowired
+    private SeenSizes seenSizes;
+
+    @Test
+    void shouldRebuildBeforeApplicationRunnersStart() {
+        assertEquals(1L, seenSizes.sizes.get("comments"));
+        assertEquals(1L, seenSizes.sizes.get("books"));
+        assertEquals(1L, seenSizes.sizes.get("authors"));
+    }
+
+    @TestConfiguration
+    static class FirstRunner {
+        @Bean
+        SeenSizes seenSizes() {
+            return new SeenSizes();
+        }
+
+        @Bean
+        @Order(Ordered.HIGHEST_PRECEDENCE)
+        ApplicationRunner recordSizes(SeenSizes seenSizes, CommentSearchIndex commentSearchIndex,
+                                      BookSearchIndex bookSearchIndex, CatalogStatistics catalogStatistics) {
+            return args -> {
+                seenSizes.sizes.put("comments", commentSearchIndex.size());
+                seenSizes.sizes.put("books", bookSearchIndex.size());
+                seenSizes.sizes.put("authors", (long) catalogStatistics.getTopAuthors(10).size());
+            };
+        }
+    }
+
+    static class SeenSizes {
+        private final Map<String, Long> sizes = new HashMap<>();
+    }
+}
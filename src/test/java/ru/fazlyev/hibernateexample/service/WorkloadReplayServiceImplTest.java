@@ -0,0 +1,52 @@
+package ru.fazlyev.hibernateexample.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.fazlyev.hibernateexample.repository.AuthorRepositoryImpl;
+import ru.fazlyev.hibernateexample.repository.BookRepositoryImpl;
+import ru.fazlyev.hibernateexample.repository.CommentRepositoryImpl;
+import ru.fazlyev.hibernateexample.repository.GenreRepositoryImpl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.fazlyev.hibernateexample.sql.SqlStatements.assertAtMost;
+
+@DataJpaTest
+@Import({WorkloadReplayServiceImpl.class, BookServiceImpl.class, CommentServiceImpl.class,
+        BookRepositoryImpl.class, AuthorRepositoryImpl.class, GenreRepositoryImpl.class, CommentRepositoryImpl.class,
+        NameIdCache.class, BookLookupCache.class, BookSearchIndex.class, CommentSearchIndex.class,
+        CatalogStatistics.class})
+class WorkloadReplayServiceImplTest {
+    @Autowired
+    private WorkloadReplayServiceImpl replayService;
+    @Autowired
+    private BookLookupCache bookLookupCache;
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Test
+    void shouldReplayLookupsOnEveryThread() {
+        final String report = assertAtMost(2 + 40 / 4 * (1 + 1 + 2 + 1), () -> replayService.replay(40, 3));
+
+        assertThat(report).startsWith("Settings: ").contains("Replayed 40 operations on 3 threads in ")
+                .endsWith(" operations/s");
+        assertEquals(0L, bookLookupCache.getStats().requestCount());
+        assertThrows(IllegalArgumentException.class, () -> replayService.replay(0, 3));
+    }
+
+    @Test
+    void shouldDescribePoolAndDriverSettings() {
+        final HikariDataSource pool = new HikariDataSource();
+        pool.setMaximumPoolSize(8);
+        pool.addDataSourceProperty("prepareThreshold", 1);
+        pool.addDataSourceProperty("reWriteBatchedInserts", true);
+
+        assertEquals("pool 8, prepareThreshold 1, preparedStatementCacheQueries default, " +
+                "preparedStatementCacheSizeMiB default, reWriteBatchedInserts true",
+                WorkloadReplayServiceImpl.describe(pool));
+    }
+}
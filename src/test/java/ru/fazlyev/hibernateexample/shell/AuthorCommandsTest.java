@@ -9,6 +9,9 @@ import org.springframework.shell.Shell;
 import org.springframework.test.annotation.DirtiesContext;
 import ru.fazlyev.hibernateexample.domain.Author;
 import ru.fazlyev.hibernateexample.repository.AuthorRepositoryImpl;
+import ru.fazlyev.hibernateexample.repository.BookRepositoryImpl;
+import ru.fazlyev.hibernateexample.repository.CommentRepositoryImpl;
+import ru.fazlyev.hibernateexample.sql.StatementBudget;
 
 import java.util.List;
 import java.util.Optional;
@@ -17,9 +20,14 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest
+@StatementBudget(0)
 class AuthorCommandsTest {
     @MockBean
     private AuthorRepositoryImpl authorRepository;
+    @MockBean
+    private BookRepositoryImpl bookRepository;
+    @MockBean
+    private CommentRepositoryImpl commentRepository;
 
     @Autowired
     private Shell shell;
@@ -72,6 +80,7 @@ class AuthorCommandsTest {
 
     @Test
     void shouldReturnCorrectMessageAfterUpdateMethod() {
+        when(authorRepository.update(new Author(1L, "Michel Foucault"), null)).thenReturn(1);
         final String expected = "Michel Foucault was updated";
         final String actual = shell.evaluate(() -> "aUpdate 1 Michel,Foucault").toString();
 
@@ -11,7 +11,15 @@ import ru.fazlyev.hibernateexample.domain.Book;
 import ru.fazlyev.hibernateexample.domain.Genre;
 import ru.fazlyev.hibernateexample.repository.AuthorRepositoryImpl;
 import ru.fazlyev.hibernateexample.repository.BookRepositoryImpl;
+import ru.fazlyev.hibernateexample.repository.BookSort;
+import ru.fazlyev.hibernateexample.repository.CommentRepositoryImpl;
+import ru.fazlyev.hibernateexample.repository.CountedPage;
 import ru.fazlyev.hibernateexample.repository.GenreRepositoryImpl;
+import ru.fazlyev.hibernateexample.repository.KeysetPage;
+import ru.fazlyev.hibernateexample.repository.PageTotalMode;
+import ru.fazlyev.hibernateexample.service.BookSearchIndex;
+import ru.fazlyev.hibernateexample.sql.StatementBudget;
+import ru.fazlyev.hibernateexample.view.BookView;
 
 import java.util.List;
 import java.util.Optional;
@@ -20,6 +28,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest
+@StatementBudget(0)
 class BookCommandsTest {
     @MockBean
     private BookRepositoryImpl bookRepository;
@@ -27,11 +36,16 @@ class BookCommandsTest {
     private AuthorRepositoryImpl authorRepository;
     @MockBean
     private GenreRepositoryImpl genreRepository;
+    @MockBean
+    private CommentRepositoryImpl commentRepository;
 
     @Autowired
     private Shell shell;
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
     private final Book ulysses = new Book(1, "Ulysses", new Author(1, "James Joyce"),
             new Genre(1, "Modernist novel"));
+    private final BookView ulyssesView = new BookView(1L, "Ulysses", 1L, "James Joyce", 1L, "Modernist novel");
 
     @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
     @Test
@@ -39,20 +53,22 @@ class BookCommandsTest {
         final Author author = new Author(0L, "author");
         final Genre genre = new Genre(0L, "genre");
         final Book book = new Book(0L, "book", author, genre);
-        when(authorRepository.getAuthorByName("author")).thenReturn(author);
-        when(genreRepository.getGenreByName("genre")).thenReturn(genre);
+        when(authorRepository.getOrCreateIdByName("author")).thenReturn(0L);
+        when(authorRepository.getReferenceById(0L)).thenReturn(author);
+        when(genreRepository.getOrCreateIdByName("genre")).thenReturn(0L);
+        when(genreRepository.getReferenceById(0L)).thenReturn(genre);
         shell.evaluate(() -> "bInsert book author genre");
 
-        verify(authorRepository, times(1)).getAuthorByName("author");
-        verify(genreRepository, times(1)).getGenreByName("genre");
+        verify(authorRepository, times(1)).getOrCreateIdByName("author");
+        verify(genreRepository, times(1)).getOrCreateIdByName("genre");
         verify(bookRepository, times(1)).save(book);
     }
 
     @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
     @Test
     void shouldReturnCorrectMessageAfterInsertMethod() {
-        when(authorRepository.getAuthorByName("author")).thenReturn(new Author(0L, "author"));
-        when(genreRepository.getGenreByName("genre")).thenReturn(new Genre(0L, "genre"));
+        when(authorRepository.getOrCreateIdByName("author")).thenReturn(0L);
+        when(genreRepository.getOrCreateIdByName("genre")).thenReturn(0L);
         final String expected = "You successfully inserted a book to repository";
         final String actual = shell.evaluate(() -> "bInsert book author genre").toString();
 
@@ -62,8 +78,8 @@ class BookCommandsTest {
     @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
     @Test
     void shouldReturnCorrectMessageWithMultipleArgumentsAfterInsertMethod() {
-        when(authorRepository.getAuthorByName("author")).thenReturn(new Author(0L, "author"));
-        when(genreRepository.getGenreByName("genre")).thenReturn(new Genre(0L, "genre"));
+        when(authorRepository.getOrCreateIdByName("author")).thenReturn(0L);
+        when(genreRepository.getOrCreateIdByName("genre")).thenReturn(0L);
         final String expected = "You successfully inserted a Discipline and Punish to repository";
         final String actual = shell.evaluate(() -> "bInsert Discipline,and,Punish Michel,Foucault Philosophy").toString();
 
@@ -92,7 +108,7 @@ class BookCommandsTest {
 
     @Test
     void testGetBookByTitleByMessageComparison() {
-        when(bookRepository.getBookByTitle(ulysses.getTitle())).thenReturn(ulysses);
+        when(bookRepository.getViewByTitle(ulysses.getTitle())).thenReturn(ulyssesView);
         final String expected = ulysses.toString();
         final String actual = shell.evaluate(() -> "bookByTitle Ulysses").toString();
 
@@ -101,7 +117,7 @@ class BookCommandsTest {
 
     @Test
     void testGetBookByAuthorByMessageComparison() {
-        when(bookRepository.getBookByAuthor(ulysses.getAuthor().getName())).thenReturn(ulysses);
+        when(bookRepository.getViewByAuthor(ulysses.getAuthor().getName())).thenReturn(ulyssesView);
         final String expected = ulysses.toString();
         final String actual = shell.evaluate(() -> "bookByAuthor James,Joyce").toString();
 
@@ -110,7 +126,7 @@ class BookCommandsTest {
 
     @Test
     void testGetBookByGenreByMessageComparison() {
-        when(bookRepository.getBookByGenre(ulysses.getGenre().getName())).thenReturn(ulysses);
+        when(bookRepository.getViewByGenre(ulysses.getGenre().getName())).thenReturn(ulyssesView);
         final String expected = ulysses.toString();
         final String actual = shell.evaluate(() -> "bookByGenre Modernist,novel").toString();
 
@@ -128,17 +144,47 @@ class BookCommandsTest {
 
     @Test
     void testGetAllByMessageComparison() {
-        when(bookRepository.getAll()).thenReturn(List.of(ulysses));
-        final String expected = List.of(ulysses).toString();
+        when(bookRepository.getViewPage(0L, 20)).thenReturn(new KeysetPage<>(List.of(ulyssesView), 1L, false));
+        final String expected = List.of(ulyssesView).toString();
         final String actual = shell.evaluate(() -> "bGetAll").toString();
 
         assertEquals(expected, actual);
     }
 
+    @Test
+    void shouldPrintNextCursorWhenMoreBooksExist() {
+        when(bookRepository.getViewPage(0L, 1)).thenReturn(new KeysetPage<>(List.of(ulyssesView), 1L, true));
+        final String expected = List.of(ulyssesView) + "\nNext page after id 1";
+        final String actual = shell.evaluate(() -> "bGetAll 0 1").toString();
+
+        assertEquals(expected, actual);
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Test
+    void shouldPrintBooksWithSimilarTitle() {
+        bookSearchIndex.index(1L, "Ulysses", 1L, "James Joyce", 1L);
+        when(bookRepository.getViewsByIds(List.of(1L))).thenReturn(List.of(ulyssesView));
+
+        assertEquals(List.of(ulyssesView).toString(), shell.evaluate(() -> "bSearch Ulyses").toString());
+        assertEquals("No books found", shell.evaluate(() -> "bSearch Discipline,and,Punish").toString());
+    }
+
+    @Test
+    void shouldPrintBooksOfGenrePageByPage() {
+        final CountedPage<BookView> page = new CountedPage<>(List.of(ulyssesView), 1L, true, 1_000, true);
+        when(bookRepository.getViewsByGenre("Modernist novel", BookSort.ID, 0, 1, PageTotalMode.CAPPED))
+                .thenReturn(page);
+
+        assertEquals(List.of(ulyssesView) + System.lineSeparator() + "Next page after id 1, more than 1000 results",
+                shell.evaluate(() -> "booksByGenre Modernist,novel 0 1 ID").toString());
+    }
+
     @Test
     void shouldReturnCorrectMessageWithMultipleArgumentsAfterUpdateMethod() {
-        when(authorRepository.getAuthorByName("Michel Foucault")).thenReturn(new Author(0L, "Michel Foucault"));
-        when(genreRepository.getGenreByName("Philosophy")).thenReturn(new Genre(0L, "Philosophy"));
+        when(authorRepository.getOrCreateIdByName("Michel Foucault")).thenReturn(0L);
+        when(genreRepository.getOrCreateIdByName("Philosophy")).thenReturn(0L);
+        when(bookRepository.update(any(Book.class), isNull())).thenReturn(Optional.of(ulyssesView));
         final String expected = "Discipline and Punish was updated";
         final String actual = shell.evaluate(() -> "bUpdate 1 Discipline,and,Punish Michel,Foucault Philosophy").toString();
 
@@ -147,8 +193,9 @@ class BookCommandsTest {
 
     @Test
     void shouldReturnCorrectMessageAfterUpdateMethodWithOldAuthorAndGenre() {
-        when(authorRepository.getAuthorByName("Michel Foucault")).thenReturn(new Author(0L, "Michel Foucault"));
-        when(genreRepository.getGenreByName("Philosophy")).thenReturn(new Genre(0L, "Philosophy"));
+        when(authorRepository.getOrCreateIdByName("Michel Foucault")).thenReturn(0L);
+        when(genreRepository.getOrCreateIdByName("Philosophy")).thenReturn(0L);
+        when(bookRepository.update(any(Book.class), isNull())).thenReturn(Optional.of(ulyssesView));
         final String expected = "A Portrait of the Artist as a Young Man was updated";
         final String actual = shell.evaluate(() -> "bUpdate 1 A,Portrait,of,the,Artist,as,a,Young,Man " +
                 "James,Joyce Modern,novel").toString();
@@ -164,4 +211,18 @@ class BookCommandsTest {
 
         assertEquals(expected, actual);
     }
+
+    @Test
+    void shouldExpandIdRangesOfBatchCommands() {
+        when(bookRepository.deleteByIds(List.of(1L, 2L, 3L, 7L)))
+                .thenReturn(List.of(ulyssesView, ulyssesView, ulyssesView, ulyssesView));
+        when(genreRepository.getOrCreateIdByName("Philosophy")).thenReturn(2L);
+        when(bookRepository.updateGenreByIds(eq(List.of(4L, 5L)), any())).thenReturn(List.of(ulyssesView, ulyssesView));
+
+        assertEquals("4 books were deleted", shell.evaluate(() -> "bDeleteMany 1-3,7").toString());
+        assertEquals("2 books were moved to Philosophy", shell.evaluate(() -> "bMoveToGenre 4-5 Philosophy")
+                .toString());
+        assertEquals("No more than 1000000 ids are allowed",
+                ((IllegalArgumentException) shell.evaluate(() -> "bDeleteMany 1-1000001")).getMessage());
+    }
 }
@@ -0,0 +1,31 @@
+package ru.fazlyev.hibernateexample.shell;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.shell.Shell;
+import ru.fazlyev.hibernateexample.service.CacheStatisticsServiceImpl;
+import ru.fazlyev.hibernateexample.sql.StatementBudget;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+@StatementBudget(0)
+class CacheCommandsTest {
+    @MockBean
+    private CacheStatisticsServiceImpl statisticsService;
+
+    @Autowired
+    private Shell shell;
+
+    @Test
+    void shouldReturnCacheStatistics() {
+        final String expected = "Book lookups: 1 entries, 3 hits, 1 misses, 0 evictions, hit rate 0.75";
+        when(statisticsService.getStatistics()).thenReturn(expected);
+        final String actual = shell.evaluate(() -> "cacheStats").toString();
+
+        assertEquals(expected, actual);
+    }
+}
@@ -12,6 +12,10 @@ import ru.fazlyev.hibernateexample.domain.Comment;
 import ru.fazlyev.hibernateexample.domain.Genre;
 import ru.fazlyev.hibernateexample.repository.BookRepositoryImpl;
 import ru.fazlyev.hibernateexample.repository.CommentRepositoryImpl;
+import ru.fazlyev.hibernateexample.repository.KeysetPage;
+import ru.fazlyev.hibernateexample.service.CommentSearchIndex;
+import ru.fazlyev.hibernateexample.sql.StatementBudget;
+import ru.fazlyev.hibernateexample.view.CommentView;
 
 import java.util.List;
 import java.util.Optional;
@@ -20,6 +24,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest
+@StatementBudget(0)
 class CommentCommandsTest {
     @MockBean
     private CommentRepositoryImpl commentRepository;
@@ -28,6 +33,8 @@ class CommentCommandsTest {
 
     @Autowired
     private Shell shell;
+    @Autowired
+    private CommentSearchIndex searchIndex;
     private final Book ulysses = new Book(1, "Ulysses", new Author(1, "James Joyce"),
             new Genre(1, "Modernist novel"));
     private final Comment comment = new Comment(1L, "Published in 1922", ulysses);
@@ -35,7 +42,7 @@ class CommentCommandsTest {
     @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
     @Test
     void testInsertMethodByTimesOfRepositoryInvocation() {
-        when(bookRepository.getBookById(ulysses.getId())).thenReturn(Optional.of(ulysses));
+        when(bookRepository.getReferenceById(ulysses.getId())).thenReturn(ulysses);
         shell.evaluate(() -> "ci 1 Second,comment");
 
         verify(commentRepository, times(1)).save
@@ -45,11 +52,8 @@ class CommentCommandsTest {
     @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
     @Test
     void shouldReturnCorrectMessageAfterInsertMethodInvocation() {
-        final Genre genre = new Genre(1L, "genre");
-        final Author author = new Author(1L, "author");
-        final Book book = new Book(1L, "book", author, genre);
-        when(bookRepository.getBookById(1L)).thenReturn(Optional.of(book));
-        final String expected = "You successfully added a comment to book";
+        when(bookRepository.getReferenceById(1L)).thenReturn(ulysses);
+        final String expected = "You successfully added a comment to book 1";
         final String actual = shell.evaluate(() -> "cInsert 1 Second,comment,to,Ulysses").toString();
 
         assertEquals(expected, actual);
@@ -75,18 +79,42 @@ class CommentCommandsTest {
 
     @Test
     void testGetAllByMessageComparison() {
-        when(commentRepository.getAll()).thenReturn(List.of(comment));
+        final CommentView view = new CommentView(1L, comment.getContent(), 1L, "Ulysses");
+        when(commentRepository.getViewPage(0L, 20)).thenReturn(new KeysetPage<>(List.of(view), 1L, false));
         final String expected = List.of(comment).toString();
         final String actual = shell.evaluate(() -> "cGetAll").toString();
 
         assertEquals(expected, actual);
     }
 
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Test
+    void shouldPrintRankedSearchResults() {
+        final CommentView view = new CommentView(1L, comment.getContent(), 1L, "Ulysses");
+        searchIndex.index(1L, comment.getContent());
+        when(commentRepository.getViewsByIds(List.of(1L))).thenReturn(List.of(view));
+
+        final String expected = List.of(view) + "\nPage 1 of 1, 1 matches";
+        final String actual = shell.evaluate(() -> "cSearch published,1922").toString();
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void shouldPassCursorAndPageSizeToRepository() {
+        when(commentRepository.getViewPage(1L, 5)).thenReturn(new KeysetPage<>(List.of(), 0L, false));
+        shell.evaluate(() -> "cGetAll 1 5");
+
+        verify(commentRepository, times(1)).getViewPage(1L, 5);
+    }
+
     @Test
     void shouldReturnCorrectMessageAfterUpdateMethod() {
-        when(bookRepository.getBookById(1L)).thenReturn(Optional.of(ulysses));
+        when(bookRepository.getReferenceById(1L)).thenReturn(ulysses);
+        when(commentRepository.update(new Comment(1L, "Good,book", ulysses), null))
+                .thenReturn(Optional.of(new CommentView(1L, "Published in 1922", 1L, "Ulysses")));
 
-        final String expected = "Ulysses comment was updated";
+        final String expected = "Comment 1 of book 1 was updated";
         final String actual = shell.evaluate(() -> "cUpdate 1 1 Good,book").toString();
 
         assertEquals(expected, actual);
@@ -95,12 +123,21 @@ class CommentCommandsTest {
     @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
     @Test
     void shouldReturnCorrectMessageAfterDeleteMethod() {
-        when(commentRepository.getCommentById(1L)).thenReturn(Optional.of(comment));
-        when(bookRepository.getBookByComment(comment.getContent())).thenReturn(ulysses);
+        when(commentRepository.deleteById(1L)).thenReturn(Optional.of(
+                new CommentView(1L, "Published in 1922", 1L, "Ulysses")));
 
         final String expected = "Ulysses comment was deleted";
         final String actual = shell.evaluate(() -> "cDelete 1").toString();
 
         assertEquals(expected, actual);
     }
+
+    @Test
+    void shouldReturnNumberOfDeletedComments() {
+        when(commentRepository.deleteByIds(List.of(1L, 2L, 3L))).thenReturn(List.of(
+                new CommentView(1L, "Published in 1922", 1L, "Ulysses"),
+                new CommentView(3L, "Banned in 1922", 1L, "Ulysses")));
+
+        assertEquals("2 comments were deleted", shell.evaluate(() -> "cDeleteMany 1,2,3").toString());
+    }
 }
@@ -8,7 +8,10 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.shell.Shell;
 import org.springframework.test.annotation.DirtiesContext;
 import ru.fazlyev.hibernateexample.domain.Genre;
+import ru.fazlyev.hibernateexample.repository.BookRepositoryImpl;
+import ru.fazlyev.hibernateexample.repository.CommentRepositoryImpl;
 import ru.fazlyev.hibernateexample.repository.GenreRepositoryImpl;
+import ru.fazlyev.hibernateexample.sql.StatementBudget;
 
 import java.util.List;
 import java.util.Optional;
@@ -17,9 +20,14 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest
+@StatementBudget(0)
 class GenreCommandsTest {
     @MockBean
     private GenreRepositoryImpl genreRepository;
+    @MockBean
+    private BookRepositoryImpl bookRepository;
+    @MockBean
+    private CommentRepositoryImpl commentRepository;
 
     @Autowired
     private Shell shell;
@@ -71,6 +79,7 @@ class GenreCommandsTest {
 
     @Test
     void shouldReturnCorrectMessageAfterUpdateMethod() {
+        when(genreRepository.update(new Genre(1L, "Modernist novel"), null)).thenReturn(1);
         final String expected = "Modernist novel was updated";
         final String actual = shell.evaluate(() -> "gUpdate 1 Modernist,novel").toString();
 
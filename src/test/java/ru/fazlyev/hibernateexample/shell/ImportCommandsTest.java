@@ -0,0 +1,37 @@
+package ru.fazlyev.hibernateexample.shell;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.shell.Shell;
+import ru.fazlyev.hibernateexample.importer.ImportReport;
+import ru.fazlyev.hibernateexample.service.CatalogImportServiceImpl;
+import ru.fazlyev.hibernateexample.sql.StatementBudget;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+@StatementBudget(0)
+class ImportCommandsTest {
+    @MockBean
+    private CatalogImportServiceImpl importService;
+
+    @Autowired
+    private Shell shell;
+
+    @Test
+    void shouldReturnImportReport() {
+        final ImportReport report = new ImportReport(0L, 2L, 3L, 1L, 1L, Duration.ofMillis(500));
+        when(importService.importCatalog(Path.of("catalog.csv"))).thenReturn(report);
+        final String expected = "Imported 2 books with 3 comments (1 new authors, 1 new genres) in 500 ms, " +
+                "10 rows/sec";
+        final String actual = shell.evaluate(() -> "catalogImport catalog.csv").toString();
+
+        assertEquals(expected, actual);
+    }
+}
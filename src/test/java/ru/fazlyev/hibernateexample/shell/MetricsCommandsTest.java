@@ -0,0 +1,31 @@
+package ru.fazlyev.hibernateexample.shell;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.shell.Shell;
+import ru.fazlyev.hibernateexample.service.MetricsServiceImpl;
+import ru.fazlyev.hibernateexample.sql.StatementBudget;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+@StatementBudget(0)
+class MetricsCommandsTest {
+    @MockBean
+    private MetricsServiceImpl metricsService;
+
+    @Autowired
+    private Shell shell;
+
+    @Test
+    void shouldReturnRepositoryMetrics() {
+        final String expected = "BookRepository.getBookByTitle: 2 calls, mean 0.412 ms, p50 0.385 ms, " +
+                "p95 0.442 ms, p99 0.442 ms, max 0.442 ms, 1.0 statements/call, 1.0 rows/call";
+        when(metricsService.getRepositoryMetrics()).thenReturn(expected);
+
+        assertEquals(expected, shell.evaluate(() -> "metrics").toString());
+    }
+}
@@ -0,0 +1,31 @@
+package ru.fazlyev.hibernateexample.shell;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.shell.Shell;
+import ru.fazlyev.hibernateexample.service.WorkloadReplayServiceImpl;
+import ru.fazlyev.hibernateexample.sql.StatementBudget;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+@StatementBudget(0)
+class ReplayCommandsTest {
+    @MockBean
+    private WorkloadReplayServiceImpl replayService;
+
+    @Autowired
+    private Shell shell;
+
+    @Test
+    void shouldReplayWorkloadWithGivenOperationsAndThreads() {
+        final String expected = "Replayed 500 operations on 2 threads in 50 ms: 10000.0 operations/s";
+        when(replayService.replay(500, 2)).thenReturn(expected);
+
+        assertEquals(expected, shell.evaluate(() -> "wr 500 2").toString());
+        verify(replayService).replay(500, 2);
+    }
+}
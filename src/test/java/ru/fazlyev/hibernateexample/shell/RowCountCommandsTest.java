@@ -0,0 +1,28 @@
+package ru.fazlyev.hibernateexample.shell;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.shell.Shell;
+import ru.fazlyev.hibernateexample.sql.StatementBudget;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@StatementBudget(4)
+class RowCountCommandsTest {
+    @Autowired
+    private Shell shell;
+
+    @Test
+    void shouldReturnExactCountsByDefault() {
+        assertEquals("Authors: 1, genres: 1, books: 1, comments: 1 (exact)",
+                shell.evaluate(() -> "rowCounts").toString());
+    }
+
+    @Test
+    void shouldReturnEstimatedCounts() {
+        assertEquals("Authors: 1, genres: 1, books: 1, comments: 1 (estimated)",
+                shell.evaluate(() -> "rowCounts ESTIMATE").toString());
+    }
+}
@@ -0,0 +1,40 @@
+package ru.fazlyev.hibernateexample.shell;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.shell.Shell;
+import ru.fazlyev.hibernateexample.service.CatalogStatisticsServiceImpl;
+import ru.fazlyev.hibernateexample.sql.StatementBudget;
+import ru.fazlyev.hibernateexample.view.CountView;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+@StatementBudget(0)
+class StatisticsCommandsTest {
+    @MockBean
+    private CatalogStatisticsServiceImpl statisticsService;
+
+    @Autowired
+    private Shell shell;
+
+    @Test
+    void shouldPrintTopGenresOnePerLine() {
+        when(statisticsService.getTopGenres(2)).thenReturn(List.of(new CountView(2L, "Philosophy", 5L),
+                new CountView(1L, "Modernist novel", 3L)));
+
+        assertEquals("Philosophy: 5\nModernist novel: 3", shell.evaluate(() -> "topGenres 2").toString());
+    }
+
+    @Test
+    void shouldReportEmptyTopBooks() {
+        when(statisticsService.getTopBooks(10)).thenReturn(List.of());
+
+        assertEquals("Nothing found", shell.evaluate(() -> "topBooks").toString());
+    }
+}
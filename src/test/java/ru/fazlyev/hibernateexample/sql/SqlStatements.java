@@ -0,0 +1,95 @@
+package ru.fazlyev.hibernateexample.sql;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+public final class SqlStatements {
+    private static final Queue<String> EXECUTED = new ConcurrentLinkedQueue<>();
+    private static final ThreadLocal<List<String>> SCOPE = new InheritableThreadLocal<>();
+
+    static final QueryExecutionListener LISTENER = new QueryExecutionListener() {
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        }
+
+        @Override
+        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            final List<String> scope = SCOPE.get();
+            queryInfoList.forEach(query -> {
+                EXECUTED.add(query.getQuery());
+                if (scope != null) {
+                    scope.add(query.getQuery());
+                }
+            });
+        }
+    };
+
+    private SqlStatements() {
+    }
+
+    public static void assertAtMost(int budget, Runnable action) {
+        assertAtMost(budget, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public static <T> T assertAtMost(int budget, Supplier<T> action) {
+        flushPendingWrites();
+        final List<String> outer = SCOPE.get();
+        final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+        SCOPE.set(executed);
+        try {
+            final T result = action.get();
+            flushPendingWrites();
+            return result;
+        } finally {
+            SCOPE.set(outer);
+            if (outer != null) {
+                outer.addAll(executed);
+            }
+            check(budget, List.copyOf(executed));
+        }
+    }
+
+    public static void reset() {
+        EXECUTED.clear();
+    }
+
+    public static int count() {
+        return EXECUTED.size();
+    }
+
+    public static List<String> executed() {
+        return List.copyOf(EXECUTED);
+    }
+
+    static void flushPendingWrites() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.getResourceMap().values().stream()
+                .filter(EntityManagerHolder.class::isInstance)
+                .map(holder -> ((EntityManagerHolder) holder).getEntityManager())
+                .filter(EntityManager::isJoinedToTransaction)
+                .forEach(EntityManager::flush);
+    }
+
+    static void check(int budget, List<String> executed) {
+        if (executed.size() > budget) {
+            throw new AssertionError(String.format("Expected at most %d SQL statements but %d were executed:%n%s",
+                    budget, executed.size(), String.join("\n", executed)));
+        }
+    }
+}
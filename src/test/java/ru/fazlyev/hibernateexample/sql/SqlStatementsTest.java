@@ -0,0 +1,48 @@
+package ru.fazlyev.hibernateexample.sql;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import ru.fazlyev.hibernateexample.domain.Author;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class SqlStatementsTest {
+    @Autowired
+    private TestEntityManager em;
+
+    @Test
+    void shouldRecordEveryStatementSentThroughTheDataSource() {
+        SqlStatements.reset();
+
+        em.getEntityManager().createNativeQuery("SELECT name FROM authors WHERE id = 1").getSingleResult();
+        em.getEntityManager().createNativeQuery("SELECT title FROM books WHERE id = 1").getSingleResult();
+
+        assertEquals(List.of("SELECT name FROM authors WHERE id = 1", "SELECT title FROM books WHERE id = 1"),
+                SqlStatements.executed());
+        assertEquals(2, SqlStatements.count());
+    }
+
+    @Test
+    void shouldCountWritesFlushedAtTheEndOfTheScope() {
+        final AssertionError error = assertThrows(AssertionError.class,
+                () -> SqlStatements.assertAtMost(1, () -> em.persist(new Author(0L, "Michel Foucault"))));
+
+        assertThat(error.getMessage()).startsWith("Expected at most 1 SQL statements but 2 were executed")
+                .contains("insert into authors");
+    }
+
+    @Test
+    void shouldNotChargePendingWritesOfEarlierCodeToTheScope() {
+        em.persist(new Author(0L, "Michel Foucault"));
+
+        final Author actual = SqlStatements.assertAtMost(1, () -> em.find(Author.class, 1L));
+
+        assertEquals("James Joyce", actual.getName());
+    }
+}
@@ -0,0 +1,26 @@
+package ru.fazlyev.hibernateexample.sql;
+
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.platform.commons.support.AnnotationSupport;
+
+class StatementBudgetExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+    @Override
+    public void beforeTestExecution(ExtensionContext context) {
+        SqlStatements.reset();
+    }
+
+    @Override
+    public void afterTestExecution(ExtensionContext context) {
+        if (context.getExecutionException().isPresent()) {
+            return;
+        }
+        SqlStatements.flushPendingWrites();
+        final int budget = AnnotationSupport.findAnnotation(context.getRequiredTestMethod(), StatementBudget.class)
+                .or(() -> AnnotationSupport.findAnnotation(context.getRequiredTestClass(), StatementBudget.class))
+                .map(StatementBudget::value)
+                .orElseThrow();
+        SqlStatements.check(budget, SqlStatements.executed());
+    }
+}
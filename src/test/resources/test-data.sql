@@ -1,4 +1,4 @@
-INSERT INTO authors (name) VALUES ('James Joyce');
-INSERT INTO genres (name) VALUES ('Modernist novel');
-INSERT INTO books (title, author_id, genre_id) VALUES ('Ulysses', 1, 1);
-INSERT INTO comments (book_id, content) VALUES (1, 'Published in 1922');
\ No newline at end of file
+INSERT INTO authors (id, name) VALUES (1, 'James Joyce');
+INSERT INTO genres (id, name) VALUES (1, 'Modernist novel');
+INSERT INTO books (id, title, author_id, genre_id) VALUES (1, 'Ulysses', 1, 1);
+INSERT INTO comments (id, book_id, content) VALUES (1, 1, 'Published in 1922');
\ No newline at end of file
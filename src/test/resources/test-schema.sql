@@ -2,11 +2,39 @@ DROP TABLE IF EXISTS authors CASCADE;
 DROP TABLE IF EXISTS genres CASCADE;
 DROP TABLE IF EXISTS books CASCADE;
 DROP TABLE IF EXISTS comments CASCADE;
-CREATE TABLE authors(id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(255) NOT NULL);
-CREATE TABLE genres(id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(255) NOT NULL);
-CREATE TABLE books(id BIGINT AUTO_INCREMENT PRIMARY KEY, title VARCHAR(255) NOT NULL, author_id BIGINT,
-                   genre_id BIGINT, FOREIGN KEY(author_id) REFERENCES authors(id) ON DELETE CASCADE
+DROP TABLE IF EXISTS row_counts;
+DROP SEQUENCE IF EXISTS authors_seq;
+DROP SEQUENCE IF EXISTS genres_seq;
+DROP SEQUENCE IF EXISTS books_seq;
+DROP SEQUENCE IF EXISTS comments_seq;
+CREATE SEQUENCE authors_seq START WITH 2 INCREMENT BY 50;
+CREATE SEQUENCE genres_seq START WITH 2 INCREMENT BY 50;
+CREATE SEQUENCE books_seq START WITH 2 INCREMENT BY 50;
+CREATE SEQUENCE comments_seq START WITH 2 INCREMENT BY 50;
+CREATE TABLE authors(id BIGINT PRIMARY KEY, name VARCHAR(255) NOT NULL UNIQUE, version BIGINT NOT NULL DEFAULT 0);
+CREATE TABLE genres(id BIGINT PRIMARY KEY, name VARCHAR(255) NOT NULL UNIQUE, version BIGINT NOT NULL DEFAULT 0);
+CREATE TABLE books(id BIGINT PRIMARY KEY, title VARCHAR(255) NOT NULL, author_id BIGINT,
+                   genre_id BIGINT, version BIGINT NOT NULL DEFAULT 0, FOREIGN KEY(author_id) REFERENCES authors(id) ON DELETE CASCADE
                        ON UPDATE CASCADE, FOREIGN KEY (genre_id) REFERENCES genres(id)
                        ON DELETE CASCADE ON UPDATE CASCADE );
-CREATE TABLE comments(id BIGINT AUTO_INCREMENT PRIMARY KEY, book_id BIGINT, content VARCHAR(500),
-                      FOREIGN KEY (book_id) REFERENCES books(id) ON DELETE CASCADE ON UPDATE CASCADE);
\ No newline at end of file
+CREATE TABLE comments(id BIGINT PRIMARY KEY, book_id BIGINT, content VARCHAR(500), version BIGINT NOT NULL DEFAULT 0,
+                      FOREIGN KEY (book_id) REFERENCES books(id) ON DELETE CASCADE ON UPDATE CASCADE);
+CREATE INDEX idx_books_title ON books (title);
+CREATE INDEX idx_books_author_id ON books (author_id, id);
+CREATE INDEX idx_books_genre_id ON books (genre_id, id);
+CREATE INDEX idx_books_author_id_title ON books (author_id, title, id);
+CREATE INDEX idx_books_genre_id_title ON books (genre_id, title, id);
+CREATE INDEX idx_comments_content ON comments (content);
+CREATE INDEX idx_comments_book_id ON comments (book_id);
+CREATE TABLE row_counts(table_name VARCHAR(64) NOT NULL, slot INT NOT NULL, row_count BIGINT NOT NULL DEFAULT 0,
+                        PRIMARY KEY (table_name, slot));
+INSERT INTO row_counts (table_name, slot, row_count) VALUES ('authors', 0, 0), ('genres', 0, 0), ('books', 0, 0),
+                                                            ('comments', 0, 0);
+CREATE TRIGGER trg_authors_row_count AFTER INSERT, DELETE ON authors FOR EACH ROW
+    CALL "ru.fazlyev.hibernateexample.repository.H2RowCountTrigger";
+CREATE TRIGGER trg_genres_row_count AFTER INSERT, DELETE ON genres FOR EACH ROW
+    CALL "ru.fazlyev.hibernateexample.repository.H2RowCountTrigger";
+CREATE TRIGGER trg_books_row_count AFTER INSERT, DELETE ON books FOR EACH ROW
+    CALL "ru.fazlyev.hibernateexample.repository.H2RowCountTrigger";
+CREATE TRIGGER trg_comments_row_count AFTER INSERT, DELETE ON comments FOR EACH ROW
+    CALL "ru.fazlyev.hibernateexample.repository.H2RowCountTrigger";